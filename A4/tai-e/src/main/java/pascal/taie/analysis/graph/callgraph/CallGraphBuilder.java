@@ -24,6 +24,7 @@ package pascal.taie.analysis.graph.callgraph;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.ConfigException;
@@ -32,8 +33,10 @@ import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.ClassHierarchyImpl;
 import pascal.taie.language.classes.JMethod;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
 public class CallGraphBuilder extends ProgramAnalysis {
 
@@ -55,6 +58,28 @@ public class CallGraphBuilder extends ProgramAnalysis {
 
     @Override
     public CallGraph<Invoke, JMethod> analyze() {
+        String action = getOptions().getString("action");
+        if ("load".equals(action)) {
+            // reuses the snapshot of previous run if the class path and
+            // entry methods are unchanged, otherwise builds and saves
+            // a new snapshot for next run
+            List<JMethod> entries = getEntryMethods();
+            byte[] key = CallGraphSnapshot.computeKey(algorithm, entries);
+            File file = CallGraphSnapshot.getSnapshotFile(
+                    getOptions().getString("file"), entries);
+            CallGraph<Invoke, JMethod> callGraph = CallGraphSnapshot.load(key, file);
+            if (callGraph == null) {
+                callGraph = buildCallGraph();
+                CallGraphSnapshot.save(callGraph, key, file);
+            }
+            return callGraph;
+        }
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph();
+        takeAction(callGraph);
+        return callGraph;
+    }
+
+    private CallGraph<Invoke, JMethod> buildCallGraph() {
         CGBuilder<Invoke, JMethod> builder;
         if (algorithm.equals("cha")) {
             builder = new CHABuilder();
@@ -64,7 +89,6 @@ public class CallGraphBuilder extends ProgramAnalysis {
         ClassHierarchyImpl.setCheckCHA(true);
         CallGraph<Invoke, JMethod> callGraph = builder.build();
         ClassHierarchyImpl.setCheckCHA(false);
-        takeAction(callGraph);
         return callGraph;
     }
 
@@ -77,9 +101,26 @@ public class CallGraphBuilder extends ProgramAnalysis {
             logCallGraph(callGraph);
             String file = getOptions().getString("file");
             CallGraphs.dumpCallGraph(callGraph, file);
+        } else if (action.equals("dump-edges")) {
+            CallGraphs.dumpCallGraphEdges(callGraph, getOptions().getString("file"));
+        } else if (action.equals("save")) {
+            List<JMethod> entries = getEntryMethods();
+            CallGraphSnapshot.save(callGraph,
+                    CallGraphSnapshot.computeKey(algorithm, entries),
+                    CallGraphSnapshot.getSnapshotFile(
+                            getOptions().getString("file"), entries));
         }
     }
 
+    /**
+     * @return the entry methods of call graph building. Snapshots are
+     * saved and loaded with the same entry methods, so that their keys
+     * agree across runs.
+     */
+    private static List<JMethod> getEntryMethods() {
+        return List.of(World.get().getMainMethod());
+    }
+
     static void logCallGraph(CallGraph<Invoke, JMethod> callGraph) {
         Comparator<JMethod> cmp = Comparator.comparing(JMethod::toString);
         logger.info("#reachable methods: {}", callGraph.getNumberOfMethods());
@@ -0,0 +1,336 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.config.Configs;
+import pascal.taie.config.Options;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Saves call graphs to compact binary snapshots and loads them back,
+ * so that repeated runs on an unchanged class path can skip call graph
+ * construction.
+ * <p>
+ * A snapshot is keyed by a digest of the building algorithm, the Java
+ * library (the JRE of given Java version, or the running JVM if it is
+ * prepended), the class path (including the sizes and modification times
+ * of the files on them) and the entry methods. A snapshot whose key does not match the current
+ * run is treated as absent.
+ * <p>
+ * Layout of a snapshot (all numbers are big-endian):
+ * <pre>
+ * int    magic
+ * int    version
+ * byte[] key (32 bytes)
+ * int    #methods, then for each method:
+ *            string declaring class, string subsignature
+ * int    #entry methods, then their method ids
+ * int    #edges, then for each edge:
+ *            int caller id, int call site index, byte call kind, int callee id
+ * </pre>
+ * where each string is an int length followed by its UTF-8 bytes.
+ * <p>
+ * A snapshot is written to a temporary file, which then replaces the
+ * snapshot file, thus an interrupted saving does not leave a truncated
+ * snapshot behind.
+ */
+final class CallGraphSnapshot {
+
+    private static final Logger logger = LogManager.getLogger(CallGraphSnapshot.class);
+
+    private static final int MAGIC = 0x54434753; // "TCGS"
+
+    private static final int VERSION = 1;
+
+    private static final int KEY_LENGTH = 32;
+
+    private static final CallKind[] CALL_KINDS = CallKind.values();
+
+    private CallGraphSnapshot() {
+    }
+
+    /**
+     * @return the snapshot file for given output option; if the option is
+     * null, the file is placed in the output directory and named after
+     * the entry methods.
+     */
+    static File getSnapshotFile(@Nullable String output, List<JMethod> entries) {
+        if (output != null) {
+            return new File(output);
+        }
+        return new File(Configs.getOutputDir(), entries.stream()
+                .map(m -> m.getDeclaringClass() + "." + m.getName())
+                .collect(Collectors.joining("-")) + "-cg.bin");
+    }
+
+    /**
+     * Directory of the JREs that are used when JVM is not prepended.
+     */
+    private static final String JREs = "java-benchmarks/JREs";
+
+    /**
+     * Computes the key of call graph built by given algorithm from given
+     * entry methods on the Java library and class path of current world.
+     */
+    static byte[] computeKey(String algorithm, List<JMethod> entries) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AnalysisException(e);
+        }
+        update(digest, algorithm);
+        Options options = World.get().getOptions();
+        int javaVersion = options.getJavaVersion();
+        update(digest, "java-version:" + javaVersion);
+        if (options.isPrependJVM()) {
+            update(digest, "prepend-JVM:" + System.getProperty("java.home")
+                    + ":" + System.getProperty("java.runtime.version"));
+        } else {
+            updateFiles(digest, Path.of(JREs, "jre1." + javaVersion));
+        }
+        String classPath = options.getClassPath();
+        if (classPath != null) {
+            update(digest, classPath);
+            for (String element : classPath.split(File.pathSeparator)) {
+                updateFiles(digest, Path.of(element));
+            }
+        }
+        entries.forEach(m -> update(digest, m.getSignature()));
+        return digest.digest();
+    }
+
+    /**
+     * Updates the digest with the paths, sizes and modification times
+     * of the regular files under given path.
+     */
+    private static void updateFiles(MessageDigest digest, Path path) {
+        if (Files.exists(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(Files::isRegularFile)
+                        .sorted()
+                        .forEach(file -> {
+                            File f = file.toFile();
+                            update(digest, f.getPath());
+                            update(digest, f.length() + ":" + f.lastModified());
+                        });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Saves the call graph to given file. The snapshot is written to a
+     * temporary file first, and then moved to given file atomically.
+     */
+    static void save(CallGraph<Invoke, JMethod> callGraph, byte[] key, File file) {
+        logger.info("Saving call graph snapshot to {} ...", file);
+        Map<JMethod, Integer> ids = Maps.newMap(callGraph.getNumberOfMethods());
+        List<JMethod> methods = new ArrayList<>(callGraph.getNumberOfMethods());
+        callGraph.reachableMethods().forEach(m -> {
+            ids.put(m, methods.size());
+            methods.add(m);
+        });
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new AnalysisException("Failed to create directory " + dir);
+        }
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write(key);
+            out.writeInt(methods.size());
+            for (JMethod m : methods) {
+                writeString(out, m.getDeclaringClass().getName());
+                writeString(out, m.getSubsignature().toString());
+            }
+            List<JMethod> entries = callGraph.entryMethods().toList();
+            out.writeInt(entries.size());
+            for (JMethod entry : entries) {
+                out.writeInt(ids.get(entry));
+            }
+            out.writeInt(callGraph.getNumberOfEdges());
+            for (Edge<Invoke, JMethod> edge : (Iterable<Edge<Invoke, JMethod>>)
+                    callGraph.edges()::iterator) {
+                Invoke callSite = edge.getCallSite();
+                out.writeInt(ids.get(callSite.getContainer()));
+                out.writeInt(callSite.getIndex());
+                out.writeByte(edge.getKind().ordinal());
+                out.writeInt(ids.get(edge.getCallee()));
+            }
+        } catch (IOException e) {
+            deleteQuietly(tmpFile);
+            throw new AnalysisException("Failed to save call graph to " + file, e);
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tmpFile);
+            throw new AnalysisException("Failed to save call graph to " + file, e);
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Loads the call graph from given file via memory mapping.
+     *
+     * @return the loaded call graph, or null if the file does not exist,
+     * is not a snapshot, was saved with a different key, or is corrupted
+     * (e.g., truncated).
+     */
+    static @Nullable CallGraph<Invoke, JMethod> load(byte[] key, File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(
+                file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.remaining() < 8 + KEY_LENGTH
+                    || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                logger.info("{} is not a call graph snapshot, ignore it", file);
+                return null;
+            }
+            byte[] savedKey = new byte[KEY_LENGTH];
+            buf.get(savedKey);
+            if (!Arrays.equals(savedKey, key)) {
+                logger.info("Call graph snapshot {} is stale, ignore it", file);
+                return null;
+            }
+            logger.info("Loading call graph snapshot from {} ...", file);
+            ClassHierarchy hierarchy = World.get().getClassHierarchy();
+            JMethod[] methods = new JMethod[readCount(buf, 8)];
+            for (int i = 0; i < methods.length; ++i) {
+                String className = readString(buf);
+                String subsig = readString(buf);
+                JClass jclass = hierarchy.getClass(className);
+                JMethod method = jclass == null ? null :
+                        jclass.getDeclaredMethod(Subsignature.get(subsig));
+                if (method == null) {
+                    logger.info("Cannot find method {}: {}, ignore snapshot {}",
+                            className, subsig, file);
+                    return null;
+                }
+                methods[i] = method;
+            }
+            DefaultCallGraph callGraph = new DefaultCallGraph();
+            for (int i = buf.getInt(); i > 0; --i) {
+                callGraph.addEntryMethod(methods[buf.getInt()]);
+            }
+            for (JMethod method : methods) {
+                callGraph.addReachableMethod(method);
+            }
+            for (int i = buf.getInt(); i > 0; --i) {
+                JMethod caller = methods[buf.getInt()];
+                Stmt callSite = caller.getIR().getStmt(buf.getInt());
+                CallKind kind = CALL_KINDS[buf.get()];
+                JMethod callee = methods[buf.getInt()];
+                callGraph.addEdge(new Edge<>(kind, (Invoke) callSite, callee));
+            }
+            return callGraph;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException |
+                 NegativeArraySizeException | ClassCastException e) {
+            logger.info("Call graph snapshot {} is corrupted ({}), ignore it", file, e.toString());
+            return null;
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to load call graph from " + file, e);
+        }
+    }
+
+    /**
+     * Reads a count of elements, each of which takes at least given
+     * number of bytes, and checks the count against the remaining bytes,
+     * so that a corrupted count does not cause a huge allocation.
+     */
+    private static int readCount(MappedByteBuffer buf, int minElementSize) {
+        int count = buf.getInt();
+        if (count > buf.remaining() / minElementSize) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static String readString(MappedByteBuffer buf) {
+        byte[] bytes = new byte[readCount(buf, 1)];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
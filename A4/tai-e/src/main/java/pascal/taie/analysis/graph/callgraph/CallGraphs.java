@@ -37,9 +37,16 @@ import pascal.taie.language.classes.JMethod;
 import pascal.taie.util.AnalysisException;
 import pascal.taie.util.IDProvider;
 import pascal.taie.util.MapIDProvider;
+import pascal.taie.util.collection.Maps;
 import pascal.taie.util.graph.DotDumper;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -96,6 +103,79 @@ public final class CallGraphs {
                 .dump(callGraph, output);
     }
 
+    /**
+     * Dumps call graph to a text edge list, which is much cheaper than
+     * {@link #dumpCallGraph(CallGraph, String)} for large call graphs.
+     * The output is streamed through a buffered writer and looks like:
+     * <pre>
+     * # methods: N
+     * 0 &lt;C: void main(java.lang.String[])&gt;
+     * ...
+     * # edges: M
+     * 0 3 STATIC 1
+     * ...
+     * </pre>
+     * Each method line gives a method ID and the method. Each edge line
+     * gives the caller ID, the index of the call site in the caller,
+     * the call kind, and the callee ID. Methods are numbered by their
+     * signatures, and edges are ordered by caller ID, call site index
+     * and callee ID, so that the output is deterministic.
+     */
+    static void dumpCallGraphEdges(CallGraph<Invoke, JMethod> callGraph, String output) {
+        if (output == null) {
+            output = new File(Configs.getOutputDir(),
+                    callGraph.entryMethods()
+                            .map(m -> m.getDeclaringClass() + "." + m.getName())
+                            .collect(Collectors.joining("-")) + "-cg.txt")
+                    .toString();
+        }
+        logger.info("Dumping call graph edges to {} ...", output);
+        // precompute sort keys: IDs of methods follow their signatures
+        JMethod[] methods = callGraph.reachableMethods()
+                .map(m -> Map.entry(m.getSignature(), m))
+                .sorted(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .toArray(JMethod[]::new);
+        Map<JMethod, Integer> ids = Maps.newMap(methods.length);
+        for (int i = 0; i < methods.length; ++i) {
+            ids.put(methods[i], i);
+        }
+        try (Writer out = Files.newBufferedWriter(
+                new File(output).toPath(), StandardCharsets.UTF_8)) {
+            out.write("# methods: " + methods.length + "\n");
+            for (int i = 0; i < methods.length; ++i) {
+                out.write(Integer.toString(i));
+                out.write(' ');
+                out.write(methods[i].getSignature());
+                out.write('\n');
+            }
+            out.write("# edges: " + callGraph.getNumberOfEdges() + "\n");
+            for (int i = 0; i < methods.length; ++i) {
+                Invoke[] callSites = callGraph.getCallSitesIn(methods[i])
+                        .toArray(new Invoke[0]);
+                Arrays.sort(callSites, Comparator.comparingInt(Invoke::getIndex));
+                for (Invoke callSite : callSites) {
+                    @SuppressWarnings("unchecked")
+                    Edge<Invoke, JMethod>[] edges = callGraph.edgesOutOf(callSite)
+                            .toArray(Edge[]::new);
+                    Arrays.sort(edges, Comparator.comparingInt(e -> ids.get(e.getCallee())));
+                    for (Edge<Invoke, JMethod> edge : edges) {
+                        out.write(Integer.toString(i));
+                        out.write(' ');
+                        out.write(Integer.toString(callSite.getIndex()));
+                        out.write(' ');
+                        out.write(edge.getKind().name());
+                        out.write(' ');
+                        out.write(Integer.toString(ids.get(edge.getCallee())));
+                        out.write('\n');
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new AnalysisException("Failed to dump call graph edges to " + output, e);
+        }
+    }
+
     public static String toString(Invoke invoke) {
         return invoke.getContainer() + IRPrinter.toString(invoke);
     }
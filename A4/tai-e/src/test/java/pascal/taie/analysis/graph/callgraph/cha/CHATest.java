@@ -22,9 +22,16 @@
 
 package pascal.taie.analysis.graph.callgraph.cha;
 
+import org.junit.Assert;
 import org.junit.Test;
 import pascal.taie.analysis.Tests;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
 public class CHATest {
     
     protected static void test(String main) {
@@ -50,4 +57,46 @@ public class CHATest {
     public void testAbstractMethod() {
         test("AbstractMethod");
     }
+
+    @Test
+    public void testDumpEdges() throws IOException {
+        Path edges = Path.of("output", "StaticCall-cg-edges.txt");
+        Files.deleteIfExists(edges);
+        Tests.test("StaticCall", "src/test/resources/cha/", "cg",
+                "algorithm:cha;action:dump-edges;file:" + edges);
+        Assert.assertEquals(
+                Files.readAllLines(Path.of("src/test/resources/cha/",
+                        "StaticCall-cg-edges-expected.txt")),
+                Files.readAllLines(edges));
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        Path snapshot = Path.of("output", "VirtualCall-cg-snapshot.bin");
+        String opts = "algorithm:cha;action:load;file:" + snapshot;
+        // the first run builds and saves the snapshot
+        Files.deleteIfExists(snapshot);
+        Tests.test("VirtualCall", "src/test/resources/cha/", "cg", opts);
+        Assert.assertTrue(Files.isRegularFile(snapshot));
+        // the second run loads it, thus does not save it again
+        FileTime saved = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(snapshot, saved);
+        Tests.test("VirtualCall", "src/test/resources/cha/", "cg", opts);
+        Assert.assertEquals(saved, Files.getLastModifiedTime(snapshot));
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException {
+        Path snapshot = Path.of("output", "VirtualCall-cg-truncated.bin");
+        String opts = "algorithm:cha;action:load;file:" + snapshot;
+        Files.deleteIfExists(snapshot);
+        Tests.test("VirtualCall", "src/test/resources/cha/", "cg", opts);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // keep the valid header and key, but cut the body short
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 6));
+        // the truncated snapshot is ignored, and the call graph
+        // is built and saved again
+        Tests.test("VirtualCall", "src/test/resources/cha/", "cg", opts);
+        Assert.assertEquals(bytes.length, Files.size(snapshot));
+    }
 }
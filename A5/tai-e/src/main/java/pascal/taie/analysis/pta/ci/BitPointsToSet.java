@@ -0,0 +1,154 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.analysis.pta.core.heap.IndexedHeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.util.collection.SparseBitSet;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * Points-to set backed by a {@link SparseBitSet} of the indexes of
+ * the objects given by an {@link IndexedHeapModel}. Membership tests
+ * do not hash the objects, as the objects carry their indexes, and the
+ * set-wise operations of two bit sets (e.g., {@link #addAllDiff(PointsToSet)}
+ * and {@link #diff(PointsToSet)}) are done word by word.
+ */
+class BitPointsToSet extends PointsToSet {
+
+    private final IndexedHeapModel heapModel;
+
+    private final SparseBitSet bits;
+
+    BitPointsToSet(IndexedHeapModel heapModel) {
+        this(heapModel, new SparseBitSet());
+    }
+
+    private BitPointsToSet(IndexedHeapModel heapModel, SparseBitSet bits) {
+        this.heapModel = heapModel;
+        this.bits = bits;
+    }
+
+    @Override
+    boolean addObject(Obj obj) {
+        return bits.add(heapModel.getIndex(obj));
+    }
+
+    @Override
+    PointsToSet addAllDiff(PointsToSet other) {
+        if (other instanceof BitPointsToSet otherBits) {
+            return new BitPointsToSet(heapModel, bits.addAllDiff(otherBits.bits));
+        }
+        return super.addAllDiff(other);
+    }
+
+    @Override
+    boolean addAll(PointsToSet other) {
+        if (other instanceof BitPointsToSet otherBits) {
+            return bits.addAll(otherBits.bits);
+        }
+        return super.addAll(other);
+    }
+
+    @Override
+    PointsToSet diff(PointsToSet other) {
+        if (other instanceof BitPointsToSet otherBits) {
+            return new BitPointsToSet(heapModel, bits.andNot(otherBits.bits));
+        }
+        return super.diff(other);
+    }
+
+    @Override
+    PointsToSet intersect(PointsToSet other) {
+        if (other instanceof BitPointsToSet otherBits) {
+            return new BitPointsToSet(heapModel, bits.and(otherBits.bits));
+        }
+        return super.intersect(other);
+    }
+
+    @Override
+    boolean containsAll(PointsToSet other) {
+        if (other instanceof BitPointsToSet otherBits) {
+            return bits.containsAll(otherBits.bits);
+        }
+        return super.containsAll(other);
+    }
+
+    @Override
+    boolean contains(Obj obj) {
+        int index = heapModel.getIndex(obj);
+        return index >= 0 && bits.contains(index);
+    }
+
+    @Override
+    int size() {
+        return bits.size();
+    }
+
+    @Override
+    Set<Obj> getObjects() {
+        return new AbstractSet<>() {
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Obj obj && BitPointsToSet.this.contains(obj);
+            }
+
+            @Override
+            public Iterator<Obj> iterator() {
+                return BitPointsToSet.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return bits.size();
+            }
+        };
+    }
+
+    @Override
+    PointsToSet newSet() {
+        return new BitPointsToSet(heapModel);
+    }
+
+    @Override
+    public Iterator<Obj> iterator() {
+        PrimitiveIterator.OfInt it = bits.iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Obj next() {
+                return heapModel.getObj(it.nextInt());
+            }
+        };
+    }
+}
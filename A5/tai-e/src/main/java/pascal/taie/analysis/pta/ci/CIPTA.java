@@ -26,7 +26,10 @@ import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.IndexedHeapModel;
+import pascal.taie.analysis.pta.core.heap.TypeMergingHeapModel;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
 
 /**
  * Context-insensitive pointer analysis.
@@ -41,11 +44,34 @@ public class CIPTA extends ProgramAnalysis {
 
     @Override
     public PointerAnalysisResult analyze() {
-        HeapModel heapModel = new AllocationSiteBasedModel(getOptions());
-        Solver solver = new Solver(heapModel);
+        HeapModel heapModel = newHeapModel();
+        PointsToSetFactory ptsFactory;
+        if ("bitset".equals(getOptions().getString("points-to-set"))) {
+            IndexedHeapModel indexedModel = new IndexedHeapModel(heapModel);
+            heapModel = indexedModel;
+            ptsFactory = PointsToSetFactory.bitSet(indexedModel);
+        } else {
+            ptsFactory = PointsToSetFactory.hybrid();
+        }
+        Solver solver = new Solver(getOptions(), heapModel, ptsFactory);
         solver.solve();
         CIPTAResult result = solver.getResult();
         new ResultProcessor(getOptions()).process(result);
         return result;
     }
+
+    /**
+     * Creates the heap model specified by option heap-model:
+     * "allocation-site" (default) or "type-merging".
+     */
+    private HeapModel newHeapModel() {
+        String heapModel = getOptions().getString("heap-model");
+        if (heapModel == null || heapModel.equals("allocation-site")) {
+            return new AllocationSiteBasedModel(getOptions());
+        } else if (heapModel.equals("type-merging")) {
+            return new TypeMergingHeapModel(getOptions());
+        } else {
+            throw new ConfigException("Unknown heap model: " + heapModel);
+        }
+    }
 }
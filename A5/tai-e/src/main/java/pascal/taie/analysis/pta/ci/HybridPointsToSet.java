@@ -0,0 +1,68 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Points-to set backed by a hybrid set of objects.
+ */
+class HybridPointsToSet extends PointsToSet {
+
+    private final Set<Obj> set = Sets.newHybridSet();
+
+    @Override
+    boolean addObject(Obj obj) {
+        return set.add(obj);
+    }
+
+    @Override
+    boolean contains(Obj obj) {
+        return set.contains(obj);
+    }
+
+    @Override
+    int size() {
+        return set.size();
+    }
+
+    @Override
+    Set<Obj> getObjects() {
+        return Collections.unmodifiableSet(set);
+    }
+
+    @Override
+    PointsToSet newSet() {
+        return new HybridPointsToSet();
+    }
+
+    @Override
+    public Iterator<Obj> iterator() {
+        return set.iterator();
+    }
+}
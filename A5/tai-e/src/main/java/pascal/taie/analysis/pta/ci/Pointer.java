@@ -22,6 +22,8 @@
 
 package pascal.taie.analysis.pta.ci;
 
+import pascal.taie.language.type.Type;
+
 /**
  * Represents pointers in pointer analysis and nodes in pointer flow graph.
  *
@@ -29,9 +31,41 @@ package pascal.taie.analysis.pta.ci;
  */
 abstract class Pointer {
 
-    private final PointsToSet pointsToSet = new PointsToSet();
+    /**
+     * Index of this pointer in the PFG, or -1 if it is not in a PFG.
+     */
+    private int index = -1;
+
+    private PointsToSet pointsToSet;
+
+    /**
+     * @return the index of this pointer, which is assigned by
+     * {@link PointerFlowGraph} when this pointer is created.
+     * The indexes of the pointers in a PFG are dense, i.e.,
+     * they are 0, 1, 2, ... in the order of creation.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return the declared type of this pointer.
+     */
+    abstract Type getType();
 
     PointsToSet getPointsToSet() {
         return pointsToSet;
     }
+
+    /**
+     * Sets the points-to set of this pointer. This is called by
+     * {@link PointerFlowGraph} when this pointer is created.
+     */
+    void setPointsToSet(PointsToSet pointsToSet) {
+        this.pointsToSet = pointsToSet;
+    }
 }
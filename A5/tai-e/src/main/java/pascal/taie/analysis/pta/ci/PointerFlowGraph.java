@@ -25,24 +25,47 @@ package pascal.taie.analysis.pta.ci;
 import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.language.classes.JField;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.IntAdjacencyList;
 import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.TwoKeyMap;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Represents pointer flow graph in pointer analysis.
+ * <p>
+ * An edge may carry a type filter, i.e., the declared type of its target,
+ * and only the objects that can be assigned to the filter flow along
+ * the edge. Edges without filters are called plain edges.
+ * <p>
+ * Each pointer is numbered by a dense index when it is created (see
+ * {@link Pointer#getIndex()}), and the edges are stored between the indexes
+ * in an {@link IntAdjacencyList}, so that adding edges and iterating
+ * successors in the hot loop of the solver do not allocate objects.
+ * <p>
+ * Pointers on a cycle of plain edges always have the same points-to set, thus such
+ * pointers can be merged via {@link #merge(Pointer, Pointer)}. A merged
+ * pointer keeps its identity (so that it can still be queried), but it
+ * shares the points-to set and the PFG edges of its representative.
  */
 class PointerFlowGraph {
 
     /**
-     * Set of all pointer in this PFG.
+     * List of all pointer in this PFG, indexed by their indexes.
      */
-    private final Set<Pointer> pointers = Sets.newSet();
+    private final List<Pointer> pointers = new ArrayList<>();
 
     /**
      * Map from Variable to Var node.
@@ -65,26 +88,119 @@ class PointerFlowGraph {
     private final Map<Obj, ArrayIndex> arrayIndexes = Maps.newMap();
 
     /**
-     * Map from a pointer (node) to its successors in PFG.
+     * Successors of each pointer (node) in PFG, by pointer indexes.
      */
-    private final MultiMap<Pointer, Pointer> successors = Maps.newMultiMap();
+    private final IntAdjacencyList successors = new IntAdjacencyList();
 
     /**
-     * Returns all pointers in this PFG.
+     * Distinct type filters of the PFG. The filter of an edge is stored
+     * as the label of the edge in {@link #successors}, i.e., its index in
+     * this list plus 1, and plain edges are labeled 0.
      */
-    Set<Pointer> getPointers() {
-        return Collections.unmodifiableSet(pointers);
+    private final List<Type> filterTypes = new ArrayList<>();
+
+    /**
+     * Map from each type filter to its label.
+     */
+    private final Map<Type, Integer> filterLabels = Maps.newMap();
+
+    /**
+     * Map from substituted variables to their equivalent variables.
+     */
+    private final Map<Var, Var> substitutes = Maps.newMap();
+
+    /**
+     * Var nodes of substituted variables that are not yet polled.
+     */
+    private final List<VarPtr> substitutedVarPtrs = new ArrayList<>();
+
+    /**
+     * Index of the representative of each pointer, indexed by pointer
+     * indexes. A pointer that has not been merged is its own representative.
+     */
+    private int[] representatives = new int[64];
+
+    /**
+     * Number of merged pointers.
+     */
+    private int mergedCount;
+
+    /**
+     * Map from a representative to the pointers merged into it.
+     */
+    private final MultiMap<Pointer, Pointer> mergedPointers = Maps.newMultiMap();
+
+    /**
+     * Creates points-to sets for new pointers.
+     */
+    private final PointsToSetFactory ptsFactory;
+
+    PointerFlowGraph(PointsToSetFactory ptsFactory) {
+        this.ptsFactory = ptsFactory;
+    }
+
+    /**
+     * Returns all pointers in this PFG, in the order of their indexes.
+     */
+    Collection<Pointer> getPointers() {
+        return Collections.unmodifiableList(pointers);
+    }
+
+    /**
+     * @return the pointer with given index.
+     */
+    Pointer getPointer(int index) {
+        return pointers.get(index);
+    }
+
+    /**
+     * @return the number of pointers in this PFG.
+     */
+    int getNumberOfPointers() {
+        return pointers.size();
     }
 
     /**
      * @return the corresponding Var node for the given variable.
      */
     VarPtr getVarPtr(Var var) {
-        return varPtrs.computeIfAbsent(var, v -> {
-            VarPtr varPtr = new VarPtr(v);
-            pointers.add(varPtr);
-            return varPtr;
-        });
+        VarPtr varPtr = varPtrs.get(var);
+        if (varPtr == null) {
+            varPtr = new VarPtr(var);
+            varPtrs.put(var, varPtr);
+            addPointer(varPtr);
+            Var equiv = substitutes.get(var);
+            if (equiv != null) {
+                merge(getRepresentative(getVarPtr(equiv)), varPtr);
+                substitutedVarPtrs.add(varPtr);
+            }
+        }
+        return varPtr;
+    }
+
+    /**
+     * Adds substituted variables. The Var node of a substituted variable
+     * is merged into the Var node of its equivalent variable when it is
+     * created.
+     *
+     * @param substitutes map from substituted variables to the variables
+     *                    they are equivalent to
+     */
+    void addSubstitutes(Map<Var, Var> substitutes) {
+        this.substitutes.putAll(substitutes);
+    }
+
+    /**
+     * @return the Var nodes of substituted variables that are created
+     * since last call of this method.
+     */
+    List<VarPtr> pollSubstitutedVarPtrs() {
+        if (substitutedVarPtrs.isEmpty()) {
+            return List.of();
+        }
+        List<VarPtr> result = List.copyOf(substitutedVarPtrs);
+        substitutedVarPtrs.clear();
+        return result;
     }
 
     /**
@@ -93,7 +209,7 @@ class PointerFlowGraph {
     StaticField getStaticField(JField field) {
         return staticFields.computeIfAbsent(field, f -> {
             StaticField staticField = new StaticField(f);
-            pointers.add(staticField);
+            addPointer(staticField);
             return staticField;
         });
     }
@@ -105,7 +221,7 @@ class PointerFlowGraph {
     InstanceField getInstanceField(Obj base, JField field) {
         return instanceFields.computeIfAbsent(base, field, (b, f) -> {
                 InstanceField instanceField = new InstanceField(b, f);
-                pointers.add(instanceField);
+                addPointer(instanceField);
                 return instanceField;
             });
     }
@@ -116,25 +232,298 @@ class PointerFlowGraph {
     ArrayIndex getArrayIndex(Obj array) {
         return arrayIndexes.computeIfAbsent(array, a -> {
             ArrayIndex arrayIndex = new ArrayIndex(a);
-            pointers.add(arrayIndex);
+            addPointer(arrayIndex);
             return arrayIndex;
         });
     }
 
+    private void addPointer(Pointer pointer) {
+        int index = pointers.size();
+        pointer.setIndex(index);
+        pointer.setPointsToSet(ptsFactory.make());
+        pointers.add(pointer);
+        if (index == representatives.length) {
+            representatives = Arrays.copyOf(representatives, index * 2);
+        }
+        representatives[index] = index;
+    }
+
     /**
-     * Adds an edge (source -> target) to this PFG.
+     * Adds an edge (source -> target) to this PFG. The edge is added
+     * between the representatives of the two pointers, and it is ignored
+     * if the two pointers have been merged. If the edge already exists
+     * with a different type filter, then the edge becomes a plain edge,
+     * as one filter cannot express both.
      *
+     * @param typeFilter the type filter of the edge, or null for plain edge
      * @return true if this PFG changed as a result of the call,
-     * otherwise false.
+     * i.e., more objects may flow along the edge, otherwise false.
+     */
+    boolean addEdge(Pointer source, Pointer target, Type typeFilter) {
+        int s = representatives[source.getIndex()];
+        int t = representatives[target.getIndex()];
+        return s != t && putEdge(s, t, typeFilter);
+    }
+
+    private boolean putEdge(int source, int target, Type typeFilter) {
+        return putEdge(source, target, getLabelOf(typeFilter));
+    }
+
+    private boolean putEdge(int source, int target, int label) {
+        if (successors.addEdge(source, target, label)) {
+            return true;
+        }
+        int oldLabel = successors.getLabel(source, target);
+        if (oldLabel != 0 && oldLabel != label) {
+            successors.setLabel(source, target, 0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the edge label of given type filter.
+     */
+    private int getLabelOf(Type typeFilter) {
+        if (typeFilter == null) {
+            return 0;
+        }
+        return filterLabels.computeIfAbsent(typeFilter, t -> {
+            filterTypes.add(t);
+            return filterTypes.size();
+        });
+    }
+
+    /**
+     * @return the type filter of the edge from given pointer to given
+     * successor (as returned by {@link #getSuccsOf(Pointer)}), or null
+     * if the edge is a plain edge.
+     */
+    Type getTypeFilter(Pointer source, Pointer succ) {
+        return getTypeFilter(representatives[source.getIndex()], succ.getIndex());
+    }
+
+    private Type getTypeFilter(int source, int target) {
+        if (filterTypes.isEmpty()) {
+            return null;
+        }
+        int label = successors.getLabel(source, target);
+        return label == 0 ? null : filterTypes.get(label - 1);
+    }
+
+    /**
+     * @return indexes of the successors of given pointer in the PFG.
+     * Only the first {@link #getOutDegreeOf(Pointer)} elements of the
+     * returned array are valid, and the array should not be modified.
+     * The array is invalidated by changes of the PFG, thus the caller
+     * should not add edges or merge pointers while iterating it.
+     * The successors are representatives, except that an edge to a merged
+     * pointer is kept if redirecting it would conflict with the type filter
+     * of an existing edge (the merged pointer shares the points-to set of
+     * its representative, thus such an edge is still valid).
+     */
+    int[] getSuccIndexesOf(Pointer pointer) {
+        int rep = representatives[pointer.getIndex()];
+        if (mergedCount > 0) {
+            redirectSuccs(rep);
+        }
+        return successors.getSuccs(rep);
+    }
+
+    /**
+     * @return the number of successors of given pointer in the PFG.
+     * This should be called after {@link #getSuccIndexesOf(Pointer)},
+     * which settles the successors of the pointer.
+     */
+    int getOutDegreeOf(Pointer pointer) {
+        return successors.getOutDegree(representatives[pointer.getIndex()]);
+    }
+
+    /**
+     * @return successors of given pointer in the PFG. This is a copy of
+     * the successors given by {@link #getSuccIndexesOf(Pointer)}, thus the
+     * caller can modify the PFG while iterating it.
+     */
+    List<Pointer> getSuccsOf(Pointer pointer) {
+        int[] succs = getSuccIndexesOf(pointer);
+        int n = getOutDegreeOf(pointer);
+        List<Pointer> result = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            result.add(pointers.get(succs[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Redirects the edges from given representative to merged pointers
+     * to the representatives of the merged pointers.
+     */
+    private void redirectSuccs(int rep) {
+        int[] succs = successors.getSuccs(rep);
+        int i = 0;
+        while (i < successors.getOutDegree(rep)) {
+            int succ = succs[i];
+            int succRep = representatives[succ];
+            if (succRep != succ) {
+                int label = successors.getLabel(rep, succ);
+                if (succRep == rep || !successors.hasEdge(rep, succRep)
+                        || label == successors.getLabel(rep, succRep)) {
+                    // removal moves the last successor to slot i
+                    successors.removeEdge(rep, succ);
+                    if (succRep != rep) {
+                        putEdge(rep, succRep, label);
+                        succs = successors.getSuccs(rep);
+                    }
+                    continue;
+                }
+            }
+            ++i;
+        }
+    }
+
+    /**
+     * @return the representative of given pointer, i.e., the pointer
+     * itself if it has not been merged, otherwise the pointer it was
+     * merged into.
+     */
+    Pointer getRepresentative(Pointer pointer) {
+        int index = pointer.getIndex();
+        int rep = representatives[index];
+        return rep == index ? pointer : pointers.get(rep);
+    }
+
+    /**
+     * @return the pointers merged into given representative,
+     * excluding the representative itself.
+     */
+    Set<Pointer> getMergedPointersOf(Pointer rep) {
+        return mergedPointers.get(rep);
+    }
+
+    /**
+     * Merges pointer {@code other} (and the pointers merged into it)
+     * into representative {@code rep}. After merging, they share the
+     * points-to set of {@code rep}, and the outgoing edges of
+     * {@code other} become the outgoing edges of {@code rep}.
+     * Both arguments must be representatives.
+     * <p>
+     * Note that this method does not update the points-to set of
+     * {@code rep} and propagate it to the successors (which may receive
+     * more objects if merging an edge drops its type filter),
+     * which is the responsibility of the caller.
+     */
+    void merge(Pointer rep, Pointer other) {
+        List<Pointer> merged = new ArrayList<>(mergedPointers.get(other));
+        merged.add(other);
+        mergedPointers.removeAll(other);
+        int r = rep.getIndex();
+        for (Pointer pointer : merged) {
+            if (representatives[pointer.getIndex()] == pointer.getIndex()) {
+                ++mergedCount;
+            }
+            representatives[pointer.getIndex()] = r;
+            mergedPointers.put(rep, pointer);
+            pointer.setPointsToSet(rep.getPointsToSet());
+        }
+        int o = other.getIndex();
+        int[] succs = successors.getSuccs(o);
+        int n = successors.getOutDegree(o);
+        int[] succsCopy = Arrays.copyOf(succs, n);
+        int[] labelsCopy = new int[n];
+        for (int i = 0; i < n; ++i) {
+            labelsCopy[i] = successors.getLabel(o, succsCopy[i]);
+        }
+        successors.removeSuccs(o);
+        for (int i = 0; i < n; ++i) {
+            int succRep = representatives[succsCopy[i]];
+            if (succRep != r) {
+                putEdge(r, succRep, labelsCopy[i]);
+            }
+        }
+    }
+
+    /**
+     * Searches the cycles of plain edges through both given pointers.
+     *
+     * @return the pointers (representatives) that are on the same cycle
+     * as {@code source} and {@code target}, or an empty set if there is
+     * no such cycle.
      */
-    boolean addEdge(Pointer source, Pointer target) {
-        return successors.put(source, target);
+    Set<Pointer> findCycle(Pointer source, Pointer target) {
+        source = getRepresentative(source);
+        target = getRepresentative(target);
+        // iterative Tarjan's algorithm from source, which only
+        // needs the strongly connected component containing source
+        Map<Pointer, Integer> indexes = Maps.newMap();
+        Map<Pointer, Integer> lowLinks = Maps.newMap();
+        Deque<Pointer> stack = new ArrayDeque<>();
+        Set<Pointer> onStack = Sets.newSet();
+        Deque<Pointer> callStack = new ArrayDeque<>();
+        Map<Pointer, Iterator<Pointer>> succIters = Maps.newMap();
+        indexes.put(source, 0);
+        lowLinks.put(source, 0);
+        stack.push(source);
+        onStack.add(source);
+        callStack.push(source);
+        succIters.put(source, getPlainSuccsOf(source).iterator());
+        while (!callStack.isEmpty()) {
+            Pointer v = callStack.peek();
+            Iterator<Pointer> it = succIters.get(v);
+            if (it.hasNext()) {
+                Pointer w = it.next();
+                if (!indexes.containsKey(w)) {
+                    int index = indexes.size();
+                    indexes.put(w, index);
+                    lowLinks.put(w, index);
+                    stack.push(w);
+                    onStack.add(w);
+                    callStack.push(w);
+                    succIters.put(w, getPlainSuccsOf(w).iterator());
+                } else if (onStack.contains(w)) {
+                    lowLinks.put(v, Math.min(lowLinks.get(v), indexes.get(w)));
+                }
+            } else {
+                callStack.pop();
+                if (!callStack.isEmpty()) {
+                    Pointer u = callStack.peek();
+                    lowLinks.put(u, Math.min(lowLinks.get(u), lowLinks.get(v)));
+                }
+                if (lowLinks.get(v).equals(indexes.get(v))) {
+                    Set<Pointer> component = Sets.newSet();
+                    Pointer w;
+                    do {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        component.add(w);
+                    } while (w != v);
+                    if (v == source) {
+                        return component.contains(target) ?
+                                component : Set.of();
+                    }
+                }
+            }
+        }
+        return Set.of();
     }
 
     /**
-     * @return successors of given pointer in the PFG.
+     * @return the representatives of the successors of given pointer
+     * via plain edges.
      */
-    Set<Pointer> getSuccsOf(Pointer pointer) {
-        return successors.get(pointer);
+    private List<Pointer> getPlainSuccsOf(Pointer pointer) {
+        int[] succIndexes = getSuccIndexesOf(pointer);
+        int n = getOutDegreeOf(pointer);
+        int p = pointer.getIndex();
+        List<Pointer> succs = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            int succ = succIndexes[i];
+            if (successors.getLabel(p, succ) == 0) {
+                int succRep = representatives[succ];
+                if (succRep != p) {
+                    succs.add(pointers.get(succRep));
+                }
+            }
+        }
+        return succs;
     }
 }
@@ -23,85 +23,131 @@
 package pascal.taie.analysis.pta.ci;
 
 import pascal.taie.analysis.pta.core.heap.Obj;
-import pascal.taie.util.collection.Sets;
 
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.stream.Stream;
 
 /**
  * Represents of points-to sets.
+ *
+ * @see HybridPointsToSet
+ * @see BitPointsToSet
+ * @see PointsToSetFactory
  */
-class PointsToSet implements Iterable<Obj> {
-
-    private final Set<Obj> set = Sets.newHybridSet();
+abstract class PointsToSet implements Iterable<Obj> {
 
     /**
-     * Constructs an empty points-to set.
+     * Adds an object to this set.
+     *
+     * @return true if this points-to set changed as a result of the call,
+     * otherwise false.
      */
-    PointsToSet() {
-    }
+    abstract boolean addObject(Obj obj);
 
     /**
-     * Constructs a points-to set containing one object.
+     * Adds all objects in the given set to this set.
+     *
+     * @return the objects that are added to this set, i.e., the objects in
+     * the given set but not in this set before the call.
      */
-    PointsToSet(Obj obj) {
-        addObject(obj);
+    PointsToSet addAllDiff(PointsToSet other) {
+        PointsToSet diff = newSet();
+        for (Obj obj : other) {
+            if (addObject(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
     }
 
     /**
-     * Adds an object to this set.
+     * Adds all objects in the given set to this set.
      *
      * @return true if this points-to set changed as a result of the call,
      * otherwise false.
      */
-    boolean addObject(Obj obj) {
-        return set.add(obj);
+    boolean addAll(PointsToSet other) {
+        boolean changed = false;
+        for (Obj obj : other) {
+            changed |= addObject(obj);
+        }
+        return changed;
+    }
+
+    /**
+     * @return a new set of the objects in this set but not in the given set.
+     */
+    PointsToSet diff(PointsToSet other) {
+        PointsToSet diff = newSet();
+        for (Obj obj : this) {
+            if (!other.contains(obj)) {
+                diff.addObject(obj);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * @return a new set of the objects in both this set and the given set.
+     */
+    PointsToSet intersect(PointsToSet other) {
+        PointsToSet result = newSet();
+        for (Obj obj : this) {
+            if (other.contains(obj)) {
+                result.addObject(obj);
+            }
+        }
+        return result;
     }
 
     /**
      * @return true if this points-to set contains the given object, otherwise false.
      */
-    boolean contains(Obj obj) {
-        return set.contains(obj);
+    abstract boolean contains(Obj obj);
+
+    /**
+     * @return true if this points-to set contains all objects in the given set.
+     */
+    boolean containsAll(PointsToSet other) {
+        for (Obj obj : other) {
+            if (!contains(obj)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * @return whether this set if empty.
      */
     boolean isEmpty() {
-        return set.isEmpty();
+        return size() == 0;
     }
 
     /**
      * @return the number of objects in this set.
      */
-    int size() {
-        return set.size();
-    }
+    abstract int size();
 
     /**
      * @return all objects in this set.
      */
     Stream<Obj> objects() {
-        return set.stream();
+        return getObjects().stream();
     }
 
     /**
      * @return all objects in this set.
      */
-    Set<Obj> getObjects() {
-        return Collections.unmodifiableSet(set);
-    }
+    abstract Set<Obj> getObjects();
 
-    @Override
-    public Iterator<Obj> iterator() {
-        return set.iterator();
-    }
+    /**
+     * @return a new empty points-to set of the same kind as this set.
+     */
+    abstract PointsToSet newSet();
 
     @Override
     public String toString() {
-        return set.toString();
+        return getObjects().toString();
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.analysis.pta.core.heap.IndexedHeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Creates the points-to sets used by pointer analysis.
+ */
+class PointsToSetFactory {
+
+    /**
+     * The heap model that indexes objects for bit-set-backed points-to sets,
+     * or null if hybrid-set-backed points-to sets are used.
+     */
+    private final IndexedHeapModel heapModel;
+
+    /**
+     * Masks of the types used to filter bit-set-backed points-to sets.
+     */
+    private final Map<Type, TypeMask> typeMasks = Maps.newConcurrentMap();
+
+    private PointsToSetFactory(IndexedHeapModel heapModel) {
+        this.heapModel = heapModel;
+    }
+
+    /**
+     * @return a factory of {@link HybridPointsToSet}.
+     */
+    static PointsToSetFactory hybrid() {
+        return new PointsToSetFactory(null);
+    }
+
+    /**
+     * @return a factory of {@link BitPointsToSet} over the objects
+     * indexed by given heap model.
+     */
+    static PointsToSetFactory bitSet(IndexedHeapModel heapModel) {
+        return new PointsToSetFactory(heapModel);
+    }
+
+    /**
+     * @return a new empty points-to set.
+     */
+    PointsToSet make() {
+        return heapModel == null ?
+                new HybridPointsToSet() : new BitPointsToSet(heapModel);
+    }
+
+    /**
+     * @return a new points-to set containing the given object.
+     */
+    PointsToSet make(Obj obj) {
+        PointsToSet pts = make();
+        pts.addObject(obj);
+        return pts;
+    }
+
+    /**
+     * Filters the objects in given set by type. For bit-set-backed
+     * points-to sets, the set is intersected word by word with the set
+     * of the indexed objects whose types are subtypes of given type,
+     * which is extended when more objects are indexed.
+     * This is thread-safe if no objects are indexed concurrently, which
+     * holds for parallel propagation, as objects are only created by
+     * the sequential phase.
+     *
+     * @param isSubtype checks if the second type is a subtype of the first
+     * @return a new set of the objects in given set whose types are
+     * subtypes of given type.
+     */
+    PointsToSet filter(PointsToSet pts, Type type,
+                       BiPredicate<Type, Type> isSubtype) {
+        if (heapModel == null) {
+            PointsToSet result = make();
+            for (Obj obj : pts) {
+                if (isSubtype.test(type, obj.getType())) {
+                    result.addObject(obj);
+                }
+            }
+            return result;
+        }
+        return pts.intersect(typeMasks
+                .computeIfAbsent(type, TypeMask::new)
+                .get(isSubtype));
+    }
+
+    /**
+     * The set of the indexed objects whose types are subtypes of a type.
+     */
+    private class TypeMask {
+
+        private final Type type;
+
+        private final PointsToSet objs = make();
+
+        /**
+         * Number of the indexed objects that have been checked.
+         */
+        private int checked;
+
+        private TypeMask(Type type) {
+            this.type = type;
+        }
+
+        private synchronized PointsToSet get(BiPredicate<Type, Type> isSubtype) {
+            for (int n = heapModel.getNumberOfObjs(); checked < n; ++checked) {
+                Obj obj = heapModel.getObj(checked);
+                if (isSubtype.test(type, obj.getType())) {
+                    objs.addObject(obj);
+                }
+            }
+            return objs;
+        }
+    }
+}
@@ -29,15 +29,44 @@ import pascal.taie.analysis.graph.callgraph.CallGraphs;
 import pascal.taie.analysis.graph.callgraph.CallKind;
 import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
 import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.pta.core.CheckpointReader;
+import pascal.taie.analysis.pta.core.CheckpointWriter;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.IndexedHeapModel;
 import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.exp.CastExp;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
 import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.ReferenceType;
 import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.IntAdjacencyList;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 
 class Solver {
@@ -46,6 +75,8 @@ class Solver {
 
     private final HeapModel heapModel;
 
+    private final PointsToSetFactory ptsFactory;
+
     private DefaultCallGraph callGraph;
 
     private PointerFlowGraph pointerFlowGraph;
@@ -56,8 +87,153 @@ class Solver {
 
     private ClassHierarchy hierarchy;
 
-    Solver(HeapModel heapModel) {
+    private TypeSystem typeSystem;
+
+    /**
+     * Cache of subtype checks, from supertype to subtype to result.
+     */
+    private final ConcurrentMap<Type, ConcurrentMap<Type, Boolean>> subtypes =
+            Maps.newConcurrentMap();
+
+    /**
+     * PFG edges that have been checked by lazy cycle detection,
+     * by pointer indexes.
+     */
+    private final IntAdjacencyList checkedEdges = new IntAdjacencyList();
+
+    /**
+     * Number of variables merged by variable substitution.
+     */
+    private int substitutedVars;
+
+    /**
+     * Number of threads used to propagate points-to sets.
+     */
+    private final int parallelism;
+
+    /**
+     * Executes parallel propagation, or null if parallelism is 1.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Whether PFG edges are filtered by the declared types of their targets.
+     */
+    private final boolean filterTypes;
+
+    /**
+     * Name of the scheduling policy of work list.
+     *
+     * @see WorkListPolicy#get(String, PointerFlowGraph)
+     */
+    private final String workListPolicy;
+
+    /**
+     * The checkpoint file, or null if checkpointing is disabled.
+     */
+    private final File checkpointFile;
+
+    /**
+     * Interval between checkpoints, in nanoseconds.
+     */
+    private final long checkpointInterval;
+
+    /**
+     * Time of last checkpoint, by {@link System#nanoTime()}.
+     */
+    private long lastCheckpoint;
+
+    /**
+     * Identifies the heap model and its options in checkpoint keys.
+     */
+    private final String heapModelKey;
+
+    /**
+     * Whether the analysis is resumed from a checkpoint.
+     */
+    private boolean resumed;
+
+    /**
+     * Number of polled work-list entries after which the solver stops,
+     * or -1 if the solver runs to the fixed point.
+     *
+     * @see #setStopAfter(int)
+     */
+    private int stopAfter = -1;
+
+    /**
+     * Number of work-list entries polled by the last {@link #solve()}.
+     */
+    private int polledEntries;
+
+    /**
+     * Whether the last {@link #solve()} stopped before the fixed point.
+     */
+    private boolean stopped;
+
+    /**
+     * Supported options:
+     * <ul>
+     *     <li>parallelism: number of threads for propagation (default 1)</li>
+     *     <li>type-filter: whether PFG edges are filtered by types (default false)</li>
+     *     <li>work-list: scheduling policy of work list (default fifo)</li>
+     *     <li>checkpoint: path of the checkpoint file. If given, the analysis
+     *     resumes from the checkpoint (if it is valid), writes checkpoints
+     *     periodically, and writes a final checkpoint after solving.</li>
+     *     <li>checkpoint-interval: seconds between checkpoints (default 600)</li>
+     * </ul>
+     */
+    Solver(AnalysisOptions options, HeapModel heapModel,
+           PointsToSetFactory ptsFactory) {
+        this.parallelism = options.get("parallelism") == null ?
+                1 : options.getInt("parallelism");
+        if (parallelism < 1) {
+            throw new ConfigException(
+                    "parallelism must be positive, given: " + parallelism);
+        }
+        this.filterTypes = options.getBooleanOrDefault("type-filter", false);
+        this.workListPolicy = options.getString("work-list");
+        String checkpoint = options.getString("checkpoint");
+        this.checkpointFile = checkpoint == null ? null : new File(checkpoint);
+        int interval = options.get("checkpoint-interval") == null ?
+                600 : options.getInt("checkpoint-interval");
+        if (interval < 1) {
+            throw new ConfigException(
+                    "checkpoint-interval must be positive, given: " + interval);
+        }
+        this.checkpointInterval = TimeUnit.SECONDS.toNanos(interval);
         this.heapModel = heapModel;
+        this.heapModelKey = heapModel instanceof IndexedHeapModel indexedModel ?
+                heapModel.getClass().getName() + "(" + CheckpointWriter.getHeapModelKey(
+                        indexedModel.getModel(), options) + ")" :
+                CheckpointWriter.getHeapModelKey(heapModel, options);
+        this.ptsFactory = ptsFactory;
+    }
+
+    /**
+     * @return true if the last {@link #solve()} resumed from a checkpoint.
+     */
+    boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Makes {@link #solve()} stop after polling given number of work-list
+     * entries, if the work list is not empty yet, and then save a checkpoint
+     * (if enabled) with the pending entries. In parallel mode, the solver
+     * stops after the round that reaches the number. This is for testing
+     * resuming from the checkpoints taken in the middle of solving.
+     */
+    void setStopAfter(int entries) {
+        this.stopAfter = entries;
+    }
+
+    /**
+     * @return true if the last {@link #solve()} stopped before the fixed
+     * point, as requested by {@link #setStopAfter(int)}.
+     */
+    boolean isStopped() {
+        return stopped;
     }
 
     /**
@@ -65,18 +241,42 @@ class Solver {
      */
     void solve() {
         initialize();
-        analyze();
+        if (parallelism > 1) {
+            executor = Executors.newFixedThreadPool(parallelism);
+            try {
+                analyzeInParallel();
+            } finally {
+                executor.shutdownNow();
+                executor = null;
+            }
+        } else {
+            analyze();
+        }
+        if(checkpointFile != null) {
+            saveCheckpoint();
+        }
+        logger.info("{} variables are substituted by equivalent variables",
+                substitutedVars);
     }
 
     /**
      * Initializes pointer analysis.
      */
     private void initialize() {
-        workList = new WorkList();
-        pointerFlowGraph = new PointerFlowGraph();
+        pointerFlowGraph = new PointerFlowGraph(ptsFactory);
+        workList = new WorkList(WorkListPolicy.get(workListPolicy, pointerFlowGraph));
         callGraph = new DefaultCallGraph();
         stmtProcessor = new StmtProcessor();
         hierarchy = World.get().getClassHierarchy();
+        typeSystem = World.get().getTypeSystem();
+        lastCheckpoint = System.nanoTime();
+        polledEntries = 0;
+        stopped = false;
+        resumed = false;
+        if(checkpointFile != null && resume()) {
+            resumed = true;
+            return;
+        }
         // initialize main method
         JMethod main = World.get().getMainMethod();
         callGraph.addEntryMethod(main);
@@ -91,12 +291,26 @@ class Solver {
         // 判断 callGraph 中是否已经存在该方法(其中 RM 已经存在于 callGraph)
         if(!callGraph.contains(method)) { // if m ∉ RM
             callGraph.addReachableMethod(method); // add m to RM
+            substituteVars(method); // 先合并指针等价的变量, 再处理语句
             for(Stmt s: method.getIR().getStmts()) { // 遍历该方法中的所有语句
                 s.accept(stmtProcessor); // 使用访问者模式来处理
             }
         }
     }
 
+    /**
+     * Registers the pointer-equivalent variables in given method to the PFG,
+     * so that each group of equivalent variables shares one PFG node.
+     * The pointers of substituted variables are merged when they are created,
+     * thus no pointer is created only for substitution.
+     *
+     * @see VariableSubstitution
+     */
+    private void substituteVars(JMethod method) {
+        pointerFlowGraph.addSubstitutes(VariableSubstitution.compute(
+                method.getIR(), filterTypes ? typeSystem : null));
+    }
+
     /**
      * Processes statements in new reachable methods.
      */
@@ -110,7 +324,7 @@ class Solver {
         public Void visit(New stmt) {
             Obj obj = heapModel.getObj(stmt); // 从堆抽象中获取创建点对应的抽象对象
             VarPtr l = pointerFlowGraph.getVarPtr(stmt.getLValue()); // // 获取左值对应的变量指针
-            workList.addEntry(l, new PointsToSet(obj)); // add (x, {o}) to WL, x->o
+            workList.addEntry(l, ptsFactory.make(obj)); // add (x, {o}) to WL, x->o
             return null; // 要求返回值为null
         }
 
@@ -125,6 +339,21 @@ class Solver {
             return null; // 要求返回值为null
         }
 
+        /**
+         * 处理 Cast 语句: x = (T) y, 添加边 y -> x, 开启类型过滤时该边由类型 T 过滤
+         */
+        @Override
+        public Void visit(Cast stmt) {
+            CastExp cast = stmt.getRValue();
+            // 只处理引用类型的转换, 两种模式下都添加边, 类型过滤由 addPFGEdge 决定
+            if(cast.getCastType() instanceof ReferenceType) {
+                VarPtr l = pointerFlowGraph.getVarPtr(stmt.getLValue()); // 获取左值对应的变量指针
+                VarPtr r = pointerFlowGraph.getVarPtr(cast.getValue()); // 获取被转换的变量指针
+                addPFGEdge(r, l); // add (r, l) to PFG
+            }
+            return null; // 要求返回值为null
+        }
+
         /**
          * 处理数组 load 语句: x = a[i]
          */
@@ -201,88 +430,423 @@ class Solver {
 
     /**
      * Adds an edge "source -> target" to the PFG.
+     * The edge is filtered by the declared type of target,
+     * unless all objects of source are assignable to the type.
      */
     private void addPFGEdge(Pointer source, Pointer target) {
         // TODO - finish me
-        if(pointerFlowGraph.addEdge(source, target)) { // 如果添加成功 (之前没有这条边)
+        Type typeFilter = getTypeFilter(source, target); // 获取边的类型过滤
+        if(pointerFlowGraph.addEdge(source, target, typeFilter)) { // 如果添加成功 (之前没有这条边)
             PointsToSet pt = source.getPointsToSet(); // 获取 source 的 pointsToSet
             if(!pt.isEmpty()) { // 如果 pt(s) 不为空
-                workList.addEntry(target, pt); // add (t, pt(s)) to WL
+                addEdgeEntry(source, target, pt); // add (t, pt(s)) to WL
             }
         }
     }
 
+    /**
+     * @return the type filter for the edge "source -> target", i.e.,
+     * the declared type of target, or null if type filtering is disabled
+     * or the objects pointed by source are always assignable to the type.
+     */
+    private Type getTypeFilter(Pointer source, Pointer target) {
+        if(!filterTypes) {
+            return null;
+        }
+        Type type = target.getType();
+        return type instanceof ReferenceType &&
+                !isSubtype(type, source.getType()) ? type : null;
+    }
+
+    /**
+     * Adds the objects that can flow along the PFG edge from source to
+     * succ, i.e., the objects that pass the type filter of the edge,
+     * to the work list.
+     */
+    private void addEdgeEntry(Pointer source, Pointer succ, PointsToSet pts) {
+        PointsToSet objs = filter(pts, pointerFlowGraph.getTypeFilter(source, succ));
+        if(!objs.isEmpty()) {
+            workList.addEntry(succ, objs);
+        }
+    }
+
+    /**
+     * @return the objects in pts that pass the given type filter,
+     * or pts itself if the filter is null.
+     */
+    private PointsToSet filter(PointsToSet pts, Type typeFilter) {
+        return typeFilter == null ? pts :
+                ptsFactory.filter(pts, typeFilter, this::isSubtype);
+    }
+
+    /**
+     * Fast subtype check by caching the results of {@link TypeSystem}.
+     * This is thread-safe, as it is also used by parallel propagation.
+     */
+    private boolean isSubtype(Type supertype, Type subtype) {
+        if(supertype.equals(subtype)) {
+            return true;
+        }
+        return subtypes.computeIfAbsent(supertype, t -> Maps.newConcurrentMap())
+                .computeIfAbsent(subtype, t -> typeSystem.isSubtype(supertype, t));
+    }
+
     /**
      * Processes work-list entries until the work-list is empty.
      */
     private void analyze() {
         // TODO - finish me
+        processSubstitutedPointers();
         while(!workList.isEmpty()) { // 如果 workList 不为空
             WorkList.Entry entry = workList.pollEntry(); // 获取 workList 中的第一个元素
-            Pointer ptr = entry.pointer(); // 获取 entry 的指针
+            // 获取 entry 的指针, 若该指针已被合并到环中, 则使用环的代表指针
+            Pointer ptr = pointerFlowGraph.getRepresentative(entry.pointer());
             PointsToSet pts = entry.pointsToSet(); // 获取 entry 的 pointsToSet
             PointsToSet delta = propagate(ptr, pts); // 进行传播, 并返回两者的差集
+            if(!delta.isEmpty()) {
+                processPointerAndMerged(ptr, delta);
+                detectCycles(ptr);
+            }
+            processSubstitutedPointers();
+            saveCheckpointIfDue();
+            if(shouldStop(1)) {
+                return;
+            }
+        }
+    }
 
-            if(ptr instanceof VarPtr varPtr) { // 如果 ptr 是变量指针
-                Var x  = varPtr.getVar(); // 获取 ptr 对应的变量 x
-                for(Obj obj: delta) { // 遍历 delta 中的对象
-                    // 处理实例的 storeFields, x.f = y
-                    for(StoreField storeField: x.getStoreFields()) {
-                        JField field = storeField.getFieldRef().resolve(); // 获取 storeField 语句的 store 字段
-                        InstanceField  instanceField = pointerFlowGraph.getInstanceField(obj, field); // 获取 obj 对应的实例字段指针
-                        VarPtr r = pointerFlowGraph.getVarPtr(storeField.getRValue()); // 获取右值对应的变量指针
-                        addPFGEdge(r, instanceField); // 添加边到 PFG
-                    }
-                    // 处理实例的 loadFields, y = x.f
-                    for(LoadField loadField: x.getLoadFields()) {
-                        JField field = loadField.getFieldRef().resolve(); // 获取 loadField 语句的 load 字段
-                        InstanceField instanceField = pointerFlowGraph.getInstanceField(obj, field); // 获取 obj 对应的实例字段指针
-                        VarPtr l = pointerFlowGraph.getVarPtr(loadField.getLValue()); // 获取左值对应的变量指针
-                        addPFGEdge(instanceField, l); // 添加边到 PFG
-                    }
-                    // 处理数组的 storeArrays, x[i] = y
-                    for(StoreArray storeArray: x.getStoreArrays()) {
-                        ArrayIndex arrayIndex = pointerFlowGraph.getArrayIndex(obj); // 获取 obj 对应的数组索引指针
-                        VarPtr r = pointerFlowGraph.getVarPtr(storeArray.getRValue()); // 获取右值对应的变量指针
-                        addPFGEdge(r, arrayIndex); // 添加边到 PFG
-                    }
-                    // 处理数组的 loadArrays, y = x[i]
-                    for(LoadArray loadArray: x.getLoadArrays()) {
-                        ArrayIndex arrayIndex = pointerFlowGraph.getArrayIndex(obj); // 获取 obj 对应的数组索引指针
-                        VarPtr l = pointerFlowGraph.getVarPtr(loadArray.getLValue()); // 获取左值对应的变量指针
-                        addPFGEdge(arrayIndex, l); // 添加边到 PFG
+    /**
+     * Processes work-list entries in rounds until the work-list is empty.
+     * <p>
+     * Each round takes all entries in the work-list and runs three phases:
+     * <ol>
+     *     <li>Union: the pending objects of each pointer are added to its
+     *     points-to set. Entries are grouped by representative, so that
+     *     each points-to set is updated by exactly one thread.</li>
+     *     <li>Propagation: the new objects are propagated to PFG successors
+     *     (filtered by the types of edges).
+     *     Successors are partitioned among threads, and each thread merges
+     *     the objects for its own successors into its own pending sets, thus
+     *     no locks are needed.</li>
+     *     <li>Processing: statements on the variables, call graph updates
+     *     and cycle detection, which modify the PFG and the call graph,
+     *     are processed sequentially in a fixed order.</li>
+     * </ol>
+     * The PFG, the call graph and the points-to sets are only read
+     * by the parallel phases, and they are only written by either the
+     * owner thread or the sequential phase. The analysis is monotone,
+     * thus it reaches the same fixed point as {@link #analyze()}.
+     */
+    private void analyzeInParallel() {
+        processSubstitutedPointers();
+        while(!workList.isEmpty()) {
+            // 将本轮的所有条目按代表指针分组
+            Map<Pointer, PointsToSet> grouped = new LinkedHashMap<>();
+            int polled = 0;
+            while(!workList.isEmpty()) {
+                WorkList.Entry entry = workList.pollEntry();
+                ++polled;
+                Pointer ptr = pointerFlowGraph.getRepresentative(entry.pointer());
+                PointsToSet pts = grouped.get(ptr);
+                if(pts == null) {
+                    grouped.put(ptr, entry.pointsToSet());
+                } else {
+                    pts.addAll(entry.pointsToSet());
+                }
+            }
+            List<Pointer> pointers = new ArrayList<>(grouped.keySet());
+            List<PointsToSet> sets = new ArrayList<>(grouped.values());
+            int size = pointers.size();
+            // 1. 并行计算各指针的 delta, 每个 points-to set 只由一个线程更新
+            PointsToSet[] deltas = new PointsToSet[size];
+            runInParallel(k -> {
+                for(int i = k; i < size; i += parallelism) {
+                    deltas[i] = pointers.get(i).getPointsToSet()
+                            .addAllDiff(sets.get(i));
+                }
+            });
+            // 后继集合的惰性整理会修改 PFG, 故先顺序获取
+            List<List<Pointer>> succs = new ArrayList<>(size);
+            for(int i = 0; i < size; ++i) {
+                succs.add(deltas[i].isEmpty() ? List.of() :
+                        pointerFlowGraph.getSuccsOf(pointers.get(i)));
+            }
+            // 2. 并行传播 delta, 每个线程只负责属于自己分区的后继节点
+            List<Map<Pointer, PointsToSet>> outboxes = new ArrayList<>(parallelism);
+            for(int k = 0; k < parallelism; ++k) {
+                outboxes.add(new LinkedHashMap<>());
+            }
+            runInParallel(k -> {
+                Map<Pointer, PointsToSet> outbox = outboxes.get(k);
+                for(int i = 0; i < size; ++i) {
+                    for(Pointer s: succs.get(i)) {
+                        if(getPartition(s) == k) {
+                            // 按位过滤类型并计算 s 尚未包含的对象
+                            PointsToSet diff = filter(deltas[i],
+                                    pointerFlowGraph.getTypeFilter(pointers.get(i), s))
+                                    .diff(s.getPointsToSet());
+                            if(!diff.isEmpty()) {
+                                PointsToSet pending = outbox.get(s);
+                                if(pending == null) {
+                                    outbox.put(s, diff);
+                                } else {
+                                    pending.addAll(diff);
+                                }
+                            }
+                        }
                     }
-                    processCall(x, obj); // 处理 x 调用的实例方法
+                }
+            });
+            outboxes.forEach(outbox -> outbox.forEach(workList::addEntry));
+            // 3. 顺序处理语句和调用; 处理语句只会将新建的指针合并到已有指针,
+            //    不会合并本轮的指针, 故先处理完所有语句再检测环
+            for(int i = 0; i < size; ++i) {
+                if(!deltas[i].isEmpty()) {
+                    processPointerAndMerged(pointers.get(i), deltas[i]);
+                }
+            }
+            for(int i = 0; i < size; ++i) {
+                Pointer ptr = pointers.get(i);
+                if(!deltas[i].isEmpty() &&
+                        pointerFlowGraph.getRepresentative(ptr) == ptr) {
+                    detectCycles(ptr);
+                }
+            }
+            processSubstitutedPointers();
+            saveCheckpointIfDue();
+            if(shouldStop(polled)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts the polled work-list entries, and decides whether the solver
+     * should stop before the fixed point.
+     *
+     * @see #setStopAfter(int)
+     */
+    private boolean shouldStop(int polled) {
+        polledEntries += polled;
+        if(stopAfter >= 0 && polledEntries >= stopAfter && !workList.isEmpty()) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * @return the partition (i.e., the thread) that owns given pointer
+     * during parallel propagation.
+     */
+    private int getPartition(Pointer pointer) {
+        int h = pointer.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), parallelism);
+    }
+
+    /**
+     * Runs the task for each partition 0, ..., parallelism-1 in parallel,
+     * and waits for all of them to finish.
+     */
+    private void runInParallel(IntConsumer task) {
+        List<Future<?>> futures = new ArrayList<>(parallelism);
+        for(int k = 0; k < parallelism; ++k) {
+            int partition = k;
+            futures.add(executor.submit(() -> task.accept(partition)));
+        }
+        try {
+            for(Future<?> future: futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisException("Parallel pointer analysis is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new AnalysisException(e.getCause());
+        }
+    }
+
+    /**
+     * Processes given representative and the pointers merged into it,
+     * which share the new objects.
+     */
+    private void processPointerAndMerged(Pointer rep, PointsToSet delta) {
+        processPointer(rep, delta);
+        Set<Pointer> merged = pointerFlowGraph.getMergedPointersOf(rep);
+        if(!merged.isEmpty()) {
+            // 处理语句时可能有新建的指针被合并进来, 它们由 processSubstitutedPointers 处理
+            for(Pointer p: List.copyOf(merged)) {
+                processPointer(p, delta);
+            }
+        }
+    }
+
+    /**
+     * Processes the pointers of substituted variables that are created
+     * (and merged into the pointers of their equivalent variables) since
+     * last call, as they share the objects already in the points-to sets.
+     */
+    private void processSubstitutedPointers() {
+        List<VarPtr> varPtrs;
+        while(!(varPtrs = pointerFlowGraph.pollSubstitutedVarPtrs()).isEmpty()) {
+            for(VarPtr varPtr: varPtrs) {
+                ++substitutedVars;
+                PointsToSet pts = varPtr.getPointsToSet();
+                if(!pts.isEmpty()) {
+                    processPointer(varPtr, pts);
                 }
             }
         }
     }
 
+    /**
+     * Processes the field accesses, array accesses and instance calls
+     * on the variable of given pointer when its points-to set changes.
+     *
+     * @param pointer the pointer whose points-to set changes
+     * @param delta the new objects pointed by the pointer
+     */
+    private void processPointer(Pointer pointer, PointsToSet delta) {
+        if(pointer instanceof VarPtr varPtr) { // 如果 ptr 是变量指针
+            Var x  = varPtr.getVar(); // 获取 ptr 对应的变量 x
+            for(Obj obj: delta) { // 遍历 delta 中的对象
+                // 处理实例的 storeFields, x.f = y
+                for(StoreField storeField: x.getStoreFields()) {
+                    JField field = storeField.getFieldRef().resolve(); // 获取 storeField 语句的 store 字段
+                    InstanceField  instanceField = pointerFlowGraph.getInstanceField(obj, field); // 获取 obj 对应的实例字段指针
+                    VarPtr r = pointerFlowGraph.getVarPtr(storeField.getRValue()); // 获取右值对应的变量指针
+                    addPFGEdge(r, instanceField); // 添加边到 PFG
+                }
+                // 处理实例的 loadFields, y = x.f
+                for(LoadField loadField: x.getLoadFields()) {
+                    JField field = loadField.getFieldRef().resolve(); // 获取 loadField 语句的 load 字段
+                    InstanceField instanceField = pointerFlowGraph.getInstanceField(obj, field); // 获取 obj 对应的实例字段指针
+                    VarPtr l = pointerFlowGraph.getVarPtr(loadField.getLValue()); // 获取左值对应的变量指针
+                    addPFGEdge(instanceField, l); // 添加边到 PFG
+                }
+                // 处理数组的 storeArrays, x[i] = y
+                for(StoreArray storeArray: x.getStoreArrays()) {
+                    ArrayIndex arrayIndex = pointerFlowGraph.getArrayIndex(obj); // 获取 obj 对应的数组索引指针
+                    VarPtr r = pointerFlowGraph.getVarPtr(storeArray.getRValue()); // 获取右值对应的变量指针
+                    addPFGEdge(r, arrayIndex); // 添加边到 PFG
+                }
+                // 处理数组的 loadArrays, y = x[i]
+                for(LoadArray loadArray: x.getLoadArrays()) {
+                    ArrayIndex arrayIndex = pointerFlowGraph.getArrayIndex(obj); // 获取 obj 对应的数组索引指针
+                    VarPtr l = pointerFlowGraph.getVarPtr(loadArray.getLValue()); // 获取左值对应的变量指针
+                    addPFGEdge(arrayIndex, l); // 添加边到 PFG
+                }
+                processCall(x, obj); // 处理 x 调用的实例方法
+            }
+        }
+    }
+
     /**
      * Propagates pointsToSet to pt(pointer) and its PFG successors,
      * returns the difference set of pointsToSet and pt(pointer).
+     * Only the difference set is propagated to the successors, as the other
+     * objects have been propagated when they were added to pt(pointer),
+     * thus each object flows through each PFG edge only once.
      */
     private PointsToSet propagate(Pointer pointer, PointsToSet pointsToSet) {
         // TODO - finish me
         // 计算 pts 和 pt(n) 的 delta 差集, 同时更新 pt(n), 对应并集操作
-        PointsToSet ptn = pointer.getPointsToSet(); // pt(n)
-        PointsToSet delta = new PointsToSet();
-        for(Obj obj: pointsToSet) {
-            if(!ptn.contains(obj)) {
-                delta.addObject(obj); // 差集
-                ptn.addObject(obj); // 并集
-            }
-        }
+        PointsToSet delta = pointer.getPointsToSet().addAllDiff(pointsToSet);
         //  如果差集不为空
         if(!delta.isEmpty()) {
-            // 遍历 pointer 的后继节点
-            for(Pointer s: pointerFlowGraph.getSuccsOf(pointer)) {
-                workList.addEntry(s, pointsToSet); // add (s, pts) to WL
+            // 遍历 pointer 的后继节点, 按编号遍历以避免创建对象
+            int[] succs = pointerFlowGraph.getSuccIndexesOf(pointer);
+            for(int i = 0, n = pointerFlowGraph.getOutDegreeOf(pointer); i < n; ++i) {
+                Pointer s = pointerFlowGraph.getPointer(succs[i]);
+                addEdgeEntry(pointer, s, delta); // add (s, delta) to WL, 过滤掉类型不兼容的对象
             }
         }
         return delta;
     }
 
+    /**
+     * Lazy cycle detection: if pt(pointer) is equal to the points-to set
+     * of its successor, then the edge probably lies on a PFG cycle, thus
+     * we search a cycle through the edge and collapse it. Each edge is
+     * checked at most once to avoid fruitless searches.
+     */
+    private void detectCycles(Pointer pointer) {
+        PointsToSet pts = pointer.getPointsToSet();
+        List<Pointer> candidates = null;
+        // 按编号遍历后继节点, 只有存在候选边时才创建列表 (合并会修改 PFG, 故先收集)
+        int[] succs = pointerFlowGraph.getSuccIndexesOf(pointer);
+        for(int i = 0, n = pointerFlowGraph.getOutDegreeOf(pointer); i < n; ++i) {
+            Pointer s = pointerFlowGraph.getPointer(succs[i]);
+            if(isEqual(pts, s.getPointsToSet()) && checkedEdges.addEdge(pointer.getIndex(), succs[i])) {
+                if(candidates == null) {
+                    candidates = new ArrayList<>();
+                }
+                candidates.add(s);
+            }
+        }
+        if(candidates != null) {
+            for(Pointer s: candidates) {
+                // 之前的合并可能已经将这条边上的指针合并了
+                if(pointerFlowGraph.getRepresentative(s) !=
+                        pointerFlowGraph.getRepresentative(pointer)) {
+                    Set<Pointer> cycle = pointerFlowGraph.findCycle(s, pointer);
+                    if(!cycle.isEmpty()) {
+                        collapse(pointerFlowGraph.getRepresentative(pointer), cycle);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isEqual(PointsToSet pts1, PointsToSet pts2) {
+        return pts1.size() == pts2.size() && pts1.containsAll(pts2);
+    }
+
+    /**
+     * Collapses the given pointers, which must have the same points-to
+     * set after solving (e.g., the pointers on a PFG cycle), into the
+     * representative.
+     * The objects that are new to any merged pointer (including
+     * the representative) are processed as if they were propagated
+     * to that pointer.
+     */
+    private void collapse(Pointer rep, Set<Pointer> cycle) {
+        PointsToSet repPts = rep.getPointsToSet();
+        List<Pointer> repMembers = new ArrayList<>(
+                pointerFlowGraph.getMergedPointersOf(rep));
+        repMembers.add(rep);
+        // 合并前各指针的 points-to set 及合并到它们的指针
+        Map<Pointer, PointsToSet> oldSets = Maps.newMap();
+        Map<Pointer, List<Pointer>> oldMembers = Maps.newMap();
+        PointsToSet repDelta = repPts.newSet();
+        for(Pointer p: cycle) {
+            if(p != rep) {
+                PointsToSet oldSet = p.getPointsToSet();
+                oldSets.put(p, oldSet);
+                List<Pointer> members = new ArrayList<>(
+                        pointerFlowGraph.getMergedPointersOf(p));
+                members.add(p);
+                oldMembers.put(p, members);
+                repDelta.addAllDiff(repPts.addAllDiff(oldSet));
+                pointerFlowGraph.merge(rep, p);
+            }
+        }
+        // 代表指针原有的指针需要处理新合并进来的对象
+        if(!repDelta.isEmpty()) {
+            repMembers.forEach(member -> processPointer(member, repDelta));
+        }
+        // 被合并的指针需要处理它们原本没有的对象
+        oldSets.forEach((p, oldSet) -> {
+            PointsToSet delta = oldSet.addAllDiff(repPts);
+            if(!delta.isEmpty()) {
+                oldMembers.get(p).forEach(member -> processPointer(member, delta));
+            }
+        });
+        // 合并后的后继节点需要接收合并后的 points-to set
+        for(Pointer s: pointerFlowGraph.getSuccsOf(rep)) {
+            addEdgeEntry(rep, s, repPts);
+        }
+    }
+
     /**
      * Processes instance calls when points-to set of the receiver variable changes.
      *
@@ -295,7 +859,7 @@ class Solver {
         for(Invoke invoke: var.getInvokes()) { // 遍历实例调用
             JMethod m = resolveCallee(recv, invoke);
             VarPtr m_this = pointerFlowGraph.getVarPtr(m.getIR().getThis()); // 获取 m 的 this 指针
-            workList.addEntry(m_this, new PointsToSet(recv)); // add (m_this, {recv}) to WL
+            workList.addEntry(m_this, ptsFactory.make(recv)); // add (m_this, {recv}) to WL
             Edge edge = null;
             // 根据调用类型创建边
             if(invoke.isInterface()) { // 处理接口调用
@@ -343,6 +907,244 @@ class Solver {
         return CallGraphs.resolveCallee(type, callSite);
     }
 
+    /**
+     * @return the key of checkpoints, which identifies the entry method
+     * and the configurations that affect the results of the analysis.
+     */
+    private String getCheckpointKey() {
+        return "cipta;" + World.get().getMainMethod().getSignature()
+                + ";" + heapModelKey
+                + ";type-filter=" + filterTypes;
+    }
+
+    private void saveCheckpointIfDue() {
+        if(checkpointFile != null &&
+                System.nanoTime() - lastCheckpoint >= checkpointInterval) {
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * Writes current state of the analysis to the checkpoint file.
+     * The sections after the header of {@link CheckpointWriter} are:
+     * <pre>
+     * entry methods:  int count, then methods
+     * call edges:     int count, then (invoke call site, byte kind, method callee)
+     * pointers:       int count, then (byte kind, elements of the pointer)
+     *                 in the order of pointer indexes
+     * representatives: index of the representative of each pointer
+     * points-to sets: for each representative, int count, then objects
+     * PFG edges:      for each representative, int count,
+     *                 then (int successor index, type filter or null)
+     * work list:      int count, then (int pointer index, int count, objects)
+     * int             number of substituted variables
+     * </pre>
+     */
+    private void saveCheckpoint() {
+        logger.info("Saving pointer analysis checkpoint to {} ...", checkpointFile);
+        // 暂时取出 work list 中的所有条目, 写完后再放回
+        List<WorkList.Entry> entries = new ArrayList<>();
+        while(!workList.isEmpty()) {
+            entries.add(workList.pollEntry());
+        }
+        try(CheckpointWriter writer = new CheckpointWriter(checkpointFile,
+                getCheckpointKey(), callGraph.reachableMethods().toList(),
+                getClassesOfObjs(entries))) {
+            List<JMethod> entryMethods = callGraph.entryMethods().toList();
+            writer.writeInt(entryMethods.size());
+            for(JMethod m: entryMethods) {
+                writer.writeMethod(m);
+            }
+            writer.writeInt(callGraph.getNumberOfEdges());
+            for(Edge<Invoke, JMethod> edge: (Iterable<Edge<Invoke, JMethod>>)
+                    callGraph.edges()::iterator) {
+                writer.writeInvoke(edge.getCallSite());
+                writer.writeByte(edge.getKind().ordinal());
+                writer.writeMethod(edge.getCallee());
+            }
+            int n = pointerFlowGraph.getNumberOfPointers();
+            writer.writeInt(n);
+            for(int i = 0; i < n; ++i) {
+                writePointer(writer, pointerFlowGraph.getPointer(i));
+            }
+            for(int i = 0; i < n; ++i) {
+                writer.writeInt(pointerFlowGraph.getRepresentative(
+                        pointerFlowGraph.getPointer(i)).getIndex());
+            }
+            for(int i = 0; i < n; ++i) {
+                Pointer p = pointerFlowGraph.getPointer(i);
+                if(pointerFlowGraph.getRepresentative(p) == p) {
+                    writeObjs(writer, p.getPointsToSet());
+                }
+            }
+            for(int i = 0; i < n; ++i) {
+                Pointer p = pointerFlowGraph.getPointer(i);
+                if(pointerFlowGraph.getRepresentative(p) == p) {
+                    int[] succs = pointerFlowGraph.getSuccIndexesOf(p);
+                    int outDegree = pointerFlowGraph.getOutDegreeOf(p);
+                    writer.writeInt(outDegree);
+                    for(int j = 0; j < outDegree; ++j) {
+                        Pointer s = pointerFlowGraph.getPointer(succs[j]);
+                        writer.writeInt(succs[j]);
+                        writer.writeType(pointerFlowGraph.getTypeFilter(p, s));
+                    }
+                }
+            }
+            writer.writeInt(entries.size());
+            for(WorkList.Entry entry: entries) {
+                writer.writeInt(entry.pointer().getIndex());
+                writeObjs(writer, entry.pointsToSet());
+            }
+            writer.writeInt(substitutedVars);
+            writer.commit();
+        } catch (IOException e) {
+            throw new AnalysisException(
+                    "Failed to save checkpoint to " + checkpointFile, e);
+        } finally {
+            entries.forEach(e -> workList.addEntry(e.pointer(), e.pointsToSet()));
+        }
+        lastCheckpoint = System.nanoTime();
+    }
+
+    /**
+     * @return the classes of the objects in the PFG and given work list entries.
+     */
+    private Set<JClass> getClassesOfObjs(List<WorkList.Entry> entries) {
+        Set<JClass> classes = Sets.newSet();
+        for(Pointer p: pointerFlowGraph.getPointers()) {
+            if(pointerFlowGraph.getRepresentative(p) == p) {
+                addClassesOfObjs(p.getPointsToSet(), classes);
+            }
+        }
+        for(WorkList.Entry entry: entries) {
+            addClassesOfObjs(entry.pointsToSet(), classes);
+        }
+        return classes;
+    }
+
+    private static void addClassesOfObjs(PointsToSet pts, Set<JClass> classes) {
+        for(Obj obj: pts) {
+            if(obj.getType() instanceof ClassType classType) {
+                classes.add(classType.getJClass());
+            }
+        }
+    }
+
+    private static void writePointer(CheckpointWriter writer, Pointer pointer)
+            throws IOException {
+        if(pointer instanceof VarPtr varPtr) {
+            writer.writeByte(0);
+            writer.writeVar(varPtr.getVar());
+        } else if(pointer instanceof StaticField staticField) {
+            writer.writeByte(1);
+            writer.writeField(staticField.getField());
+        } else if(pointer instanceof InstanceField instanceField) {
+            writer.writeByte(2);
+            writer.writeObj(instanceField.getBase());
+            writer.writeField(instanceField.getField());
+        } else if(pointer instanceof ArrayIndex arrayIndex) {
+            writer.writeByte(3);
+            writer.writeObj(arrayIndex.getArray());
+        } else {
+            throw new AnalysisException("Unknown pointer: " + pointer);
+        }
+    }
+
+    private static void writeObjs(CheckpointWriter writer, PointsToSet pts)
+            throws IOException {
+        writer.writeInt(pts.size());
+        for(Obj obj: pts) {
+            writer.writeObj(obj);
+        }
+    }
+
+    /**
+     * Restores the state of the analysis from the checkpoint file.
+     * This must be called on the freshly initialized solver.
+     *
+     * @return true if the analysis is restored, or false if there is
+     * no valid checkpoint, and the solver is left unchanged.
+     * @see #saveCheckpoint()
+     */
+    private boolean resume() {
+        try(CheckpointReader reader = CheckpointReader.open(
+                checkpointFile, getCheckpointKey(), heapModel)) {
+            if(reader == null) {
+                return false;
+            }
+            logger.info("Resuming pointer analysis from checkpoint {} ...", checkpointFile);
+            for(int i = reader.readInt(); i > 0; --i) {
+                callGraph.addEntryMethod(reader.readMethod());
+            }
+            reader.getMethods().forEach(callGraph::addReachableMethod);
+            CallKind[] kinds = CallKind.values();
+            for(int i = reader.readInt(); i > 0; --i) {
+                Invoke callSite = reader.readInvoke();
+                CallKind kind = kinds[reader.readByte()];
+                callGraph.addEdge(new Edge<>(kind, callSite, reader.readMethod()));
+            }
+            // 按原有顺序创建指针, 此时尚未登记等价变量, 故不会自动合并
+            int n = reader.readInt();
+            for(int i = 0; i < n; ++i) {
+                readPointer(reader);
+            }
+            for(int i = 0; i < n; ++i) {
+                int rep = reader.readInt();
+                if(rep != i) {
+                    pointerFlowGraph.merge(pointerFlowGraph.getPointer(rep),
+                            pointerFlowGraph.getPointer(i));
+                }
+            }
+            for(int i = 0; i < n; ++i) {
+                Pointer p = pointerFlowGraph.getPointer(i);
+                if(pointerFlowGraph.getRepresentative(p) == p) {
+                    readObjs(reader, p.getPointsToSet());
+                }
+            }
+            for(int i = 0; i < n; ++i) {
+                Pointer p = pointerFlowGraph.getPointer(i);
+                if(pointerFlowGraph.getRepresentative(p) == p) {
+                    for(int j = reader.readInt(); j > 0; --j) {
+                        Pointer s = pointerFlowGraph.getPointer(reader.readInt());
+                        pointerFlowGraph.addEdge(p, s, reader.readType());
+                    }
+                }
+            }
+            for(int i = reader.readInt(); i > 0; --i) {
+                Pointer p = pointerFlowGraph.getPointer(reader.readInt());
+                PointsToSet pts = ptsFactory.make();
+                readObjs(reader, pts);
+                workList.addEntry(p, pts);
+            }
+            substitutedVars = reader.readInt();
+            // 已有的指针已按检查点合并, 之后新建的指针在创建时合并
+            reader.getMethods().forEach(this::substituteVars);
+            return true;
+        } catch (IOException e) {
+            throw new AnalysisException(
+                    "Failed to resume from checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private void readPointer(CheckpointReader reader) throws IOException {
+        switch(reader.readByte()) {
+            case 0 -> pointerFlowGraph.getVarPtr(reader.readVar());
+            case 1 -> pointerFlowGraph.getStaticField(reader.readField());
+            case 2 -> pointerFlowGraph.getInstanceField(
+                    reader.readObj(), reader.readField());
+            case 3 -> pointerFlowGraph.getArrayIndex(reader.readObj());
+            default -> throw new AnalysisException("Corrupted checkpoint "
+                    + checkpointFile + ": unknown pointer kind");
+        }
+    }
+
+    private static void readObjs(CheckpointReader reader, PointsToSet pts)
+            throws IOException {
+        for(int i = reader.readInt(); i > 0; --i) {
+            pts.addObject(reader.readObj());
+        }
+    }
+
     CIPTAResult getResult() {
         return new CIPTAResult(pointerFlowGraph, callGraph);
     }
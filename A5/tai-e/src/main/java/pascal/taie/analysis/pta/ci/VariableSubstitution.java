@@ -0,0 +1,262 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.LValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Cast;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.type.ReferenceType;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Offline variable substitution for context-insensitive pointer analysis.
+ * <p>
+ * This is a hash-based value numbering (HVN) over the statements of
+ * a method. Each variable is labeled by the values flowing into it:
+ * <ul>
+ *     <li>x = y and x = (T) y: the value number of y</li>
+ *     <li>x = y.f: the value number of y and field f</li>
+ *     <li>x = T.f: field f</li>
+ *     <li>x = y[i]: the value number of y</li>
+ *     <li>other definitions, parameters and this: a unique label</li>
+ * </ul>
+ * The labels also include the type filter that the solver applies to
+ * the corresponding PFG edges (i.e., the type of x if the values of
+ * the source may not be assigned to it), as filtered values differ
+ * from the unfiltered ones.
+ * Variables with the same set of labels get the same value number,
+ * and a variable whose only label is a copy of y gets the value number
+ * of y. Variables with the same value number always have the same
+ * points-to set, thus they are pointer-equivalent and can share one
+ * node in the pointer flow graph.
+ * <p>
+ * Variables whose definitions depend on themselves through copies or
+ * loads (e.g., copies in loops) conservatively get unique value numbers.
+ */
+class VariableSubstitution {
+
+    /**
+     * Label of the values flowing into variables.
+     *
+     * @param kind   kind of the definition
+     * @param value  value number of the source (or base) variable,
+     *               or -1 if the definition has no source variable
+     * @param key    the field for loads, or the definition itself
+     *               for unique labels
+     * @param filter the type filter of the values, or null if
+     *               the values are not filtered
+     */
+    private record Label(Kind kind, int value, Object key, Type filter) {
+    }
+
+    private enum Kind {
+        COPY, LOAD_FIELD, LOAD_ARRAY, UNIQUE
+    }
+
+    private VariableSubstitution() {
+    }
+
+    /**
+     * Computes pointer-equivalent variables in given IR.
+     *
+     * @param typeSystem the type system for computing the type filters,
+     *                   or null if the solver does not filter types
+     * @return map from each substituted variable to the variable
+     * (in the same IR) it is equivalent to. Variables that are not
+     * equivalent to others are absent from the map.
+     */
+    static Map<Var, Var> compute(IR ir, TypeSystem typeSystem) {
+        // collect the labels of each variable and the variables they depend on
+        MultiMap<Var, Stmt> defs = Maps.newMultiMap();
+        for (Stmt stmt : ir) {
+            Optional<LValue> def = stmt.getDef();
+            if (def.isPresent() && def.get() instanceof Var var) {
+                defs.put(var, stmt);
+            }
+        }
+        MultiMap<Var, Var> dependents = Maps.newMultiMap();
+        Map<Var, Integer> pending = Maps.newMap();
+        for (Var var : ir.getVars()) {
+            int count = 0;
+            for (Stmt stmt : defs.get(var)) {
+                Var source = getSource(stmt);
+                if (source != null && dependents.put(source, var)) {
+                    ++count;
+                }
+            }
+            pending.put(var, count);
+        }
+        // number the variables in topological order of dependencies
+        Map<Var, Integer> values = Maps.newMap();
+        Map<Set<Label>, Integer> labelValues = Maps.newMap();
+        Deque<Var> ready = new ArrayDeque<>();
+        for (Var var : ir.getVars()) {
+            if (pending.get(var) == 0) {
+                ready.add(var);
+            }
+        }
+        int nextVar = 0;
+        while (values.size() < ir.getVars().size()) {
+            Var var;
+            boolean unique = false;
+            if (!ready.isEmpty()) {
+                var = ready.poll();
+            } else {
+                // the remaining variables are on dependency cycles,
+                // break a cycle by a variable with unique value
+                while (values.containsKey(ir.getVars().get(nextVar))) {
+                    ++nextVar;
+                }
+                var = ir.getVars().get(nextVar);
+                unique = true;
+            }
+            if (values.containsKey(var)) {
+                continue;
+            }
+            Set<Label> labels = unique ?
+                    Set.of(new Label(Kind.UNIQUE, -1, var, null)) :
+                    getLabels(ir, var, defs.get(var), values, typeSystem);
+            int value;
+            if (labels.size() == 1 &&
+                    labels.iterator().next().kind() == Kind.COPY &&
+                    labels.iterator().next().filter() == null) {
+                value = labels.iterator().next().value();
+            } else {
+                value = labelValues.computeIfAbsent(labels,
+                        l -> labelValues.size());
+            }
+            values.put(var, value);
+            for (Var dependent : dependents.get(var)) {
+                int count = pending.get(dependent) - 1;
+                pending.put(dependent, count);
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        // substitute the variables with the same value number
+        Map<Integer, Var> representatives = Maps.newMap();
+        Map<Var, Var> substitutions = Maps.newMap();
+        for (Var var : ir.getVars()) {
+            Var rep = representatives.putIfAbsent(values.get(var), var);
+            if (rep != null) {
+                substitutions.put(var, rep);
+            }
+        }
+        return substitutions;
+    }
+
+    /**
+     * @return the variable whose value number is needed to label
+     * the definition, or null if there is no such variable.
+     */
+    private static Var getSource(Stmt stmt) {
+        if (stmt instanceof Copy copy) {
+            return copy.getRValue();
+        } else if (isReferenceCast(stmt)) {
+            return ((Cast) stmt).getRValue().getValue();
+        } else if (stmt instanceof LoadField load &&
+                load.getFieldAccess() instanceof InstanceFieldAccess access) {
+            return access.getBase();
+        } else if (stmt instanceof LoadArray load) {
+            return load.getArrayAccess().getBase();
+        }
+        return null;
+    }
+
+    private static Set<Label> getLabels(IR ir, Var var, Set<Stmt> defs,
+                                        Map<Var, Integer> values,
+                                        TypeSystem typeSystem) {
+        Set<Label> labels = Sets.newSet();
+        if (var == ir.getThis() || ir.getParams().contains(var)) {
+            // parameters receive values from call sites
+            labels.add(new Label(Kind.UNIQUE, -1, var, null));
+        }
+        for (Stmt stmt : defs) {
+            if (stmt instanceof Copy copy) {
+                Var source = copy.getRValue();
+                labels.add(new Label(Kind.COPY, values.get(source), null,
+                        getTypeFilter(var, source.getType(), typeSystem)));
+            } else if (isReferenceCast(stmt)) {
+                // the solver handles casts as (filtered) copies
+                Var source = ((Cast) stmt).getRValue().getValue();
+                labels.add(new Label(Kind.COPY, values.get(source), null,
+                        getTypeFilter(var, source.getType(), typeSystem)));
+            } else if (stmt instanceof LoadField load) {
+                JField field = load.getFieldRef().resolve();
+                int base = load.getFieldAccess() instanceof InstanceFieldAccess access ?
+                        values.get(access.getBase()) : -1;
+                labels.add(new Label(Kind.LOAD_FIELD, base, field,
+                        getTypeFilter(var, field.getType(), typeSystem)));
+            } else if (stmt instanceof LoadArray load) {
+                // the filter depends on the element types of array objects
+                labels.add(new Label(Kind.LOAD_ARRAY,
+                        values.get(load.getArrayAccess().getBase()), null,
+                        typeSystem == null ? null : var.getType()));
+            } else {
+                labels.add(new Label(Kind.UNIQUE, -1, stmt, null));
+            }
+        }
+        if (labels.isEmpty()) {
+            labels.add(new Label(Kind.UNIQUE, -1, var, null));
+        }
+        return labels;
+    }
+
+    private static boolean isReferenceCast(Stmt stmt) {
+        return stmt instanceof Cast cast &&
+                cast.getRValue().getCastType() instanceof ReferenceType;
+    }
+
+    /**
+     * @return the type filter of the values of given type flowing to
+     * given variable, which is consistent with the type filters of
+     * the PFG edges in {@link Solver}.
+     */
+    private static Type getTypeFilter(Var var, Type sourceType,
+                                      TypeSystem typeSystem) {
+        if (typeSystem == null) {
+            return null;
+        }
+        Type type = var.getType();
+        return type instanceof ReferenceType && !type.equals(sourceType) &&
+                !typeSystem.isSubtype(type, sourceType) ? type : null;
+    }
+}
@@ -22,21 +22,54 @@
 
 package pascal.taie.analysis.pta.ci;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
 
 /**
  * Represents work list in pointer analysis.
+ * <p>
+ * The work list keeps at most one entry for each pointer: the objects
+ * added for a pointer that is already pending are merged into its pending
+ * points-to set, instead of creating a new entry. Objects that are already
+ * in the points-to set of the pointer are not added, as they would not
+ * change anything when the entry is processed.
+ * <p>
+ * The order of processing pending pointers is decided by a pluggable
+ * {@link WorkListPolicy}.
  */
 class WorkList {
 
-    private final Queue<Entry> entries = new ArrayDeque<>();
+    /**
+     * Decides the order of processing pending pointers.
+     */
+    private final WorkListPolicy pointers;
+
+    /**
+     * Pending points-to set of each pointer in the work list.
+     */
+    private final Map<Pointer, PointsToSet> pendingSets = Maps.newMap();
+
+    WorkList(WorkListPolicy policy) {
+        this.pointers = policy;
+    }
 
     /**
      * Adds an entry to the work list.
      */
     void addEntry(Pointer pointer, PointsToSet pointsToSet) {
-        entries.add(new Entry(pointer, pointsToSet));
+        PointsToSet diff = pointsToSet.diff(pointer.getPointsToSet());
+        if (diff.isEmpty()) {
+            return;
+        }
+        PointsToSet pending = pendingSets.get(pointer);
+        if (pending == null) {
+            // diff is a new set, thus it can be kept as the pending set
+            pendingSets.put(pointer, diff);
+            pointers.add(pointer);
+        } else {
+            pending.addAll(diff);
+        }
     }
 
     /**
@@ -44,14 +77,16 @@ class WorkList {
      * if this work list is empty.
      */
     Entry pollEntry() {
-        return entries.poll();
+        Pointer pointer = pointers.poll();
+        return pointer == null ? null :
+                new Entry(pointer, pendingSets.remove(pointer));
     }
 
     /**
      * @return true if the work list is empty, otherwise false.
      */
     boolean isEmpty() {
-        return entries.isEmpty();
+        return pointers.isEmpty();
     }
 
     /**
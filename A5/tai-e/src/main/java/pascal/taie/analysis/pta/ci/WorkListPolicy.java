@@ -0,0 +1,280 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import pascal.taie.config.ConfigException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * Scheduling policy of {@link WorkList}, which decides the order in which
+ * the pending pointers are processed. Each pointer is added to the policy
+ * at most once until it is polled.
+ */
+abstract class WorkListPolicy {
+
+    /**
+     * Adds a pending pointer.
+     */
+    abstract void add(Pointer pointer);
+
+    /**
+     * Retrieves and removes the next pointer to process,
+     * or returns null if there is no pending pointer.
+     */
+    abstract Pointer poll();
+
+    /**
+     * @return true if there is no pending pointer, otherwise false.
+     */
+    abstract boolean isEmpty();
+
+    /**
+     * @param name name of the policy, i.e., one of "fifo" (default if null),
+     *             "lifo", "lrf" (least recently fired) and "topo"
+     *             (topological order of PFG)
+     * @param pfg  the pointer flow graph, which is used by topological order
+     * @return the work list policy of given name.
+     */
+    static WorkListPolicy get(String name, PointerFlowGraph pfg) {
+        if (name == null || name.equals("fifo")) {
+            return new FIFO();
+        }
+        return switch (name) {
+            case "lifo" -> new LIFO();
+            case "lrf" -> new LeastRecentlyFired();
+            case "topo" -> new Topological(pfg);
+            default -> throw new ConfigException(
+                    "Unknown work list policy: " + name);
+        };
+    }
+
+    /**
+     * Processes pointers in the order they are added.
+     */
+    private static class FIFO extends WorkListPolicy {
+
+        private final Queue<Pointer> queue = new ArrayDeque<>();
+
+        @Override
+        void add(Pointer pointer) {
+            queue.add(pointer);
+        }
+
+        @Override
+        Pointer poll() {
+            return queue.poll();
+        }
+
+        @Override
+        boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+
+    /**
+     * Processes the most recently added pointer first.
+     */
+    private static class LIFO extends WorkListPolicy {
+
+        private final Deque<Pointer> stack = new ArrayDeque<>();
+
+        @Override
+        void add(Pointer pointer) {
+            stack.push(pointer);
+        }
+
+        @Override
+        Pointer poll() {
+            return stack.poll();
+        }
+
+        @Override
+        boolean isEmpty() {
+            return stack.isEmpty();
+        }
+    }
+
+    /**
+     * Pending pointer with its priority (smaller first). The sequence
+     * number breaks ties in the order of adding.
+     */
+    private record Item(Pointer pointer, long priority, long seq) {
+
+        private static final Comparator<Item> COMPARATOR =
+                Comparator.comparingLong(Item::priority)
+                        .thenComparingLong(Item::seq);
+    }
+
+    /**
+     * Processes the pointer that was least recently fired (i.e., polled)
+     * first, so that a pointer accumulates more objects before it is
+     * processed again. Pointers that have never fired come first.
+     */
+    private static class LeastRecentlyFired extends WorkListPolicy {
+
+        private final PriorityQueue<Item> queue = new PriorityQueue<>(Item.COMPARATOR);
+
+        private final Map<Pointer, Long> lastFired = Maps.newMap();
+
+        private long time = 0;
+
+        @Override
+        void add(Pointer pointer) {
+            queue.add(new Item(pointer,
+                    lastFired.getOrDefault(pointer, 0L), ++time));
+        }
+
+        @Override
+        Pointer poll() {
+            Item item = queue.poll();
+            if (item == null) {
+                return null;
+            }
+            lastFired.put(item.pointer(), ++time);
+            return item.pointer();
+        }
+
+        @Override
+        boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+
+    /**
+     * Processes pointers in waves. Each wave processes the pending pointers
+     * in the topological order of the strongly connected components of
+     * the current PFG, so that a pointer is processed after its
+     * predecessors in the wave and propagates their objects together.
+     * Pointers added during a wave are deferred to the next wave, whose
+     * order is recomputed as the PFG may have changed.
+     */
+    private static class Topological extends WorkListPolicy {
+
+        private final PointerFlowGraph pfg;
+
+        private final PriorityQueue<Item> wave = new PriorityQueue<>(Item.COMPARATOR);
+
+        private List<Pointer> next = new ArrayList<>();
+
+        private long seq = 0;
+
+        private Topological(PointerFlowGraph pfg) {
+            this.pfg = pfg;
+        }
+
+        @Override
+        void add(Pointer pointer) {
+            next.add(pointer);
+        }
+
+        @Override
+        Pointer poll() {
+            if (wave.isEmpty() && !next.isEmpty()) {
+                Map<Pointer, Integer> ranks = computeRanks(next);
+                for (Pointer pointer : next) {
+                    wave.add(new Item(pointer, ranks.get(pointer), ++seq));
+                }
+                next = new ArrayList<>();
+            }
+            Item item = wave.poll();
+            return item == null ? null : item.pointer();
+        }
+
+        @Override
+        boolean isEmpty() {
+            return wave.isEmpty() && next.isEmpty();
+        }
+
+        /**
+         * Computes the topological ranks of the SCCs reachable from given
+         * pointers by iterative Tarjan's algorithm. Tarjan's algorithm
+         * finds SCCs in reverse topological order, thus the ranks are
+         * counted down.
+         */
+        private Map<Pointer, Integer> computeRanks(List<Pointer> roots) {
+            Map<Pointer, Integer> indexes = Maps.newMap();
+            Map<Pointer, Integer> lowLinks = Maps.newMap();
+            Map<Pointer, Integer> ranks = Maps.newMap();
+            Deque<Pointer> stack = new ArrayDeque<>();
+            Deque<Pointer> callStack = new ArrayDeque<>();
+            Map<Pointer, Iterator<Pointer>> succIters = Maps.newMap();
+            int rank = Integer.MAX_VALUE;
+            for (Pointer root : roots) {
+                if (indexes.containsKey(root)) {
+                    continue;
+                }
+                visit(root, indexes, lowLinks, stack, callStack, succIters);
+                while (!callStack.isEmpty()) {
+                    Pointer v = callStack.peek();
+                    Iterator<Pointer> it = succIters.get(v);
+                    if (it.hasNext()) {
+                        Pointer w = it.next();
+                        if (!indexes.containsKey(w)) {
+                            visit(w, indexes, lowLinks, stack, callStack, succIters);
+                        } else if (!ranks.containsKey(w)) { // w is on stack
+                            lowLinks.put(v, Math.min(lowLinks.get(v), indexes.get(w)));
+                        }
+                    } else {
+                        callStack.pop();
+                        succIters.remove(v);
+                        if (!callStack.isEmpty()) {
+                            Pointer u = callStack.peek();
+                            lowLinks.put(u, Math.min(lowLinks.get(u), lowLinks.get(v)));
+                        }
+                        if (lowLinks.get(v).equals(indexes.get(v))) {
+                            Pointer w;
+                            do {
+                                w = stack.pop();
+                                ranks.put(w, rank);
+                            } while (w != v);
+                            --rank;
+                        }
+                    }
+                }
+            }
+            return ranks;
+        }
+
+        private void visit(Pointer pointer, Map<Pointer, Integer> indexes,
+                           Map<Pointer, Integer> lowLinks, Deque<Pointer> stack,
+                           Deque<Pointer> callStack,
+                           Map<Pointer, Iterator<Pointer>> succIters) {
+            int index = indexes.size();
+            indexes.put(pointer, index);
+            lowLinks.put(pointer, index);
+            stack.push(pointer);
+            callStack.push(pointer);
+            succIters.put(pointer, pfg.getSuccsOf(pointer).iterator());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.AnalysisException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a checkpoint written by {@link CheckpointWriter}.
+ * <p>
+ * The header is validated by {@link #open(File, String, HeapModel)}
+ * before the solver reads its sections, thus a solver can safely start
+ * from scratch if no valid checkpoint is available.
+ */
+public class CheckpointReader implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(CheckpointReader.class);
+
+    private final DataInputStream in;
+
+    private final HeapModel heapModel;
+
+    private final ClassHierarchy hierarchy;
+
+    private final TypeSystem typeSystem;
+
+    private final List<JMethod> methods;
+
+    private final List<JField> fields = new ArrayList<>();
+
+    private final List<Type> types = new ArrayList<>();
+
+    private final List<Obj> objs = new ArrayList<>();
+
+    private CheckpointReader(DataInputStream in, HeapModel heapModel,
+                             List<JMethod> methods) {
+        this.in = in;
+        this.heapModel = heapModel;
+        this.hierarchy = World.get().getClassHierarchy();
+        this.typeSystem = World.get().getTypeSystem();
+        this.methods = methods;
+    }
+
+    /**
+     * Opens the checkpoint in given file and reads its header.
+     *
+     * @param key       the key of current analysis
+     * @param heapModel the heap model that gives the objects in the checkpoint
+     * @return the reader of the checkpoint, or null if the file does not
+     * exist, is not a checkpoint, was written by a different analysis,
+     * any method in it has been removed or changed, or the hierarchy of
+     * any class in it has changed.
+     */
+    public static @Nullable CheckpointReader open(
+            File file, String key, HeapModel heapModel) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != CheckpointWriter.MAGIC
+                    || in.readInt() != CheckpointWriter.VERSION) {
+                logger.info("{} is not a checkpoint, ignore it", file);
+                in.close();
+                return null;
+            }
+            if (!readString(in).equals(key)) {
+                logger.info("Checkpoint {} belongs to another analysis, ignore it", file);
+                in.close();
+                return null;
+            }
+            ClassHierarchy hierarchy = World.get().getClassHierarchy();
+            int n = in.readInt();
+            List<JMethod> methods = new ArrayList<>(n);
+            for (int i = 0; i < n; ++i) {
+                String className = readString(in);
+                String subsig = readString(in);
+                long fingerprint = in.readLong();
+                JClass jclass = hierarchy.getClass(className);
+                JMethod method = jclass == null ? null :
+                        jclass.getDeclaredMethod(Subsignature.get(subsig));
+                if (method == null ||
+                        CheckpointWriter.fingerprint(method.getIR()) != fingerprint) {
+                    logger.info("Method {}: {} is removed or changed, ignore checkpoint {}",
+                            className, subsig, file);
+                    in.close();
+                    return null;
+                }
+                methods.add(method);
+            }
+            for (int i = in.readInt(); i > 0; --i) {
+                String className = readString(in);
+                long fingerprint = in.readLong();
+                JClass jclass = hierarchy.getClass(className);
+                if (jclass == null ||
+                        CheckpointWriter.fingerprint(jclass) != fingerprint) {
+                    logger.info("Hierarchy of class {} is changed, ignore checkpoint {}",
+                            className, file);
+                    in.close();
+                    return null;
+                }
+            }
+            return new CheckpointReader(in, heapModel,
+                    Collections.unmodifiableList(methods));
+        } catch (EOFException e) {
+            logger.info("Checkpoint {} is truncated, ignore it", file);
+            in.close();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the methods in the method table, in the order they were
+     * given to {@link CheckpointWriter}.
+     */
+    public List<JMethod> getMethods() {
+        return methods;
+    }
+
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    public int readByte() throws IOException {
+        return in.readByte();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public JMethod readMethod() throws IOException {
+        return methods.get(in.readInt());
+    }
+
+    public Var readVar() throws IOException {
+        return readMethod().getIR().getVar(in.readInt());
+    }
+
+    public Invoke readInvoke() throws IOException {
+        return (Invoke) readStmt();
+    }
+
+    private Stmt readStmt() throws IOException {
+        return readMethod().getIR().getStmt(in.readInt());
+    }
+
+    public JField readField() throws IOException {
+        int id = in.readInt();
+        if (id != CheckpointWriter.NEW_ELEMENT) {
+            return fields.get(id);
+        }
+        String className = readString(in);
+        String name = readString(in);
+        JClass jclass = hierarchy.getClass(className);
+        JField field = jclass == null ? null : jclass.getDeclaredField(name);
+        if (field == null) {
+            throw new AnalysisException("Cannot find field " + className + "." + name);
+        }
+        fields.add(field);
+        return field;
+    }
+
+    /**
+     * Reads a type, which may be null.
+     */
+    public @Nullable Type readType() throws IOException {
+        int id = in.readInt();
+        if (id == CheckpointWriter.NULL_ELEMENT) {
+            return null;
+        } else if (id != CheckpointWriter.NEW_ELEMENT) {
+            return types.get(id);
+        }
+        Type type = typeSystem.getType(readString(in));
+        types.add(type);
+        return type;
+    }
+
+    public Obj readObj() throws IOException {
+        int id = in.readInt();
+        if (id != CheckpointWriter.NEW_ELEMENT) {
+            return objs.get(id);
+        }
+        Obj obj = heapModel.getObj((New) readStmt());
+        objs.add(obj);
+        return obj;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
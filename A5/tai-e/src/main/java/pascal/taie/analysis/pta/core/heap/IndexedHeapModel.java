@@ -0,0 +1,145 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.ir.exp.ReferenceLiteral;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A heap model that numbers the abstract objects given by another heap
+ * model. Each distinct object is assigned a unique index, from 0 to
+ * {@link #getNumberOfObjs()} - 1, when it is first returned by this
+ * model, so that sets of objects can be represented by bit sets.
+ * <p>
+ * The objects returned by this model wrap the objects of the underlying
+ * model and carry their indexes, thus {@link #getIndex(Obj)} does not
+ * look up any map. The wrappers delegate all methods (including
+ * {@link Object#toString()}) to the underlying objects.
+ */
+public class IndexedHeapModel implements HeapModel {
+
+    private final HeapModel heapModel;
+
+    private final Map<Obj, IndexedObj> indexedObjs = Maps.newMap();
+
+    private final List<IndexedObj> objs = new ArrayList<>();
+
+    public IndexedHeapModel(HeapModel heapModel) {
+        this.heapModel = heapModel;
+    }
+
+    /**
+     * @return the wrapped heap model.
+     */
+    public HeapModel getModel() {
+        return heapModel;
+    }
+
+    @Override
+    public Obj getObj(New allocSite) {
+        return index(heapModel.getObj(allocSite));
+    }
+
+    @Override
+    public Obj getConstantObj(ReferenceLiteral value) {
+        return index(heapModel.getConstantObj(value));
+    }
+
+    private Obj index(Obj obj) {
+        return indexedObjs.computeIfAbsent(obj, o -> {
+            IndexedObj indexedObj = new IndexedObj(o, objs.size());
+            objs.add(indexedObj);
+            return indexedObj;
+        });
+    }
+
+    /**
+     * @return the index of given object, or -1 if the object
+     * has not been returned by this model.
+     */
+    public int getIndex(Obj obj) {
+        return obj instanceof IndexedObj indexedObj ? indexedObj.index : -1;
+    }
+
+    /**
+     * @return the object of given index.
+     */
+    public Obj getObj(int index) {
+        return objs.get(index);
+    }
+
+    /**
+     * @return the number of objects that have been indexed.
+     */
+    public int getNumberOfObjs() {
+        return objs.size();
+    }
+
+    /**
+     * An object of the underlying heap model with its index.
+     */
+    private static final class IndexedObj implements Obj {
+
+        private final Obj obj;
+
+        private final int index;
+
+        private IndexedObj(Obj obj, int index) {
+            this.obj = obj;
+            this.index = index;
+        }
+
+        @Override
+        public Type getType() {
+            return obj.getType();
+        }
+
+        @Override
+        public Object getAllocation() {
+            return obj.getAllocation();
+        }
+
+        @Override
+        public Optional<JMethod> getContainerMethod() {
+            return obj.getContainerMethod();
+        }
+
+        @Override
+        public Type getContainerType() {
+            return obj.getContainerType();
+        }
+
+        @Override
+        public String toString() {
+            return obj.toString();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.World;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+import pascal.taie.language.type.TypeSystem;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Set;
+
+/**
+ * A heap model that merges the allocation sites of some types into one
+ * object per type, and treats other allocation sites as
+ * {@link AllocationSiteBasedModel} does. Merging is controlled by options:
+ * <ul>
+ *     <li>merge-types: comma-separated names of the types whose
+ *     allocation sites are merged.</li>
+ *     <li>merge-library-types: if true, the allocation sites of all
+ *     classes that are not application classes are merged.</li>
+ * </ul>
+ */
+public class TypeMergingHeapModel extends AbstractHeapModel {
+
+    private final Set<Type> mergedTypes = Sets.newSet();
+
+    private final boolean isMergeLibraryTypes;
+
+    public TypeMergingHeapModel(AnalysisOptions options) {
+        super(options);
+        String types = options.getString("merge-types");
+        if (types != null) {
+            TypeSystem typeSystem = World.get().getTypeSystem();
+            for (String name : types.split(",")) {
+                if (!name.isBlank()) {
+                    mergedTypes.add(typeSystem.getType(name.trim()));
+                }
+            }
+        }
+        isMergeLibraryTypes = options.getBooleanOrDefault(
+                "merge-library-types", false);
+    }
+
+    @Override
+    protected Obj doGetObj(New allocSite) {
+        Type type = allocSite.getRValue().getType();
+        if (mergedTypes.contains(type) ||
+                (isMergeLibraryTypes && isLibraryType(type))) {
+            return getMergedObj(allocSite);
+        }
+        return getNewObj(allocSite);
+    }
+
+    private static boolean isLibraryType(Type type) {
+        if (type instanceof ClassType classType) {
+            JClass jclass = classType.getJClass();
+            return jclass != null && !jclass.isApplication();
+        }
+        return false;
+    }
+}
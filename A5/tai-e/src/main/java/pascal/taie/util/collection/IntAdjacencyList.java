@@ -0,0 +1,298 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * An append-only adjacency structure for directed graphs whose nodes are
+ * dense non-negative integers. The successors of each node are stored in
+ * a primitive int array that grows by doubling, and all edges are indexed
+ * by an open-addressing hash table of primitive longs, thus adding an edge,
+ * testing an edge and iterating successors do not allocate objects
+ * (except when the arrays grow).
+ * <p>
+ * Each edge may carry an int label (see {@link #getLabel(int, int)}),
+ * which is stored in a primitive array parallel to the hash table.
+ * The label of an edge is 0 unless it is set otherwise.
+ * <p>
+ * Successors are iterated by index:
+ * <pre>
+ * int[] succs = graph.getSuccs(node);
+ * for (int i = 0, n = graph.getOutDegree(node); i &lt; n; ++i) {
+ *     int succ = succs[i];
+ *     ...
+ * }
+ * </pre>
+ * The graph must not be modified during such an iteration. Edges are
+ * removed rarely (e.g., when nodes are merged), and removing an edge
+ * moves the last successor of the node to the slot of the removed one.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class IntAdjacencyList {
+
+    private static final int INITIAL_NODE_CAPACITY = 16;
+
+    private static final int INITIAL_SUCC_CAPACITY = 4;
+
+    private static final int INITIAL_TABLE_CAPACITY = 64;
+
+    private static final int[] EMPTY_SUCCS = new int[0];
+
+    /**
+     * Marks empty slots of {@link #table}. Edge keys are never negative,
+     * as both nodes are non-negative.
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * Successor chunks of each node.
+     */
+    private int[][] succs;
+
+    /**
+     * Number of successors of each node.
+     */
+    private int[] outDegrees;
+
+    /**
+     * Hash table (linear probing) of all edges.
+     */
+    private long[] table;
+
+    /**
+     * Labels of the edges, parallel to {@link #table}.
+     */
+    private int[] labels;
+
+    private int numberOfEdges;
+
+    public IntAdjacencyList() {
+        succs = new int[INITIAL_NODE_CAPACITY][];
+        Arrays.fill(succs, EMPTY_SUCCS);
+        outDegrees = new int[INITIAL_NODE_CAPACITY];
+        table = new long[INITIAL_TABLE_CAPACITY];
+        Arrays.fill(table, EMPTY);
+        labels = new int[INITIAL_TABLE_CAPACITY];
+    }
+
+    /**
+     * Adds edge {@code source -> target}.
+     *
+     * @return true if the edge is new, otherwise false.
+     */
+    public boolean addEdge(int source, int target) {
+        return addEdge(source, target, 0);
+    }
+
+    /**
+     * Adds edge {@code source -> target} with given label. If the edge
+     * already exists, its label is not changed.
+     *
+     * @return true if the edge is new, otherwise false.
+     */
+    public boolean addEdge(int source, int target, int label) {
+        long key = key(source, target);
+        int slot = findSlot(key);
+        if (table[slot] == key) {
+            return false;
+        }
+        table[slot] = key;
+        labels[slot] = label;
+        if (++numberOfEdges * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        ensureNode(source);
+        int[] chunk = succs[source];
+        int degree = outDegrees[source];
+        if (degree == chunk.length) {
+            chunk = Arrays.copyOf(chunk,
+                    Math.max(INITIAL_SUCC_CAPACITY, degree * 2));
+            succs[source] = chunk;
+        }
+        chunk[degree] = target;
+        outDegrees[source] = degree + 1;
+        return true;
+    }
+
+    /**
+     * @return true if this graph contains edge {@code source -> target}.
+     */
+    public boolean hasEdge(int source, int target) {
+        long key = key(source, target);
+        return table[findSlot(key)] == key;
+    }
+
+    /**
+     * @return the label of edge {@code source -> target}, or 0 if
+     * this graph does not contain the edge.
+     */
+    public int getLabel(int source, int target) {
+        long key = key(source, target);
+        int slot = findSlot(key);
+        return table[slot] == key ? labels[slot] : 0;
+    }
+
+    /**
+     * Sets the label of edge {@code source -> target}.
+     *
+     * @return true if the edge is present, otherwise false.
+     */
+    public boolean setLabel(int source, int target, int label) {
+        long key = key(source, target);
+        int slot = findSlot(key);
+        if (table[slot] != key) {
+            return false;
+        }
+        labels[slot] = label;
+        return true;
+    }
+
+    /**
+     * Removes edge {@code source -> target}.
+     *
+     * @return true if the edge was present, otherwise false.
+     */
+    public boolean removeEdge(int source, int target) {
+        if (!removeKey(key(source, target))) {
+            return false;
+        }
+        int[] chunk = succs[source];
+        int last = --outDegrees[source];
+        for (int i = 0; i <= last; ++i) {
+            if (chunk[i] == target) {
+                chunk[i] = chunk[last];
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all outgoing edges of given node.
+     */
+    public void removeSuccs(int source) {
+        if (source < outDegrees.length) {
+            int[] chunk = succs[source];
+            for (int i = 0, n = outDegrees[source]; i < n; ++i) {
+                removeKey(key(source, chunk[i]));
+            }
+            succs[source] = EMPTY_SUCCS;
+            outDegrees[source] = 0;
+        }
+    }
+
+    /**
+     * @return the successors of given node. Only the first
+     * {@link #getOutDegree(int)} elements of the returned array are valid,
+     * and the array should not be modified.
+     */
+    public int[] getSuccs(int node) {
+        return node < succs.length ? succs[node] : EMPTY_SUCCS;
+    }
+
+    /**
+     * @return the number of successors of given node.
+     */
+    public int getOutDegree(int node) {
+        return node < outDegrees.length ? outDegrees[node] : 0;
+    }
+
+    public int getNumberOfEdges() {
+        return numberOfEdges;
+    }
+
+    private static long key(int source, int target) {
+        return ((long) source << 32) | target;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return the slot holding given key, or the empty slot
+     * where the key should be inserted.
+     */
+    private int findSlot(long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes given key from the hash table, and shifts the following
+     * keys of the probe sequence backward so that no tombstone is needed.
+     */
+    private boolean removeKey(long key) {
+        int slot = findSlot(key);
+        if (table[slot] != key) {
+            return false;
+        }
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(table[i]) & mask;
+            // move the key if its home is not within (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                labels[hole] = labels[i];
+                hole = i;
+            }
+        }
+        table[hole] = EMPTY;
+        --numberOfEdges;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldTable = table;
+        int[] oldLabels = labels;
+        table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        labels = new int[capacity];
+        for (int i = 0; i < oldTable.length; ++i) {
+            long key = oldTable[i];
+            if (key != EMPTY) {
+                int slot = findSlot(key);
+                table[slot] = key;
+                labels[slot] = oldLabels[i];
+            }
+        }
+    }
+
+    private void ensureNode(int node) {
+        if (node >= succs.length) {
+            int oldLength = succs.length;
+            int newLength = Math.max(node + 1, oldLength * 2);
+            succs = Arrays.copyOf(succs, newLength);
+            Arrays.fill(succs, oldLength, newLength, EMPTY_SUCCS);
+            outDegrees = Arrays.copyOf(outDegrees, newLength);
+        }
+    }
+}
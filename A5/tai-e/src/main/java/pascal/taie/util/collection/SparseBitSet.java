@@ -0,0 +1,346 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.util.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed bit set for non-negative integers, which only stores the
+ * non-zero 64-bit words. The words are kept in an array sorted by their
+ * block numbers (i.e., {@code index >>> 6}), thus the memory is proportional
+ * to the number of non-zero words instead of the largest element, and
+ * set-wise operations are done by merging the sorted arrays word by word.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class SparseBitSet {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final int[] EMPTY_BLOCKS = new int[0];
+
+    private static final long[] EMPTY_WORDS = new long[0];
+
+    /**
+     * Sorted block numbers of the non-zero words.
+     */
+    private int[] blocks;
+
+    private long[] words;
+
+    /**
+     * Number of non-zero words.
+     */
+    private int count;
+
+    /**
+     * Number of set bits.
+     */
+    private int size;
+
+    public SparseBitSet() {
+        blocks = EMPTY_BLOCKS;
+        words = EMPTY_WORDS;
+    }
+
+    private SparseBitSet(int[] blocks, long[] words, int count, int size) {
+        this.blocks = blocks;
+        this.words = words;
+        this.count = count;
+        this.size = size;
+    }
+
+    /**
+     * Sets the bit at given index.
+     *
+     * @return true if this set changed as a result of the call.
+     */
+    public boolean add(int index) {
+        int block = index >>> 6;
+        long bit = 1L << index;
+        int pos = Arrays.binarySearch(blocks, 0, count, block);
+        if (pos >= 0) {
+            long old = words[pos];
+            if ((old & bit) != 0) {
+                return false;
+            }
+            words[pos] = old | bit;
+        } else {
+            pos = -(pos + 1);
+            if (count == blocks.length) {
+                int capacity = Math.max(INITIAL_CAPACITY, count + (count >> 1));
+                blocks = Arrays.copyOf(blocks, capacity);
+                words = Arrays.copyOf(words, capacity);
+            }
+            System.arraycopy(blocks, pos, blocks, pos + 1, count - pos);
+            System.arraycopy(words, pos, words, pos + 1, count - pos);
+            blocks[pos] = block;
+            words[pos] = bit;
+            ++count;
+        }
+        ++size;
+        return true;
+    }
+
+    /**
+     * @return true if the bit at given index is set.
+     */
+    public boolean contains(int index) {
+        int pos = Arrays.binarySearch(blocks, 0, count, index >>> 6);
+        return pos >= 0 && (words[pos] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets all bits that are set in the other set.
+     *
+     * @return a new set of the bits that are set by this call, i.e.,
+     * the bits in the other set but not in this set before the call.
+     */
+    public SparseBitSet addAllDiff(SparseBitSet other) {
+        return merge(other, true);
+    }
+
+    /**
+     * Sets all bits that are set in the other set.
+     *
+     * @return true if this set changed as a result of the call.
+     */
+    public boolean addAll(SparseBitSet other) {
+        int oldSize = size;
+        merge(other, false);
+        return size != oldSize;
+    }
+
+    /**
+     * Merges the other set into this set word by word.
+     *
+     * @param recordDiff whether to return the bits set by this call
+     * @return the bits set by this call if recordDiff is true, otherwise null.
+     */
+    private SparseBitSet merge(SparseBitSet other, boolean recordDiff) {
+        int n = count, m = other.count;
+        int[] oBlocks = other.blocks;
+        long[] oWords = other.words;
+        int[] diffBlocks = recordDiff ? new int[m] : null;
+        long[] diffWords = recordDiff ? new long[m] : null;
+        int diffCount = 0, diffSize = 0;
+        // count the blocks that are absent in this set
+        int absent = 0;
+        for (int i = 0, j = 0; j < m; ) {
+            if (i < n && blocks[i] < oBlocks[j]) {
+                ++i;
+            } else {
+                if (i >= n || blocks[i] != oBlocks[j]) {
+                    ++absent;
+                } else {
+                    ++i;
+                }
+                ++j;
+            }
+        }
+        if (absent == 0) {
+            // all blocks are present, merge in place
+            for (int i = 0, j = 0; j < m; ++i) {
+                if (blocks[i] == oBlocks[j]) {
+                    long diff = oWords[j] & ~words[i];
+                    if (diff != 0) {
+                        words[i] |= diff;
+                        if (recordDiff) {
+                            diffBlocks[diffCount] = oBlocks[j];
+                            diffWords[diffCount++] = diff;
+                        }
+                        diffSize += Long.bitCount(diff);
+                    }
+                    ++j;
+                }
+            }
+        } else {
+            int[] newBlocks = new int[Math.max(n + absent, blocks.length)];
+            long[] newWords = new long[newBlocks.length];
+            int k = 0;
+            for (int i = 0, j = 0; i < n || j < m; ++k) {
+                if (j >= m || (i < n && blocks[i] < oBlocks[j])) {
+                    newBlocks[k] = blocks[i];
+                    newWords[k] = words[i++];
+                } else {
+                    long diff;
+                    if (i >= n || oBlocks[j] < blocks[i]) {
+                        diff = oWords[j];
+                        newWords[k] = diff;
+                    } else {
+                        diff = oWords[j] & ~words[i];
+                        newWords[k] = words[i++] | diff;
+                    }
+                    newBlocks[k] = oBlocks[j++];
+                    if (diff != 0) {
+                        if (recordDiff) {
+                            diffBlocks[diffCount] = newBlocks[k];
+                            diffWords[diffCount++] = diff;
+                        }
+                        diffSize += Long.bitCount(diff);
+                    }
+                }
+            }
+            blocks = newBlocks;
+            words = newWords;
+            count = k;
+        }
+        size += diffSize;
+        return recordDiff ?
+                new SparseBitSet(diffBlocks, diffWords, diffCount, diffSize) : null;
+    }
+
+    /**
+     * @return a new set of the bits that are set in both this set
+     * and the other set.
+     */
+    public SparseBitSet and(SparseBitSet other) {
+        return combine(other, false);
+    }
+
+    /**
+     * @return a new set of the bits that are set in this set
+     * but not in the other set.
+     */
+    public SparseBitSet andNot(SparseBitSet other) {
+        return combine(other, true);
+    }
+
+    /**
+     * Combines the words of this set with the words of the other set
+     * in the same blocks, i.e., {@code w & o} or {@code w & ~o}.
+     * The words in the blocks absent in the other set are treated as 0.
+     */
+    private SparseBitSet combine(SparseBitSet other, boolean negate) {
+        int n = count, m = other.count;
+        int[] oBlocks = other.blocks;
+        long[] oWords = other.words;
+        int[] resultBlocks = new int[n];
+        long[] resultWords = new long[n];
+        int resultCount = 0, resultSize = 0;
+        for (int i = 0, j = 0; i < n; ++i) {
+            while (j < m && oBlocks[j] < blocks[i]) {
+                ++j;
+            }
+            long o = j < m && oBlocks[j] == blocks[i] ? oWords[j] : 0;
+            long word = words[i] & (negate ? ~o : o);
+            if (word != 0) {
+                resultBlocks[resultCount] = blocks[i];
+                resultWords[resultCount++] = word;
+                resultSize += Long.bitCount(word);
+            }
+        }
+        return new SparseBitSet(resultBlocks, resultWords, resultCount, resultSize);
+    }
+
+    /**
+     * @return true if all bits set in the other set are also set in this set.
+     */
+    public boolean containsAll(SparseBitSet other) {
+        int n = count, m = other.count;
+        if (other.size > size) {
+            return false;
+        }
+        for (int i = 0, j = 0; j < m; ++j) {
+            while (i < n && blocks[i] < other.blocks[j]) {
+                ++i;
+            }
+            if (i >= n || blocks[i] != other.blocks[j]
+                    || (other.words[j] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of set bits.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Performs the given action for each set bit in increasing order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; ++i) {
+            int base = blocks[i] << 6;
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                action.accept(base + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
+
+    /**
+     * @return an iterator over the set bits in increasing order.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+
+            private int pos = 0;
+
+            private long word = count > 0 ? words[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0) {
+                    if (++pos >= count) {
+                        return false;
+                    }
+                    word = words[pos];
+                }
+                return true;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int index = (blocks[pos] << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return index;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach(i -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(i);
+        });
+        return sb.append('}').toString();
+    }
+}
@@ -22,8 +22,17 @@
 
 package pascal.taie.analysis.pta;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.pta.ci.CIPTA;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class CIPTATest {
 
@@ -78,4 +87,116 @@ public class CIPTATest {
     public void testMergeParam() {
         Tests.testCIPTA(DIR, "MergeParam");
     }
+
+    @Test
+    public void testBitPointsToSet() {
+        Tests.testCIPTA(DIR, "Example", "points-to-set:bitset");
+        Tests.testCIPTA(DIR, "Array", "points-to-set:bitset");
+        Tests.testCIPTA(DIR, "InstanceField", "points-to-set:bitset");
+        // word-level diffs of bit sets in the outboxes of parallel propagation
+        Tests.testCIPTA(DIR, "Call", "points-to-set:bitset;parallelism:4");
+    }
+
+    @Test
+    public void testParallel() {
+        Tests.testCIPTA(DIR, "Example", "parallelism:4");
+        Tests.testCIPTA(DIR, "Call", "parallelism:4");
+        Tests.testCIPTA(DIR, "InstanceField", "parallelism:4");
+    }
+
+    @Test
+    public void testWorkListPolicies() {
+        Tests.testCIPTA(DIR, "Example", "work-list:lifo");
+        Tests.testCIPTA(DIR, "Example", "work-list:lrf");
+        Tests.testCIPTA(DIR, "Example", "work-list:topo");
+    }
+
+    @Test
+    public void testTypeMergingHeapModel() {
+        // without merged types, the model is the same as allocation-site
+        Tests.testCIPTA(DIR, "Example", "heap-model:type-merging");
+    }
+
+    @Test
+    public void testMergeTypes() {
+        PointerAnalysisResult result = runTypeMerging("merge-types:TypeMerging$A");
+        assertMerged(result, "a1", "a2");
+        assertNotMerged(result, "b1", "b2");
+        assertNotMerged(result, "o1", "o2");
+    }
+
+    @Test
+    public void testMergeLibraryTypes() {
+        PointerAnalysisResult result = runTypeMerging("merge-library-types:true");
+        assertMerged(result, "o1", "o2");
+        assertNotMerged(result, "a1", "a2");
+        assertNotMerged(result, "b1", "b2");
+    }
+
+    private static PointerAnalysisResult runTypeMerging(String option) {
+        Main.main(new String[]{
+                "-pp", "-cp", "src/test/resources/pta/" + DIR,
+                "-m", "TypeMerging", "-a", CIPTA.ID +
+                "=implicit-entries:false;only-app:true;heap-model:type-merging;" + option});
+        return World.get().getResult(CIPTA.ID);
+    }
+
+    private static void assertMerged(
+            PointerAnalysisResult result, String name1, String name2) {
+        Set<Obj> pts = result.getPointsToSet(getVar(result, name1));
+        Assert.assertEquals(1, pts.size());
+        Assert.assertEquals(pts, result.getPointsToSet(getVar(result, name2)));
+    }
+
+    private static void assertNotMerged(
+            PointerAnalysisResult result, String name1, String name2) {
+        Assert.assertNotEquals(result.getPointsToSet(getVar(result, name1)),
+                result.getPointsToSet(getVar(result, name2)));
+    }
+
+    @Test
+    public void testTypeFilter() {
+        PointerAnalysisResult result = runTypeFilter(true);
+        // objects of other types are filtered out by the cast
+        Assert.assertEquals(Set.of("TypeFilter$B"), getTypesOf(result, "b"));
+        // A objects cannot flow into B[] by the covariant array store
+        Assert.assertEquals(Set.of(), getTypesOf(result, "e"));
+
+        result = runTypeFilter(false);
+        Assert.assertEquals(Set.of("TypeFilter$A", "TypeFilter$B"),
+                getTypesOf(result, "b"));
+        Assert.assertEquals(Set.of("TypeFilter$A"), getTypesOf(result, "e"));
+    }
+
+    private static PointerAnalysisResult runTypeFilter(boolean filterTypes) {
+        Main.main(new String[]{
+                "-pp", "-cp", "src/test/resources/pta/" + DIR,
+                "-m", "TypeFilter", "-a", CIPTA.ID +
+                "=implicit-entries:false;only-app:true;type-filter:" + filterTypes});
+        return World.get().getResult(CIPTA.ID);
+    }
+
+    /**
+     * @return the types of the objects pointed to by the variable of
+     * given name in the main method.
+     */
+    private static Set<String> getTypesOf(PointerAnalysisResult result, String name) {
+        return result.getPointsToSet(getVar(result, name))
+                .stream()
+                .map(Obj::getType)
+                .map(Object::toString)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the variable of given name in the main method.
+     */
+    private static Var getVar(PointerAnalysisResult result, String name) {
+        return result.getVars()
+                .stream()
+                .filter(v -> v.getName().equals(name) &&
+                        v.getMethod().getName().equals("main"))
+                .findFirst()
+                .orElseThrow();
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.ci;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class CheckpointTest {
+
+    private static final String DIR = "src/test/resources/pta/cipta";
+
+    private static final String CHECKPOINT = "output/cipta.ckpt";
+
+    @Test
+    public void testResume() throws IOException {
+        // Assign2 has a PFG cycle, which is collapsed into a representative
+        testResume("Assign2", false);
+        testResume("Example", false);
+    }
+
+    @Test
+    public void testResumeWithTypeFilter() throws IOException {
+        // the casts in TypeFilter add PFG edges with type filters
+        testResume("TypeFilter", true);
+        testResume("Assign2", true);
+    }
+
+    @Test
+    public void testRejectCheckpoint() throws IOException {
+        CIPTAResult expected = buildWorld("Assign2", false);
+        // save a checkpoint in the middle of solving with type filters
+        deleteCheckpoint();
+        Solver solver = newSolver(newOptions("Assign2", true));
+        solver.setStopAfter(1);
+        solver.solve();
+        Assert.assertTrue(solver.isStopped());
+        Assert.assertTrue(new File(CHECKPOINT).isFile());
+        // the key differs, thus the checkpoint is ignored
+        AnalysisOptions options = newOptions("Assign2", false);
+        solver = newSolver(options);
+        solver.solve();
+        Assert.assertFalse(solver.isResumed());
+        Assert.assertFalse(solver.isStopped());
+        new ResultProcessor(options).process(solver.getResult());
+        Assert.assertEquals(toStrings(expected), toStrings(solver.getResult()));
+    }
+
+    /**
+     * Stops the analysis of given program after 1, 2, 4, ... work-list
+     * entries until it reaches the fixed point, and checks that the analysis
+     * resumed from each checkpoint computes the same result as the
+     * uninterrupted analysis (and as the expected file if it exists).
+     */
+    private static void testResume(String main, boolean filterTypes)
+            throws IOException {
+        CIPTAResult expected = buildWorld(main, filterTypes);
+        AnalysisOptions options = newOptions(main, filterTypes);
+        int resumes = 0;
+        for (int entries = 1; ; entries *= 2) {
+            deleteCheckpoint();
+            Solver solver = newSolver(options);
+            solver.setStopAfter(entries);
+            solver.solve();
+            Assert.assertFalse(solver.isResumed());
+            if (!solver.isStopped()) {
+                break;
+            }
+            // the solver stopped with pending work-list entries,
+            // which are kept in the checkpoint
+            solver = newSolver(options);
+            solver.solve();
+            Assert.assertTrue(solver.isResumed());
+            Assert.assertFalse(solver.isStopped());
+            if (options.getString("action") != null) {
+                new ResultProcessor(options).process(solver.getResult());
+            }
+            Assert.assertEquals(toStrings(expected), toStrings(solver.getResult()));
+            ++resumes;
+        }
+        Assert.assertTrue(resumes > 0);
+    }
+
+    /**
+     * Builds the world for given program and analyzes it without checkpoints.
+     *
+     * @return the result of the uninterrupted analysis.
+     */
+    private static CIPTAResult buildWorld(String main, boolean filterTypes) {
+        Main.main(new String[]{
+                "-pp", "-cp", DIR, "-m", main, "-a", CIPTA.ID +
+                "=implicit-entries:false;only-app:true;type-filter:" + filterTypes});
+        return World.get().getResult(CIPTA.ID);
+    }
+
+    /**
+     * @return the options that enable checkpointing, and compare the result
+     * with the expected file of given program if the file exists.
+     */
+    private static AnalysisOptions newOptions(String main, boolean filterTypes) {
+        String expectedFile = Paths.get(DIR,
+                String.format("%s-%s-expected.txt", main, CIPTA.ID)).toString();
+        boolean compare = new File(expectedFile).isFile();
+        return new AnalysisConfig(CIPTA.ID,
+                "merge-string-constants", false,
+                "merge-string-objects", false,
+                "merge-string-builders", false,
+                "merge-exception-objects", true,
+                "type-filter", filterTypes,
+                "only-app", true,
+                "action", compare ? "compare" : null,
+                "file", compare ? expectedFile : null,
+                "checkpoint", CHECKPOINT).getOptions();
+    }
+
+    private static Solver newSolver(AnalysisOptions options) {
+        return new Solver(options,
+                new AllocationSiteBasedModel(options), PointsToSetFactory.hybrid());
+    }
+
+    private static void deleteCheckpoint() throws IOException {
+        Files.deleteIfExists(Paths.get(CHECKPOINT));
+    }
+
+    /**
+     * @return the points-to sets of all variables in given result as strings,
+     * as the objects given by different heap models are not equal.
+     */
+    private static Map<String, String> toStrings(CIPTAResult result) {
+        return result.getVars()
+                .stream()
+                .collect(Collectors.toMap(
+                        var -> var.getMethod() + "/" + var.getName(),
+                        var -> result.getPointsToSet(var)
+                                .stream()
+                                .map(Object::toString)
+                                .sorted()
+                                .toList()
+                                .toString()));
+    }
+}
@@ -0,0 +1,26 @@
+class TypeFilter {
+
+    public static void main(String[] args) {
+        Object a = new A();
+        Object o = a;
+        if (args.length > 0) {
+            o = new B();
+        }
+        // cast: the objects of other types are filtered out
+        B b = (B) o;
+        B[] barr = new B[10];
+        // covariant array store: A objects cannot be stored into B[]
+        arrayStore(barr, a);
+        Object e = barr[0];
+    }
+
+    private static void arrayStore(Object[] arr, Object o) {
+        arr[0] = o;
+    }
+
+    static class A {
+    }
+
+    static class B {
+    }
+}
@@ -0,0 +1,18 @@
+class TypeMerging {
+
+    public static void main(String[] args) {
+        A a1 = new A();
+        A a2 = new A();
+        B b1 = new B();
+        B b2 = new B();
+        // java.lang.Object is a library type
+        Object o1 = new Object();
+        Object o2 = new Object();
+    }
+
+    static class A {
+    }
+
+    static class B {
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core;
+
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a checkpoint of pointer analysis to a compact binary file,
+ * which can be read back by {@link CheckpointReader}.
+ * <p>
+ * A checkpoint starts with a header, followed by the sections written
+ * by the solver, which are opaque to this class:
+ * <pre>
+ * int    magic
+ * int    version
+ * string key
+ * int    #methods, then for each method:
+ *            string declaring class, string subsignature, long fingerprint
+ * int    #classes, then for each class:
+ *            string name, long fingerprint of its hierarchy
+ * ...    sections of the solver
+ * </pre>
+ * where each string is an int length followed by its UTF-8 bytes.
+ * The key identifies the analysis (e.g., the entry method, heap model
+ * and context sensitivity) that the checkpoint belongs to, and the
+ * fingerprints of methods tell whether their IR has changed since
+ * the checkpoint was written. The results of method dispatch and subtype
+ * checks also depend on the class hierarchy, thus the checkpoint records
+ * the fingerprints of the hierarchies of the classes that such results
+ * depend on, i.e., the types of the recorded objects (which include all
+ * receiver objects) and the declaring classes of the recorded methods.
+ * A checkpoint is reused only if none of them has changed. Changes that
+ * are visible through other classes (e.g., a new subclass that is only
+ * allocated in a method that has not been analyzed) do not invalidate
+ * the recorded results, as the analysis will process them when the
+ * corresponding methods are reached.
+ * <p>
+ * Methods and variables are written as indexes to the method table.
+ * Fields, types and objects are written in full when they first appear,
+ * and as indexes afterwards. An object is written as one of its allocation
+ * sites, from which the heap model gives back the object.
+ * <p>
+ * The checkpoint is written to a temporary file, which replaces the
+ * given file by {@link #commit()}, thus an interrupted writing does not
+ * destroy the last checkpoint.
+ */
+public class CheckpointWriter implements Closeable {
+
+    static final int MAGIC = 0x54435054; // "TCPT"
+
+    static final int VERSION = 2;
+
+    /**
+     * Options of heap models, which affect the objects in checkpoints.
+     */
+    private static final List<String> HEAP_OPTIONS = List.of(
+            "merge-types", "merge-library-types", "merge-type-consistent",
+            "merge-string-constants", "merge-string-objects",
+            "merge-string-builders", "merge-exception-objects");
+
+    /**
+     * Marks an element that is written in full.
+     */
+    static final int NEW_ELEMENT = -1;
+
+    /**
+     * Marks a null element.
+     */
+    static final int NULL_ELEMENT = -2;
+
+    /**
+     * Parameters of 64-bit FNV-1a hash, which computes fingerprints.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final File file;
+
+    private final File tmpFile;
+
+    private final DataOutputStream out;
+
+    private final Map<JMethod, Integer> methodIds = Maps.newMap();
+
+    private final Map<JField, Integer> fieldIds = Maps.newMap();
+
+    private final Map<Type, Integer> typeIds = Maps.newMap();
+
+    private final Map<Obj, Integer> objIds = Maps.newMap();
+
+    private boolean committed;
+
+    /**
+     * Creates a writer and writes the header of the checkpoint.
+     *
+     * @param key     the key of the analysis
+     * @param methods all methods referenced by the checkpoint
+     * @param classes the types of all objects referenced by the checkpoint.
+     *                The declaring classes of {@code methods} are added
+     *                by this writer.
+     */
+    public CheckpointWriter(File file, String key, Collection<JMethod> methods,
+                            Collection<JClass> classes) throws IOException {
+        this.file = file;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new AnalysisException("Failed to create directory " + dir);
+        }
+        tmpFile = new File(file.getPath() + ".tmp");
+        out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(key);
+        out.writeInt(methods.size());
+        for (JMethod method : methods) {
+            methodIds.put(method, methodIds.size());
+            writeString(method.getDeclaringClass().getName());
+            writeString(method.getSubsignature().toString());
+            out.writeLong(fingerprint(method.getIR()));
+        }
+        Set<JClass> allClasses = new LinkedHashSet<>(classes);
+        methods.forEach(m -> allClasses.add(m.getDeclaringClass()));
+        out.writeInt(allClasses.size());
+        for (JClass jclass : allClasses) {
+            writeString(jclass.getName());
+            out.writeLong(fingerprint(jclass));
+        }
+    }
+
+    /**
+     * @return the part of checkpoint keys that identifies given heap model,
+     * i.e., its class and the heap options in given options.
+     */
+    public static String getHeapModelKey(HeapModel heapModel,
+                                         AnalysisOptions options) {
+        StringBuilder key = new StringBuilder(heapModel.getClass().getName());
+        for (String option : HEAP_OPTIONS) {
+            key.append(';').append(option).append('=').append(options.get(option));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the fingerprint of given IR, which changes (with high
+     * probability) when any statement in the IR changes.
+     */
+    static long fingerprint(IR ir) {
+        long hash = FNV_OFFSET_BASIS;
+        for (Stmt stmt : ir) {
+            hash = hash(hash, stmt.toString());
+        }
+        return hash;
+    }
+
+    /**
+     * @return the fingerprint of the hierarchy of given class, which
+     * changes (with high probability) when the super types of the class
+     * or the methods declared in them change, i.e., when the results of
+     * method dispatch and subtype checks on the class may change.
+     */
+    static long fingerprint(JClass jclass) {
+        return fingerprint(jclass, FNV_OFFSET_BASIS, Sets.newSet());
+    }
+
+    private static long fingerprint(JClass jclass, long hash, Set<JClass> visited) {
+        if (jclass == null || !visited.add(jclass)) {
+            return hash;
+        }
+        hash = hash(hash, jclass.getName());
+        List<String> methods = jclass.getDeclaredMethods()
+                .stream()
+                .map(m -> (m.isAbstract() ? "abstract " : "") + m.getSubsignature())
+                .sorted()
+                .toList();
+        for (String method : methods) {
+            hash = hash(hash, method);
+        }
+        hash = fingerprint(jclass.getSuperClass(), hash, visited);
+        for (JClass iface : jclass.getInterfaces()) {
+            hash = fingerprint(iface, hash, visited);
+        }
+        return hash;
+    }
+
+    /**
+     * Adds given string and a line break to 64-bit FNV-1a hash.
+     */
+    private static long hash(long hash, String s) {
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return (hash ^ '\n') * FNV_PRIME;
+    }
+
+    public void writeInt(int i) throws IOException {
+        out.writeInt(i);
+    }
+
+    public void writeByte(int b) throws IOException {
+        out.writeByte(b);
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public void writeMethod(JMethod method) throws IOException {
+        Integer id = methodIds.get(method);
+        if (id == null) {
+            throw new AnalysisException(method + " is not in the method table");
+        }
+        out.writeInt(id);
+    }
+
+    public void writeVar(Var var) throws IOException {
+        writeMethod(var.getMethod());
+        out.writeInt(var.getIndex());
+    }
+
+    public void writeInvoke(Invoke invoke) throws IOException {
+        writeMethod(invoke.getContainer());
+        out.writeInt(invoke.getIndex());
+    }
+
+    public void writeField(JField field) throws IOException {
+        Integer id = fieldIds.get(field);
+        if (id != null) {
+            out.writeInt(id);
+        } else {
+            fieldIds.put(field, fieldIds.size());
+            out.writeInt(NEW_ELEMENT);
+            writeString(field.getDeclaringClass().getName());
+            writeString(field.getName());
+        }
+    }
+
+    /**
+     * Writes a type, which may be null.
+     */
+    public void writeType(@Nullable Type type) throws IOException {
+        if (type == null) {
+            out.writeInt(NULL_ELEMENT);
+            return;
+        }
+        Integer id = typeIds.get(type);
+        if (id != null) {
+            out.writeInt(id);
+        } else {
+            typeIds.put(type, typeIds.size());
+            out.writeInt(NEW_ELEMENT);
+            writeString(type.getName());
+        }
+    }
+
+    public void writeObj(Obj obj) throws IOException {
+        Integer id = objIds.get(obj);
+        if (id != null) {
+            out.writeInt(id);
+        } else {
+            objIds.put(obj, objIds.size());
+            out.writeInt(NEW_ELEMENT);
+            Obj allocObj = getAllocObj(obj);
+            if (allocObj == null || allocObj.getContainerMethod().isEmpty()) {
+                throw new AnalysisException(
+                        "Cannot write " + obj + " which has no allocation site");
+            }
+            writeMethod(allocObj.getContainerMethod().get());
+            out.writeInt(((New) allocObj.getAllocation()).getIndex());
+        }
+    }
+
+    /**
+     * @return an object allocated by a {@code New} statement, which is
+     * the given object itself or any object represented by it.
+     */
+    private static @Nullable Obj getAllocObj(Obj obj) {
+        Object allocation = obj.getAllocation();
+        if (allocation instanceof New) {
+            return obj;
+        }
+        if (allocation instanceof Set<?> objs) {
+            for (Object o : objs) {
+                if (o instanceof Obj represented) {
+                    Obj allocObj = getAllocObj(represented);
+                    if (allocObj != null) {
+                        return allocObj;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Commits the checkpoint, i.e., replaces the checkpoint file by
+     * the written one. Nothing is committed if this method is not called
+     * before closing the writer.
+     */
+    public void commit() throws IOException {
+        out.close();
+        Files.move(tmpFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            out.close();
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.core.heap;
+
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the type-consistent groups of abstract objects from the field
+ * points-to graph given by a pre-analysis.
+ * <p>
+ * Two objects are type-consistent if they have the same type, and for
+ * each field, the objects pointed to by their fields are type-consistent
+ * pairwise, i.e., the objects are indistinguishable by the types of the
+ * objects reachable from them via any field path. Merging type-consistent
+ * objects thus does not change the results of type-dependent clients,
+ * such as call graph construction and cast checking.
+ * <p>
+ * The groups are computed by partition refinement: objects are first
+ * partitioned by their types, then each block is split by the blocks of
+ * the objects pointed to by each field, until no block can be split.
+ * The result is a bisimulation of the field points-to graph, which is
+ * no coarser than the equivalence of the reachable type sequences.
+ */
+public class TypeConsistency {
+
+    private TypeConsistency() {
+    }
+
+    /**
+     * @param objs          the objects to be grouped
+     * @param fieldPointsTo map from (object, field key) to the objects
+     *                      pointed to by the field of the object. The field
+     *                      keys are usually fields, and the elements of
+     *                      arrays can use any other key that is distinct
+     *                      from fields.
+     * @return the groups of type-consistent objects allocated by
+     * {@code New} statements, in the order of {@code objs}. Singleton
+     * groups are excluded.
+     */
+    public static List<List<Obj>> computeGroups(
+            Collection<Obj> objs, TwoKeyMap<Obj, Object, Set<Obj>> fieldPointsTo) {
+        // number all objects, including the ones only pointed to by fields
+        Map<Obj, Integer> ids = new LinkedHashMap<>();
+        objs.forEach(o -> ids.putIfAbsent(o, ids.size()));
+        fieldPointsTo.values().forEach(pts ->
+                pts.forEach(o -> ids.putIfAbsent(o, ids.size())));
+        List<Obj> objList = new ArrayList<>(ids.keySet());
+        int n = objList.size();
+        // initial partition by type
+        int[] blocks = new int[n];
+        Map<Object, Integer> blockIds = Maps.newMap();
+        for (int i = 0; i < n; ++i) {
+            blocks[i] = blockIds.computeIfAbsent(
+                    objList.get(i).getType(), t -> blockIds.size());
+        }
+        int numberOfBlocks = blockIds.size();
+        while (true) {
+            blockIds.clear();
+            int[] newBlocks = new int[n];
+            for (int i = 0; i < n; ++i) {
+                Obj obj = objList.get(i);
+                List<Object> signature = new ArrayList<>();
+                signature.add(blocks[i]);
+                Map<Object, Set<Obj>> fields = fieldPointsTo.get(obj);
+                if (fields != null) {
+                    Map<Object, List<Integer>> fieldBlocks = Maps.newMap();
+                    fields.forEach((field, pts) -> {
+                        if (!pts.isEmpty()) {
+                            fieldBlocks.put(field, pts.stream()
+                                    .map(o -> blocks[ids.get(o)])
+                                    .distinct()
+                                    .sorted()
+                                    .toList());
+                        }
+                    });
+                    signature.add(fieldBlocks);
+                }
+                newBlocks[i] = blockIds.computeIfAbsent(
+                        signature, s -> blockIds.size());
+            }
+            System.arraycopy(newBlocks, 0, blocks, 0, n);
+            if (blockIds.size() == numberOfBlocks) {
+                break;
+            }
+            numberOfBlocks = blockIds.size();
+        }
+        // collect groups of objects allocated by New statements
+        List<List<Obj>> members = new ArrayList<>(
+                Collections.nCopies(numberOfBlocks, null));
+        for (int i = 0; i < n; ++i) {
+            Obj obj = objList.get(i);
+            if (obj instanceof NewObj) {
+                List<Obj> group = members.get(blocks[i]);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    members.set(blocks[i], group);
+                }
+                group.add(obj);
+            }
+        }
+        List<List<Obj>> groups = new ArrayList<>();
+        for (List<Obj> group : members) {
+            if (group != null && group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+}
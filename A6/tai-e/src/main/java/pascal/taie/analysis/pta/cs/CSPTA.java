@@ -24,17 +24,29 @@ package pascal.taie.analysis.pta.cs;
 
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.element.ArrayIndex;
+import pascal.taie.analysis.pta.core.cs.element.InstanceField;
 import pascal.taie.analysis.pta.core.cs.selector.CISelector;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
 import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.core.heap.HeapModel;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.core.heap.TypeConsistency;
+import pascal.taie.analysis.pta.core.heap.TypeMergingHeapModel;
 import pascal.taie.analysis.pta.plugin.ResultProcessor;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.config.AnalysisOptions;
 import pascal.taie.config.ConfigException;
 import pascal.taie.util.Strings;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Context-sensitive pointer analysis.
@@ -43,6 +55,11 @@ public class CSPTA extends ProgramAnalysis {
 
     public static final String ID = "cspta";
 
+    /**
+     * Field key of array elements in field points-to graph.
+     */
+    private static final Object ARRAY_INDEX = "[*]";
+
     public CSPTA(AnalysisConfig config) {
         super(config);
     }
@@ -50,8 +67,7 @@ public class CSPTA extends ProgramAnalysis {
     @Override
     public PointerAnalysisResult analyze() {
         AnalysisOptions options = getOptions();
-        Solver solver = new Solver(options,
-                new AllocationSiteBasedModel(options),
+        Solver solver = new Solver(options, newHeapModel(options),
                 getContextSelector(options.getString("cs")));
         solver.solve();
         PointerAnalysisResult result = solver.getResult();
@@ -59,6 +75,54 @@ public class CSPTA extends ProgramAnalysis {
         return result;
     }
 
+    /**
+     * Creates the heap model specified by option heap-model:
+     * "allocation-site" (default) or "type-merging". For the latter,
+     * if option merge-type-consistent is true, then a context-insensitive
+     * pre-analysis with allocation-site based model is run to find
+     * type-consistent objects.
+     */
+    private static HeapModel newHeapModel(AnalysisOptions options) {
+        String heapModel = options.getString("heap-model");
+        if (heapModel == null || heapModel.equals("allocation-site")) {
+            return new AllocationSiteBasedModel(options);
+        } else if (heapModel.equals("type-merging")) {
+            List<List<Obj>> groups =
+                    options.getBooleanOrDefault("merge-type-consistent", false) ?
+                            computeTypeConsistentGroups(options) : List.of();
+            return new TypeMergingHeapModel(options, groups);
+        } else {
+            throw new ConfigException("Unknown heap model: " + heapModel);
+        }
+    }
+
+    private static List<List<Obj>> computeTypeConsistentGroups(
+            AnalysisOptions options) {
+        Solver preSolver = new Solver(options,
+                new AllocationSiteBasedModel(options), new CISelector());
+        String checkpoint = options.getString("checkpoint");
+        if (checkpoint != null) {
+            // the pre-analysis keeps its own checkpoint
+            preSolver.setCheckpointFile(new File(checkpoint + ".pre"));
+        }
+        preSolver.solve();
+        PointerAnalysisResult preResult = preSolver.getResult();
+        TwoKeyMap<Obj, Object, Set<Obj>> fieldPointsTo = Maps.newTwoKeyMap();
+        for (InstanceField field : preResult.getInstanceFields()) {
+            Set<Obj> pts = fieldPointsTo.computeIfAbsent(
+                    field.getBase().getObject(), field.getField(),
+                    (o, f) -> Sets.newHybridSet());
+            field.getPointsToSet().forEach(csObj -> pts.add(csObj.getObject()));
+        }
+        for (ArrayIndex index : preResult.getArrayIndexes()) {
+            Set<Obj> pts = fieldPointsTo.computeIfAbsent(
+                    index.getArray().getObject(), ARRAY_INDEX,
+                    (o, f) -> Sets.newHybridSet());
+            index.getPointsToSet().forEach(csObj -> pts.add(csObj.getObject()));
+        }
+        return TypeConsistency.computeGroups(preResult.getObjects(), fieldPointsTo);
+    }
+
     private static ContextSelector getContextSelector(String cs) {
         if (cs.equals("ci")) {
             return new CISelector();
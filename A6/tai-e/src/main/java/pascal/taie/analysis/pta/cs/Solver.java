@@ -30,8 +30,11 @@ import pascal.taie.analysis.graph.callgraph.CallKind;
 import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
 import pascal.taie.analysis.pta.PointerAnalysisResultImpl;
+import pascal.taie.analysis.pta.core.CheckpointReader;
+import pascal.taie.analysis.pta.core.CheckpointWriter;
 import pascal.taie.analysis.pta.core.cs.CSCallGraph;
 import pascal.taie.analysis.pta.core.cs.context.Context;
+import pascal.taie.analysis.pta.core.cs.context.ListContext;
 import pascal.taie.analysis.pta.core.cs.element.*;
 import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
 import pascal.taie.analysis.pta.core.heap.HeapModel;
@@ -39,12 +42,26 @@ import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.analysis.pta.pts.PointsToSet;
 import pascal.taie.analysis.pta.pts.PointsToSetFactory;
 import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.*;
+import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
 import pascal.taie.language.type.Type;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 class Solver {
 
@@ -66,23 +83,122 @@ class Solver {
 
     private PointerAnalysisResult result;
 
+    /**
+     * The checkpoint file, or null if checkpointing is disabled.
+     */
+    private File checkpointFile;
+
+    /**
+     * Interval between checkpoints, in nanoseconds.
+     */
+    private final long checkpointInterval;
+
+    /**
+     * Time of last checkpoint, by {@link System#nanoTime()}.
+     */
+    private long lastCheckpoint;
+
+    /**
+     * Whether the analysis is resumed from a checkpoint.
+     */
+    private boolean resumed;
+
+    /**
+     * Number of polled work-list entries after which the solver stops,
+     * or -1 if the solver runs to the fixed point.
+     *
+     * @see #setStopAfter(int)
+     */
+    private int stopAfter = -1;
+
+    /**
+     * Whether the last {@link #solve()} stopped before the fixed point.
+     */
+    private boolean stopped;
+
+    /**
+     * Supported options:
+     * <ul>
+     *     <li>work-list: scheduling policy of work list (default fifo)</li>
+     *     <li>checkpoint: path of the checkpoint file. If given, the analysis
+     *     resumes from the checkpoint (if it is valid), writes checkpoints
+     *     periodically, and writes a final checkpoint after solving.</li>
+     *     <li>checkpoint-interval: seconds between checkpoints (default 600)</li>
+     * </ul>
+     */
     Solver(AnalysisOptions options, HeapModel heapModel,
            ContextSelector contextSelector) {
         this.options = options;
         this.heapModel = heapModel;
         this.contextSelector = contextSelector;
+        String checkpoint = options.getString("checkpoint");
+        this.checkpointFile = checkpoint == null ? null : new File(checkpoint);
+        int interval = options.get("checkpoint-interval") == null ?
+                600 : options.getInt("checkpoint-interval");
+        if (interval < 1) {
+            throw new ConfigException(
+                    "checkpoint-interval must be positive, given: " + interval);
+        }
+        this.checkpointInterval = TimeUnit.SECONDS.toNanos(interval);
+    }
+
+    /**
+     * Sets the checkpoint file, which overrides option checkpoint.
+     * This should be called before {@link #solve()}.
+     *
+     * @param checkpointFile the checkpoint file, or null to disable
+     *                       checkpointing
+     */
+    void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * @return true if the last {@link #solve()} resumed from a checkpoint.
+     */
+    boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Makes {@link #solve()} stop after polling given number of work-list
+     * entries, if the work list is not empty yet, and then save a checkpoint
+     * (if enabled) with the pending entries. This is for testing resuming
+     * from the checkpoints taken in the middle of solving.
+     */
+    void setStopAfter(int entries) {
+        this.stopAfter = entries;
+    }
+
+    /**
+     * @return true if the last {@link #solve()} stopped before the fixed
+     * point, as requested by {@link #setStopAfter(int)}.
+     */
+    boolean isStopped() {
+        return stopped;
     }
 
     void solve() {
         initialize();
         analyze();
+        if (checkpointFile != null) {
+            saveCheckpoint();
+        }
     }
 
     private void initialize() {
         csManager = new MapBasedCSManager();
         callGraph = new CSCallGraph(csManager);
         pointerFlowGraph = new PointerFlowGraph();
-        workList = new WorkList();
+        workList = new WorkList(WorkListPolicy.get(
+                options.getString("work-list"), pointerFlowGraph));
+        lastCheckpoint = System.nanoTime();
+        stopped = false;
+        resumed = false;
+        if (checkpointFile != null && resume()) {
+            resumed = true;
+            return;
+        }
         // process program entry, i.e., main method
         Context defContext = contextSelector.getEmptyContext();
         JMethod main = World.get().getMainMethod();
@@ -244,6 +360,7 @@ class Solver {
     private void analyze() {
         // TODO - finish me
         // 对应 Solve 中的循环部分
+        int polledEntries = 0;
         while (!workList.isEmpty()) { // 如果 WL 不为空
             WorkList.Entry entry = workList.pollEntry(); // 获取 WL 中的第一个元素
             Pointer n = entry.pointer(); // 获取 entry 的指针
@@ -279,6 +396,12 @@ class Solver {
                     processCall(csVar, o); // 处理 csVar 调用的实例方法
                 }
             }
+            saveCheckpointIfDue();
+            if (stopAfter >= 0 && ++polledEntries >= stopAfter
+                    && !workList.isEmpty()) {
+                stopped = true;
+                return;
+            }
         }
     }
 
@@ -370,6 +493,349 @@ class Solver {
         return CallGraphs.resolveCallee(type, callSite);
     }
 
+    /**
+     * @return the key of checkpoints, which identifies the entry method
+     * and the configurations that affect the results of the analysis.
+     */
+    private String getCheckpointKey() {
+        return "cspta;" + World.get().getMainMethod().getSignature()
+                + ";" + CheckpointWriter.getHeapModelKey(heapModel, options)
+                + ";" + contextSelector.getClass().getName();
+    }
+
+    private void saveCheckpointIfDue() {
+        if (checkpointFile != null &&
+                System.nanoTime() - lastCheckpoint >= checkpointInterval) {
+            saveCheckpoint();
+        }
+    }
+
+    /**
+     * @return all pointers, in the order of being written to checkpoints.
+     */
+    private List<Pointer> getPointers() {
+        List<Pointer> pointers = new ArrayList<>(csManager.getCSVars());
+        pointers.addAll(csManager.getStaticFields());
+        pointers.addAll(csManager.getInstanceFields());
+        pointers.addAll(csManager.getArrayIndexes());
+        return pointers;
+    }
+
+    /**
+     * Writes current state of the analysis to the checkpoint file.
+     * The sections after the header of {@link CheckpointWriter} are:
+     * <pre>
+     * entry methods:     int count, then CS methods
+     * reachable methods: int count, then CS methods
+     * call edges:        int count, then (CS call site, byte kind, CS method)
+     * pointers:          int count, then (byte kind, elements of the pointer)
+     * points-to sets:    for each pointer, int count, then CS objects
+     * PFG edges:         for each pointer, int count, then successor indexes
+     * work list:         int count, then (int pointer index, int count, CS objects)
+     * </pre>
+     * where contexts and CS objects are written in full when they first
+     * appear, and as indexes afterwards.
+     */
+    private void saveCheckpoint() {
+        logger.info("Saving pointer analysis checkpoint to {} ...", checkpointFile);
+        // 暂时取出 work list 中的所有条目, 写完后再放回
+        List<WorkList.Entry> entries = new ArrayList<>();
+        while (!workList.isEmpty()) {
+            entries.add(workList.pollEntry());
+        }
+        try (CheckpointWriter writer = new CheckpointWriter(checkpointFile,
+                getCheckpointKey(), callGraph.reachableMethods()
+                .map(CSMethod::getMethod).distinct().toList(),
+                getClassesOfObjs(entries))) {
+            CSWriter csWriter = new CSWriter(writer);
+            List<CSMethod> entryMethods = callGraph.entryMethods().toList();
+            writer.writeInt(entryMethods.size());
+            for (CSMethod csMethod : entryMethods) {
+                csWriter.writeCSMethod(csMethod);
+            }
+            writer.writeInt(callGraph.getNumberOfMethods());
+            for (CSMethod csMethod : callGraph.reachableMethods().toList()) {
+                csWriter.writeCSMethod(csMethod);
+            }
+            writer.writeInt(callGraph.getNumberOfEdges());
+            for (Edge<CSCallSite, CSMethod> edge : callGraph.edges().toList()) {
+                csWriter.writeContext(edge.getCallSite().getContext());
+                writer.writeInvoke(edge.getCallSite().getCallSite());
+                writer.writeByte(edge.getKind().ordinal());
+                csWriter.writeCSMethod(edge.getCallee());
+            }
+            List<Pointer> pointers = getPointers();
+            Map<Pointer, Integer> indexes = Maps.newMap(pointers.size());
+            writer.writeInt(pointers.size());
+            for (Pointer p : pointers) {
+                indexes.put(p, indexes.size());
+                csWriter.writePointer(p);
+            }
+            for (Pointer p : pointers) {
+                csWriter.writeCSObjs(p.getPointsToSet());
+            }
+            for (Pointer p : pointers) {
+                List<Pointer> succs = List.copyOf(pointerFlowGraph.getSuccsOf(p));
+                writer.writeInt(succs.size());
+                for (Pointer s : succs) {
+                    writer.writeInt(indexes.get(s));
+                }
+            }
+            writer.writeInt(entries.size());
+            for (WorkList.Entry entry : entries) {
+                writer.writeInt(indexes.get(entry.pointer()));
+                csWriter.writeCSObjs(entry.pointsToSet());
+            }
+            writer.commit();
+        } catch (IOException e) {
+            throw new AnalysisException(
+                    "Failed to save checkpoint to " + checkpointFile, e);
+        } finally {
+            entries.forEach(e -> workList.addEntry(e.pointer(), e.pointsToSet()));
+        }
+        lastCheckpoint = System.nanoTime();
+    }
+
+    /**
+     * @return the classes of the objects in the points-to sets of all
+     * pointers and given work list entries.
+     */
+    private Set<JClass> getClassesOfObjs(List<WorkList.Entry> entries) {
+        Set<JClass> classes = Sets.newSet();
+        for (Pointer p : getPointers()) {
+            addClassesOfObjs(p.getPointsToSet(), classes);
+        }
+        for (WorkList.Entry entry : entries) {
+            addClassesOfObjs(entry.pointsToSet(), classes);
+        }
+        return classes;
+    }
+
+    private static void addClassesOfObjs(PointsToSet pts, Set<JClass> classes) {
+        for (CSObj csObj : pts) {
+            if (csObj.getObject().getType() instanceof ClassType classType) {
+                classes.add(classType.getJClass());
+            }
+        }
+    }
+
+    /**
+     * Restores the state of the analysis from the checkpoint file.
+     * This must be called on the freshly initialized solver.
+     *
+     * @return true if the analysis is restored, or false if there is
+     * no valid checkpoint, and the solver is left unchanged.
+     * @see #saveCheckpoint()
+     */
+    private boolean resume() {
+        try (CheckpointReader reader = CheckpointReader.open(
+                checkpointFile, getCheckpointKey(), heapModel)) {
+            if (reader == null) {
+                return false;
+            }
+            logger.info("Resuming pointer analysis from checkpoint {} ...", checkpointFile);
+            CSReader csReader = new CSReader(reader);
+            for (int i = reader.readInt(); i > 0; --i) {
+                callGraph.addEntryMethod(csReader.readCSMethod());
+            }
+            for (int i = reader.readInt(); i > 0; --i) {
+                callGraph.addReachableMethod(csReader.readCSMethod());
+            }
+            CallKind[] kinds = CallKind.values();
+            for (int i = reader.readInt(); i > 0; --i) {
+                CSCallSite csCallSite = csManager.getCSCallSite(
+                        csReader.readContext(), reader.readInvoke());
+                CallKind kind = kinds[reader.readByte()];
+                callGraph.addEdge(new Edge<>(kind, csCallSite, csReader.readCSMethod()));
+            }
+            int n = reader.readInt();
+            List<Pointer> pointers = new ArrayList<>(n);
+            for (int i = 0; i < n; ++i) {
+                pointers.add(csReader.readPointer());
+            }
+            for (Pointer p : pointers) {
+                csReader.readCSObjs(p.getPointsToSet());
+            }
+            for (Pointer p : pointers) {
+                for (int i = reader.readInt(); i > 0; --i) {
+                    pointerFlowGraph.addEdge(p, pointers.get(reader.readInt()));
+                }
+            }
+            for (int i = reader.readInt(); i > 0; --i) {
+                Pointer p = pointers.get(reader.readInt());
+                PointsToSet pts = PointsToSetFactory.make();
+                csReader.readCSObjs(pts);
+                workList.addEntry(p, pts);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new AnalysisException(
+                    "Failed to resume from checkpoint " + checkpointFile, e);
+        }
+    }
+
+    /**
+     * Writes context-sensitive elements to checkpoints.
+     */
+    private static class CSWriter {
+
+        private final CheckpointWriter writer;
+
+        private final Map<Context, Integer> contextIds = Maps.newMap();
+
+        private final Map<CSObj, Integer> csObjIds = Maps.newMap();
+
+        private CSWriter(CheckpointWriter writer) {
+            this.writer = writer;
+        }
+
+        private void writeContext(Context context) throws IOException {
+            Integer id = contextIds.get(context);
+            if (id != null) {
+                writer.writeInt(id);
+                return;
+            }
+            contextIds.put(context, contextIds.size());
+            writer.writeInt(-1);
+            writer.writeInt(context.getLength());
+            for (int i = 0; i < context.getLength(); ++i) {
+                Object elem = context.getElementAt(i);
+                if (elem instanceof Invoke invoke) {
+                    writer.writeByte(0);
+                    writer.writeInvoke(invoke);
+                } else if (elem instanceof Obj obj) {
+                    writer.writeByte(1);
+                    writer.writeObj(obj);
+                } else if (elem instanceof Type type) {
+                    writer.writeByte(2);
+                    writer.writeType(type);
+                } else {
+                    throw new AnalysisException(
+                            "Cannot write context element " + elem);
+                }
+            }
+        }
+
+        private void writeCSObj(CSObj csObj) throws IOException {
+            Integer id = csObjIds.get(csObj);
+            if (id != null) {
+                writer.writeInt(id);
+                return;
+            }
+            csObjIds.put(csObj, csObjIds.size());
+            writer.writeInt(-1);
+            writeContext(csObj.getContext());
+            writer.writeObj(csObj.getObject());
+        }
+
+        private void writeCSObjs(PointsToSet pts) throws IOException {
+            writer.writeInt(pts.size());
+            for (CSObj csObj : pts) {
+                writeCSObj(csObj);
+            }
+        }
+
+        private void writeCSMethod(CSMethod csMethod) throws IOException {
+            writeContext(csMethod.getContext());
+            writer.writeMethod(csMethod.getMethod());
+        }
+
+        private void writePointer(Pointer pointer) throws IOException {
+            if (pointer instanceof CSVar csVar) {
+                writer.writeByte(0);
+                writeContext(csVar.getContext());
+                writer.writeVar(csVar.getVar());
+            } else if (pointer instanceof StaticField staticField) {
+                writer.writeByte(1);
+                writer.writeField(staticField.getField());
+            } else if (pointer instanceof InstanceField instanceField) {
+                writer.writeByte(2);
+                writeCSObj(instanceField.getBase());
+                writer.writeField(instanceField.getField());
+            } else if (pointer instanceof ArrayIndex arrayIndex) {
+                writer.writeByte(3);
+                writeCSObj(arrayIndex.getArray());
+            } else {
+                throw new AnalysisException("Unknown pointer: " + pointer);
+            }
+        }
+    }
+
+    /**
+     * Reads context-sensitive elements from checkpoints.
+     */
+    private class CSReader {
+
+        private final CheckpointReader reader;
+
+        private final List<Context> contexts = new ArrayList<>();
+
+        private final List<CSObj> csObjs = new ArrayList<>();
+
+        private CSReader(CheckpointReader reader) {
+            this.reader = reader;
+        }
+
+        private Context readContext() throws IOException {
+            int id = reader.readInt();
+            if (id != -1) {
+                return contexts.get(id);
+            }
+            Object[] elems = new Object[reader.readInt()];
+            for (int i = 0; i < elems.length; ++i) {
+                elems[i] = switch (reader.readByte()) {
+                    case 0 -> reader.readInvoke();
+                    case 1 -> reader.readObj();
+                    case 2 -> reader.readType();
+                    default -> throw new AnalysisException("Corrupted checkpoint "
+                            + checkpointFile + ": unknown context element");
+                };
+            }
+            Context context = ListContext.make(elems);
+            contexts.add(context);
+            return context;
+        }
+
+        private CSObj readCSObj() throws IOException {
+            int id = reader.readInt();
+            if (id != -1) {
+                return csObjs.get(id);
+            }
+            Context context = readContext();
+            CSObj csObj = csManager.getCSObj(context, reader.readObj());
+            csObjs.add(csObj);
+            return csObj;
+        }
+
+        private void readCSObjs(PointsToSet pts) throws IOException {
+            for (int i = reader.readInt(); i > 0; --i) {
+                pts.addObject(readCSObj());
+            }
+        }
+
+        private CSMethod readCSMethod() throws IOException {
+            Context context = readContext();
+            return csManager.getCSMethod(context, reader.readMethod());
+        }
+
+        private Pointer readPointer() throws IOException {
+            return switch (reader.readByte()) {
+                case 0 -> {
+                    Context context = readContext();
+                    yield csManager.getCSVar(context, reader.readVar());
+                }
+                case 1 -> csManager.getStaticField(reader.readField());
+                case 2 -> {
+                    CSObj base = readCSObj();
+                    yield csManager.getInstanceField(base, reader.readField());
+                }
+                case 3 -> csManager.getArrayIndex(readCSObj());
+                default -> throw new AnalysisException("Corrupted checkpoint "
+                        + checkpointFile + ": unknown pointer kind");
+            };
+        }
+    }
+
     PointerAnalysisResult getResult() {
         if (result == null) {
             result = new PointerAnalysisResultImpl(csManager, callGraph);
@@ -22,8 +22,16 @@
 
 package pascal.taie.analysis.pta;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.analysis.pta.cs.CSPTA;
+import pascal.taie.ir.exp.Var;
+
+import java.util.Set;
 
 public class CSPTATest {
 
@@ -93,4 +101,57 @@ public class CSPTATest {
     public void testArray() {
         Tests.testCSPTA(DIR, "Array");
     }
+
+    @Test
+    public void testWorkListPolicies() {
+        Tests.testCSPTA(DIR, "OneObject", "cs:1-obj", "work-list:lifo");
+        Tests.testCSPTA(DIR, "OneObject", "cs:1-obj", "work-list:lrf");
+        Tests.testCSPTA(DIR, "OneObject", "cs:1-obj", "work-list:topo");
+    }
+
+    @Test
+    public void testMergeTypeConsistent() {
+        PointerAnalysisResult result = runTypeConsistent(true);
+        assertMerged(result, "a1", "a2");
+        assertMerged(result, "b1", "b2");
+        assertNotMerged(result, "a1", "a3");
+
+        result = runTypeConsistent(false);
+        assertNotMerged(result, "a1", "a2");
+        assertNotMerged(result, "b1", "b2");
+    }
+
+    private static PointerAnalysisResult runTypeConsistent(boolean merge) {
+        Main.main(new String[]{
+                "-pp", "-cp", "src/test/resources/pta/" + DIR,
+                "-m", "TypeConsistent", "-a", CSPTA.ID +
+                "=implicit-entries:false;only-app:true;cs:1-obj;" +
+                "heap-model:type-merging;merge-type-consistent:" + merge});
+        return World.get().getResult(CSPTA.ID);
+    }
+
+    private static void assertMerged(
+            PointerAnalysisResult result, String name1, String name2) {
+        Set<Obj> pts = result.getPointsToSet(getVar(result, name1));
+        Assert.assertEquals(1, pts.size());
+        Assert.assertEquals(pts, result.getPointsToSet(getVar(result, name2)));
+    }
+
+    private static void assertNotMerged(
+            PointerAnalysisResult result, String name1, String name2) {
+        Assert.assertNotEquals(result.getPointsToSet(getVar(result, name1)),
+                result.getPointsToSet(getVar(result, name2)));
+    }
+
+    /**
+     * @return the variable of given name in the main method.
+     */
+    private static Var getVar(PointerAnalysisResult result, String name) {
+        return result.getVars()
+                .stream()
+                .filter(v -> v.getName().equals(name) &&
+                        v.getMethod().getName().equals("main"))
+                .findFirst()
+                .orElseThrow();
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.pta.cs;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.cs.selector.ContextSelector;
+import pascal.taie.analysis.pta.core.cs.selector._1CallSelector;
+import pascal.taie.analysis.pta.core.cs.selector._1ObjSelector;
+import pascal.taie.analysis.pta.core.cs.selector._2CallSelector;
+import pascal.taie.analysis.pta.core.cs.selector._2ObjSelector;
+import pascal.taie.analysis.pta.core.heap.AllocationSiteBasedModel;
+import pascal.taie.analysis.pta.plugin.ResultProcessor;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+public class CheckpointTest {
+
+    private static final String DIR = "src/test/resources/pta/cspta";
+
+    private static final String CHECKPOINT = "output/cspta.ckpt";
+
+    @Test
+    public void testResume() throws IOException {
+        // contexts of different kinds and lengths are interned again
+        testResume("OneObject", "1-obj", _1ObjSelector::new);
+        testResume("TwoObject", "2-obj", _2ObjSelector::new);
+        testResume("TwoCall", "2-call", _2CallSelector::new);
+    }
+
+    @Test
+    public void testRejectCheckpoint() throws IOException {
+        Tests.testCSPTA("cspta", "OneObject", "cs:1-obj");
+        PointerAnalysisResult expected = World.get().getResult(CSPTA.ID);
+        // save a checkpoint in the middle of solving with another selector
+        deleteCheckpoint();
+        Solver solver = newSolver(newOptions("OneObject", "1-call"),
+                new _1CallSelector());
+        solver.setStopAfter(1);
+        solver.solve();
+        Assert.assertTrue(solver.isStopped());
+        Assert.assertTrue(new File(CHECKPOINT).isFile());
+        // the key differs, thus the checkpoint is ignored
+        AnalysisOptions options = newOptions("OneObject", "1-obj");
+        solver = newSolver(options, new _1ObjSelector());
+        solver.solve();
+        Assert.assertFalse(solver.isResumed());
+        Assert.assertFalse(solver.isStopped());
+        ResultProcessor.process(options, solver.getResult());
+        Assert.assertEquals(toStrings(expected), toStrings(solver.getResult()));
+    }
+
+    /**
+     * Stops the analysis of given program after 1, 2, 4, ... work-list
+     * entries until it reaches the fixed point, and checks that the analysis
+     * resumed from each checkpoint computes the same result as the
+     * uninterrupted analysis and as the expected file.
+     */
+    private static void testResume(String main, String cs,
+                                   Supplier<ContextSelector> selector)
+            throws IOException {
+        Tests.testCSPTA("cspta", main, "cs:" + cs);
+        PointerAnalysisResult expected = World.get().getResult(CSPTA.ID);
+        AnalysisOptions options = newOptions(main, cs);
+        int resumes = 0;
+        for (int entries = 1; ; entries *= 2) {
+            deleteCheckpoint();
+            Solver solver = newSolver(options, selector.get());
+            solver.setStopAfter(entries);
+            solver.solve();
+            Assert.assertFalse(solver.isResumed());
+            if (!solver.isStopped()) {
+                break;
+            }
+            // the solver stopped with pending work-list entries,
+            // which are kept in the checkpoint
+            solver = newSolver(options, selector.get());
+            solver.solve();
+            Assert.assertTrue(solver.isResumed());
+            Assert.assertFalse(solver.isStopped());
+            ResultProcessor.process(options, solver.getResult());
+            Assert.assertEquals(toStrings(expected), toStrings(solver.getResult()));
+            ++resumes;
+        }
+        Assert.assertTrue(resumes > 0);
+    }
+
+    /**
+     * @return the options that enable checkpointing, and compare the result
+     * with the expected file of given program.
+     */
+    private static AnalysisOptions newOptions(String main, String cs) {
+        String expectedFile = Paths.get(DIR,
+                String.format("%s-%s-expected.txt", main, CSPTA.ID)).toString();
+        return new AnalysisConfig(CSPTA.ID,
+                "cs", cs,
+                "merge-string-constants", false,
+                "merge-string-objects", false,
+                "merge-string-builders", false,
+                "merge-exception-objects", true,
+                "only-app", true,
+                "action", "compare",
+                "file", expectedFile,
+                "checkpoint", CHECKPOINT).getOptions();
+    }
+
+    private static Solver newSolver(AnalysisOptions options,
+                                    ContextSelector selector) {
+        return new Solver(options, new AllocationSiteBasedModel(options), selector);
+    }
+
+    private static void deleteCheckpoint() throws IOException {
+        Files.deleteIfExists(Paths.get(CHECKPOINT));
+    }
+
+    /**
+     * @return the points-to sets of all CS variables in given result as
+     * strings, as the objects given by different heap models are not equal.
+     */
+    private static Map<String, String> toStrings(PointerAnalysisResult result) {
+        return result.getCSVars()
+                .stream()
+                .collect(Collectors.toMap(
+                        Object::toString,
+                        csVar -> result.getPointsToSet(csVar)
+                                .stream()
+                                .map(Object::toString)
+                                .sorted()
+                                .toList()
+                                .toString()));
+    }
+}
@@ -0,0 +1,25 @@
+class TypeConsistent {
+
+    public static void main(String[] args) {
+        A a1 = new A();
+        B b1 = new B();
+        a1.f = b1;
+        A a2 = new A();
+        B b2 = new B();
+        a2.f = b2;
+        // a3 is distinguished from a1 and a2 by the type of its field
+        A a3 = new A();
+        C c = new C();
+        a3.f = c;
+    }
+
+    static class A {
+        Object f;
+    }
+
+    static class B {
+    }
+
+    static class C {
+    }
+}
@@ -25,14 +25,20 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.callgraph.Edge;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
 import pascal.taie.analysis.graph.icfg.ICFGBuilder;
 import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.IncrementalICFG;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.util.AnalysisException;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Provides common functionalities for {@link InterDataflowAnalysis} implementations.
@@ -67,6 +73,25 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     protected void finish() {
     }
 
+    /**
+     * If the concrete analysis keeps data that are derived from the program
+     * (e.g., indexes of statements), then it can overwrite this method to
+     * refresh the data before an incremental update (see {@link #update}).
+     *
+     * @return the nodes that should be re-processed by the update.
+     */
+    protected Collection<Node> refresh() {
+        return List.of();
+    }
+
+    /**
+     * @return the index of given node in its containing method, which
+     * ranges from 0 to the number of nodes of the method - 1. The solver
+     * numbers ICFG nodes densely by the indexes (see
+     * {@link pascal.taie.analysis.graph.icfg.ICFGNumbering}).
+     */
+    protected abstract int getIndexOf(Node node);
+
     /**
      * Dispatches {@code Node} to specific node transfer functions for
      * call nodes and non-call nodes.
@@ -117,13 +142,54 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     protected abstract Fact transferReturnEdge(ReturnEdge<Node> edge, Fact returnOut);
     // ----------------------------------------------------------------
 
+    /**
+     * @return the ICFG to be analyzed, which is the result of {@link ICFGBuilder}
+     * by default. If the concrete analysis runs on another ICFG, e.g., an
+     * {@link IncrementalICFG} that is built on demand, then it can overwrite
+     * this method.
+     */
+    protected ICFG<Method, Node> getICFG() {
+        return World.get().getResult(ICFGBuilder.ID);
+    }
+
     @Override
     public Object analyze() {
-        icfg = World.get().getResult(ICFGBuilder.ID);
+        icfg = getICFG();
         initialize();
-        solver = new InterSolver<>(this, icfg);
+        solver = new InterSolver<>(this, icfg,
+                InterSolver.WorkListKind.of(getOptions().getString("worklist")),
+                this::getIndexOf);
         DataflowResult<Node, Fact> result = solver.solve();
         finish();
+        if (getOptions().getBooleanOrDefault("compact-result", false)) {
+            solver.compactResult();
+        }
+        return result;
+    }
+
+    /**
+     * Incrementally updates the result of {@link #analyze()} after call
+     * edges or entry methods are added to the call graph, e.g., when a
+     * plugin adds entry methods or the pointer analysis discovers more
+     * call targets. The existing facts are kept, and only the changes
+     * caused by the new edges and entries are propagated.
+     * <p>
+     * This requires the ICFG to be an {@link IncrementalICFG}, and the
+     * result must not be compacted.
+     *
+     * @param newCallEdges call edges that have been added to the call graph
+     * @param newEntries   entry methods that have been added to the call graph
+     * @return the updated result.
+     */
+    public DataflowResult<Node, Fact> update(
+            Collection<? extends Edge<? extends Node, Method>> newCallEdges,
+            Collection<Method> newEntries) {
+        if (solver == null) {
+            throw new AnalysisException("Cannot update before analyzing");
+        }
+        DataflowResult<Node, Fact> result =
+                solver.update(newCallEdges, newEntries, refresh());
+        finish();
         return result;
     }
 }
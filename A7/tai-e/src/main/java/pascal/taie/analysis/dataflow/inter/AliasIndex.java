@@ -0,0 +1,104 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alias relations among variables derived from pointer analysis result:
+ * two variables are aliases if their points-to sets intersect, and every
+ * variable is an alias of itself.
+ * <p>
+ * The aliases are computed from an inverted index that maps each object
+ * to the variables pointing to it, which costs time linear to the total
+ * size of the points-to sets, instead of comparing every pair of
+ * variables. The alias set of a variable is the union of the variables
+ * pointing to its objects, which may be as large as all variables, thus
+ * it is computed on demand when the variable is queried. Variables with
+ * the same points-to set have the same aliases, thus they share one
+ * alias set.
+ */
+final class AliasIndex {
+
+    private final PointerAnalysisResult pta;
+
+    /**
+     * Variables analyzed by pointer analysis.
+     */
+    private final Set<Var> vars;
+
+    /**
+     * Variables pointing to each object.
+     */
+    private final Map<Obj, Set<Var>> pointers = Maps.newMap();
+
+    /**
+     * Aliases of the queried variables. The sets are shared and unmodifiable.
+     */
+    private final Map<Var, Set<Var>> aliases = Maps.newConcurrentMap();
+
+    /**
+     * Alias sets of the points-to sets of the queried variables.
+     */
+    private final Map<Set<Obj>, Set<Var>> groups = Maps.newConcurrentMap();
+
+    AliasIndex(PointerAnalysisResult pta) {
+        this.pta = pta;
+        this.vars = Sets.newSet(pta.getVars().size());
+        for (Var var : pta.getVars()) {
+            vars.add(var);
+            for (Obj obj : pta.getPointsToSet(var)) {
+                pointers.computeIfAbsent(obj, __ -> Sets.newSet()).add(var);
+            }
+        }
+    }
+
+    /**
+     * @return the aliases of given variable (including itself), or
+     * an empty set if the variable is not analyzed by pointer analysis.
+     */
+    Set<Var> getAliases(Var var) {
+        if (!vars.contains(var)) {
+            return Set.of();
+        }
+        return aliases.computeIfAbsent(var, v -> {
+            Set<Obj> pts = pta.getPointsToSet(v);
+            return pts.isEmpty() ? Set.of(v) :
+                    groups.computeIfAbsent(pts, this::unionPointers);
+        });
+    }
+
+    private Set<Var> unionPointers(Set<Obj> objs) {
+        Set<Var> union = Sets.newSet();
+        objs.forEach(obj -> union.addAll(pointers.get(obj)));
+        return Collections.unmodifiableSet(union);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Index of the array stores and loads of a program, which relates each
+ * load to the stores that may write the loaded element, and vice versa.
+ * <p>
+ * The accesses are indexed by the abstract array objects pointed to by
+ * their base variables. For each array object, the accesses are further
+ * partitioned into buckets by the values of their indexes: a bucket for
+ * each constant index, and a bucket for non-constant (NAC) indexes.
+ * Accesses whose indexes are UNDEF do not match any access, thus they
+ * are not in any bucket. As the index values are computed by constant
+ * propagation, the clients should report the current index value of an
+ * access via {@link #updateStore} or {@link #updateLoad} when transferring
+ * the access, and the access moves to the right bucket.
+ * <p>
+ * Accesses whose base variables point to nothing are not indexed, and
+ * they only match the accesses on the same base variable.
+ * <p>
+ * Clients that evaluate index values on demand, instead of reporting
+ * them, can look up the stores on the same arrays as a load by
+ * {@link #getStoresOnSameArrays(LoadArray)} and match the indexes
+ * by {@link #mayMatch(Value, Value)}.
+ */
+final class ArrayAccessIndex {
+
+    private final PointerAnalysisResult pta;
+
+    private final AliasIndex aliases;
+
+    private final Map<Obj, Buckets<StoreArray>> storeBuckets = Maps.newConcurrentMap();
+
+    private final Map<Obj, Buckets<LoadArray>> loadBuckets = Maps.newConcurrentMap();
+
+    /**
+     * Current index values of the accesses.
+     */
+    private final Map<Object, Value> indexValues = Maps.newConcurrentMap();
+
+    /**
+     * Stores on the same arrays as each load, regardless of index values.
+     */
+    private final Map<LoadArray, Set<StoreArray>> storesOnSameArrays = Maps.newConcurrentMap();
+
+    ArrayAccessIndex(PointerAnalysisResult pta, AliasIndex aliases) {
+        this.pta = pta;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Two accesses may access the same element if neither index is UNDEF,
+     * and the indexes are equal or at least one of them is NAC.
+     */
+    static boolean mayMatch(Value i1, Value i2) {
+        if (i1.isUndef() || i2.isUndef()) {
+            return false;
+        }
+        if (i1.isConstant() && i2.isConstant()) {
+            return i1.equals(i2);
+        }
+        return true;
+    }
+
+    /**
+     * Updates the index value of given store.
+     *
+     * @return true if the index value is changed.
+     */
+    boolean updateStore(StoreArray store, Value index) {
+        return update(store, store.getArrayAccess().getBase(), index, storeBuckets);
+    }
+
+    /**
+     * Updates the index value of given load.
+     *
+     * @return true if the index value is changed.
+     */
+    boolean updateLoad(LoadArray load, Value index) {
+        return update(load, load.getArrayAccess().getBase(), index, loadBuckets);
+    }
+
+    private <S> boolean update(S access, Var base, Value index,
+                               Map<Obj, Buckets<S>> bucketsOfObjs) {
+        Value old = indexValues.getOrDefault(access, Value.getUndef());
+        if (old.equals(index)) {
+            return false;
+        }
+        indexValues.put(access, index);
+        for (Obj obj : pta.getPointsToSet(base)) {
+            Buckets<S> buckets = bucketsOfObjs.computeIfAbsent(obj, __ -> new Buckets<>());
+            // add to the new bucket before removing from the old one,
+            // so that concurrent queries do not miss the access
+            buckets.getBucket(index).add(access);
+            if (!old.isUndef()) {
+                buckets.getBucket(old).remove(access);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the stores that may write the element read by given load.
+     */
+    Collection<StoreArray> getRelatedStores(LoadArray load) {
+        return getRelated(load, load.getArrayAccess().getBase(),
+                storeBuckets, Var::getStoreArrays);
+    }
+
+    /**
+     * @return the loads that may read the element written by given store.
+     */
+    Collection<LoadArray> getRelatedLoads(StoreArray store) {
+        return getRelated(store, store.getArrayAccess().getBase(),
+                loadBuckets, Var::getLoadArrays);
+    }
+
+    private <S, T> Collection<T> getRelated(
+            S access, Var base, Map<Obj, Buckets<T>> bucketsOfObjs,
+            Function<Var, List<T>> accessesOfVar) {
+        Value index = indexValues.getOrDefault(access, Value.getUndef());
+        List<T> result = new ArrayList<>();
+        if (index.isUndef()) {
+            return result;
+        }
+        Set<Obj> pts = pta.getPointsToSet(base);
+        if (pts.isEmpty()) {
+            // the base only aliases itself (if it is analyzed by pointer analysis)
+            for (Var var : aliases.getAliases(base)) {
+                for (T other : accessesOfVar.apply(var)) {
+                    if (mayMatch(index, indexValues.getOrDefault(other, Value.getUndef()))) {
+                        result.add(other);
+                    }
+                }
+            }
+            return result;
+        }
+        for (Obj obj : pts) {
+            Buckets<T> buckets = bucketsOfObjs.get(obj);
+            if (buckets != null) {
+                buckets.collect(index, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the stores that may write the arrays read by given load,
+     * regardless of the index values of the accesses.
+     */
+    Set<StoreArray> getStoresOnSameArrays(LoadArray load) {
+        return storesOnSameArrays.computeIfAbsent(load, this::computeStoresOnSameArrays);
+    }
+
+    private Set<StoreArray> computeStoresOnSameArrays(LoadArray load) {
+        Set<StoreArray> stores = Sets.newSet();
+        for (Var var : aliases.getAliases(load.getArrayAccess().getBase())) {
+            stores.addAll(var.getStoreArrays());
+        }
+        return Collections.unmodifiableSet(stores);
+    }
+
+    /**
+     * Buckets of the accesses to an array object.
+     */
+    private static class Buckets<S> {
+
+        private final Map<Integer, Set<S>> constants = Maps.newConcurrentMap();
+
+        private final Set<S> nonConstants = Sets.newConcurrentSet();
+
+        private Set<S> getBucket(Value index) {
+            return index.isConstant() ?
+                    constants.computeIfAbsent(index.getConstant(), __ -> Sets.newConcurrentSet()) :
+                    nonConstants;
+        }
+
+        /**
+         * Collects the accesses that may match an access with given index.
+         */
+        private void collect(Value index, List<S> result) {
+            if (index.isConstant()) {
+                Set<S> bucket = constants.get(index.getConstant());
+                if (bucket != null) {
+                    result.addAll(bucket);
+                }
+            } else {
+                constants.values().forEach(result::addAll);
+            }
+            result.addAll(nonConstants);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.World;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGBuilder;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.ArrayAccess;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.LValue;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+
+import static pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation.canHoldInt;
+
+/**
+ * Demand-driven interprocedural constant propagation, which answers
+ * queries like "the value of variable v before statement s" without
+ * solving the whole ICFG.
+ * <p>
+ * Each query is an unknown of the data-flow equations of
+ * {@link InterConstantPropagation} (including the alias-aware handling
+ * of field and array loads). To answer a query, the equations are
+ * explored backwards through ICFG edges from the queried statement,
+ * and only the unknowns that the query transitively depends on are
+ * created and solved to a local fixed point. The solved unknowns are
+ * memoized and reused by later queries.
+ * <p>
+ * For a large set of queries, {@link #getValues(Collection)} solves the
+ * whole ICFG by {@link InterConstantPropagation} (with the same options)
+ * instead, which is cheaper than exploring most of the program query by
+ * query. The result of the full solve answers all later queries.
+ */
+public class DemandConstantPropagation {
+
+    /**
+     * A query for the value of {@code var} before {@code stmt}.
+     */
+    public record Query(Var var, Stmt stmt) {
+    }
+
+    /**
+     * Default number of queries above which a full solve is used.
+     */
+    public static final int DEFAULT_FULL_SOLVE_THRESHOLD = 1024;
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    /**
+     * Configuration of {@link InterConstantPropagation}, which is used
+     * by the full solve.
+     */
+    private final AnalysisConfig config;
+
+    private final String ptaId;
+
+    private final int fullSolveThreshold;
+
+    private final ConstantPropagation cp;
+
+    private final Set<Stmt> boundaries = Sets.newSet();
+
+    private AliasIndex aliases;
+
+    private FieldAccessIndex fieldAccesses;
+
+    private ArrayAccessIndex arrayAccesses;
+
+    /**
+     * Result of the full solve, or null if the whole ICFG is not solved.
+     */
+    private DataflowResult<Stmt, CPFact> fullResult;
+
+    /**
+     * Values of solved queries.
+     */
+    private final Map<Query, Value> solved = Maps.newMap();
+
+    // ---------- states of the query being solved ----------
+    private Map<Query, Value> values;
+
+    private MultiMap<Query, Query> dependents;
+
+    private Queue<Query> workList;
+
+    private Query evaluating;
+    // ------------------------------------------------------
+
+    /**
+     * @param config             configuration of {@link InterConstantPropagation},
+     *                           whose option "pta" gives the pointer analysis
+     *                           used to resolve field and array accesses.
+     * @param fullSolveThreshold the number of queries above which
+     *                           {@link #getValues(Collection)} solves the whole ICFG.
+     */
+    public DemandConstantPropagation(AnalysisConfig config, int fullSolveThreshold) {
+        this.icfg = World.get().getResult(ICFGBuilder.ID);
+        this.config = config;
+        this.ptaId = config.getOptions().getString("pta");
+        this.fullSolveThreshold = fullSolveThreshold;
+        cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
+        icfg.entryMethods().forEach(m -> boundaries.add(icfg.getEntryOf(m)));
+    }
+
+    public DemandConstantPropagation(AnalysisConfig config) {
+        this(config, DEFAULT_FULL_SOLVE_THRESHOLD);
+    }
+
+    /**
+     * @return the value of {@code var} before {@code stmt}, i.e., the value
+     * of {@code var} in the IN fact of {@code stmt}.
+     */
+    public Value getValue(Var var, Stmt stmt) {
+        if (!canHoldInt(var)) {
+            return Value.getUndef();
+        }
+        if (fullResult != null) {
+            return fullResult.getInFact(stmt).get(var);
+        }
+        Query query = new Query(var, stmt);
+        Value value = solved.get(query);
+        if (value == null) {
+            solve(query);
+            value = solved.get(query);
+        }
+        return value;
+    }
+
+    /**
+     * Answers a set of queries. If the number of queries exceeds the
+     * threshold, the whole ICFG is solved instead of exploring on demand.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Query, Value> getValues(Collection<Query> queries) {
+        if (fullResult == null && queries.size() > fullSolveThreshold) {
+            fullResult = (DataflowResult<Stmt, CPFact>)
+                    new InterConstantPropagation(config).analyze();
+        }
+        Map<Query, Value> result = Maps.newMap(queries.size());
+        queries.forEach(q -> result.put(q, getValue(q.var(), q.stmt())));
+        return result;
+    }
+
+    /**
+     * Solves the unknowns that given query depends on by a work-list,
+     * and memoizes all of them, as their values are final.
+     */
+    private void solve(Query query) {
+        values = Maps.newMap();
+        dependents = Maps.newMultiMap();
+        workList = new SetQueue<>();
+        values.put(query, Value.getUndef());
+        workList.add(query);
+        Query q;
+        while ((q = workList.poll()) != null) {
+            evaluating = q;
+            Value old = values.get(q);
+            Value value = cp.meetValue(old, evaluateIn(q.var(), q.stmt()));
+            if (!value.equals(old)) {
+                values.put(q, value);
+                workList.addAll(dependents.get(q));
+            }
+        }
+        solved.putAll(values);
+        values = null;
+        dependents = null;
+        workList = null;
+        evaluating = null;
+    }
+
+    /**
+     * @return current value of {@code var} before {@code stmt}, and records
+     * that the unknown being evaluated depends on it.
+     */
+    private Value get(Var var, Stmt stmt) {
+        if (!canHoldInt(var)) {
+            return Value.getUndef();
+        }
+        Query query = new Query(var, stmt);
+        Value value = solved.get(query);
+        if (value != null) {
+            return value;
+        }
+        dependents.put(query, evaluating);
+        value = values.get(query);
+        if (value == null) {
+            value = Value.getUndef();
+            values.put(query, value);
+            workList.add(query);
+        }
+        return value;
+    }
+
+    /**
+     * Evaluates the value of {@code var} in the IN fact of {@code stmt}
+     * by meeting the values flowing through the in-edges of the stmt.
+     */
+    private Value evaluateIn(Var var, Stmt stmt) {
+        Value value = Value.getUndef();
+        if (boundaries.contains(stmt)) {
+            IR ir = icfg.getContainingMethodOf(stmt).getIR();
+            if (ir.getParams().contains(var)) {
+                value = Value.getNAC();
+            }
+        }
+        for (ICFGEdge<Stmt> edge : icfg.getInEdgesOf(stmt)) {
+            value = cp.meetValue(value, evaluateEdge(edge, var));
+        }
+        return value;
+    }
+
+    private Value evaluateEdge(ICFGEdge<Stmt> edge, Var var) {
+        Stmt source = edge.getSource();
+        if (edge instanceof NormalEdge) {
+            return evaluateOut(var, source);
+        } else if (edge instanceof CallToReturnEdge) {
+            // the LHS variable of the call site is killed
+            return isDefinedBy(var, source) ? Value.getUndef() : get(var, source);
+        } else if (edge instanceof CallEdge<Stmt> callEdge) {
+            if (source instanceof Invoke invoke) {
+                InvokeExp invokeExp = invoke.getRValue();
+                IR calleeIR = callEdge.getCallee().getIR();
+                for (int i = 0; i < invokeExp.getArgCount(); ++i) {
+                    if (calleeIR.getParam(i).equals(var)) {
+                        return get(invokeExp.getArg(i), source);
+                    }
+                }
+            }
+            return Value.getUndef();
+        } else {
+            ReturnEdge<Stmt> returnEdge = (ReturnEdge<Stmt>) edge;
+            Value value = Value.getUndef();
+            if (isDefinedBy(var, returnEdge.getCallSite())) {
+                for (Var ret : returnEdge.getReturnVars()) {
+                    value = cp.meetValue(value, evaluateOut(ret, source));
+                }
+            }
+            return value;
+        }
+    }
+
+    private static boolean isDefinedBy(Var var, Stmt stmt) {
+        Optional<LValue> def = stmt.getDef();
+        return def.isPresent() && def.get().equals(var);
+    }
+
+    /**
+     * Evaluates the value of {@code var} in the OUT fact of {@code stmt}.
+     */
+    private Value evaluateOut(Var var, Stmt stmt) {
+        if (icfg.isCallSite(stmt) || !(stmt instanceof DefinitionStmt<?, ?> def)
+                || !var.equals(def.getLValue())) {
+            return get(var, stmt);
+        }
+        if (stmt instanceof LoadField load) {
+            Value value = Value.getUndef();
+            for (StoreField store : getFieldAccesses().getRelatedStores(load)) {
+                value = cp.meetValue(value, get(store.getRValue(), store));
+            }
+            return value;
+        }
+        if (stmt instanceof LoadArray load) {
+            ArrayAccess access = load.getArrayAccess();
+            Value index = get(access.getIndex(), load);
+            Value value = Value.getUndef();
+            for (StoreArray store : getArrayAccesses().getStoresOnSameArrays(load)) {
+                if (ArrayAccessIndex.mayMatch(index,
+                        get(store.getArrayAccess().getIndex(), store))) {
+                    value = cp.meetValue(value, get(store.getRValue(), store));
+                }
+            }
+            return value;
+        }
+        // evaluate the expression with the values of its operands
+        RValue rvalue = def.getRValue();
+        CPFact operands = new CPFact();
+        if (rvalue instanceof Var operand) {
+            operands.update(operand, get(operand, stmt));
+        } else if (rvalue instanceof BinaryExp binary) {
+            operands.update(binary.getOperand1(), get(binary.getOperand1(), stmt));
+            operands.update(binary.getOperand2(), get(binary.getOperand2(), stmt));
+        }
+        return ConstantPropagation.evaluate(rvalue, operands);
+    }
+
+    private AliasIndex getAliases() {
+        if (aliases == null) {
+            PointerAnalysisResult pta = World.get().getResult(ptaId);
+            aliases = new AliasIndex(pta);
+        }
+        return aliases;
+    }
+
+    private FieldAccessIndex getFieldAccesses() {
+        if (fieldAccesses == null) {
+            PointerAnalysisResult pta = World.get().getResult(ptaId);
+            fieldAccesses = new FieldAccessIndex(pta, getAliases(), icfg);
+        }
+        return fieldAccesses;
+    }
+
+    private ArrayAccessIndex getArrayAccesses() {
+        if (arrayAccesses == null) {
+            PointerAnalysisResult pta = World.get().getResult(ptaId);
+            arrayAccesses = new ArrayAccessIndex(pta, getAliases());
+        }
+        return arrayAccesses;
+    }
+}
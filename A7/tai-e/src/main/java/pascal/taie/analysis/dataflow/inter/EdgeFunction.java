@@ -0,0 +1,55 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+/**
+ * Edge functions of IDE (Interprocedural Distributive Environment)
+ * problems, which describe how the value associated with a fact is
+ * transformed along an edge of the exploded super graph.
+ * <p>
+ * Edge functions are immutable, and implementations must define
+ * {@link Object#equals(Object)} by the function they represent, as the
+ * solver detects convergence by comparing edge functions.
+ *
+ * @param <V> type of values
+ * @see IDEProblem
+ */
+public interface EdgeFunction<V> {
+
+    /**
+     * @return the result of applying this function to the given value.
+     */
+    V computeTarget(V source);
+
+    /**
+     * @return the function that applies this function first and
+     * then the {@code second} function.
+     */
+    EdgeFunction<V> composeWith(EdgeFunction<V> second);
+
+    /**
+     * @return the function that meets the results of this function
+     * and the {@code other} function.
+     */
+    EdgeFunction<V> meetWith(EdgeFunction<V> other);
+}
@@ -0,0 +1,182 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the field stores and loads of a program, which relates
+ * each load to the stores that may write the loaded field, and vice versa.
+ * <p>
+ * Instance field accesses are indexed by (abstract object, field), where
+ * the objects are the points-to set of the base variable, and static field
+ * accesses are indexed by field. The related statements of each access are
+ * computed on the first query and memoized.
+ */
+final class FieldAccessIndex {
+
+    private final PointerAnalysisResult pta;
+
+    private final AliasIndex aliases;
+
+    private final TwoKeyMap<Obj, JField, Set<StoreField>> instanceStores = Maps.newTwoKeyMap();
+
+    private final TwoKeyMap<Obj, JField, Set<LoadField>> instanceLoads = Maps.newTwoKeyMap();
+
+    private final Map<JField, Set<StoreField>> staticStores = Maps.newMap();
+
+    private final Map<JField, Set<LoadField>> staticLoads = Maps.newMap();
+
+    /**
+     * Memoized related stores of each load. The maps are concurrent,
+     * as the index may be queried by multiple solver threads.
+     */
+    private final Map<LoadField, Set<StoreField>> relatedStores = Maps.newConcurrentMap();
+
+    private final Map<StoreField, Set<LoadField>> relatedLoads = Maps.newConcurrentMap();
+
+    FieldAccessIndex(PointerAnalysisResult pta, AliasIndex aliases,
+                     Iterable<Stmt> stmts) {
+        this.pta = pta;
+        this.aliases = aliases;
+        addStmts(stmts);
+    }
+
+    /**
+     * Adds the field accesses in given statements to this index, e.g.,
+     * when the methods containing the statements are added to a lazily
+     * built ICFG. The memoized related statements are discarded if any
+     * field access is added, as they may miss the new accesses.
+     */
+    void addStmts(Iterable<Stmt> stmts) {
+        boolean added = false;
+        for (Stmt stmt : stmts) {
+            if (stmt instanceof StoreField store) {
+                added = true;
+                JField field = store.getFieldRef().resolve();
+                if (store.isStatic()) {
+                    staticStores.computeIfAbsent(field, __ -> Sets.newSet()).add(store);
+                } else {
+                    Var base = ((InstanceFieldAccess) store.getFieldAccess()).getBase();
+                    for (Obj obj : pta.getPointsToSet(base)) {
+                        instanceStores.computeIfAbsent(obj, field,
+                                (o, f) -> Sets.newSet()).add(store);
+                    }
+                }
+            } else if (stmt instanceof LoadField load) {
+                added = true;
+                JField field = load.getFieldRef().resolve();
+                if (load.isStatic()) {
+                    staticLoads.computeIfAbsent(field, __ -> Sets.newSet()).add(load);
+                } else {
+                    Var base = ((InstanceFieldAccess) load.getFieldAccess()).getBase();
+                    for (Obj obj : pta.getPointsToSet(base)) {
+                        instanceLoads.computeIfAbsent(obj, field,
+                                (o, f) -> Sets.newSet()).add(load);
+                    }
+                }
+            }
+        }
+        if (added) {
+            relatedStores.clear();
+            relatedLoads.clear();
+        }
+    }
+
+    /**
+     * @return the stores that may write the field read by given load.
+     */
+    Set<StoreField> getRelatedStores(LoadField load) {
+        return relatedStores.computeIfAbsent(load, this::computeRelatedStores);
+    }
+
+    private Set<StoreField> computeRelatedStores(LoadField load) {
+        JField field = load.getFieldRef().resolve();
+        if (load.isStatic()) {
+            return staticStores.getOrDefault(field, Set.of());
+        }
+        Var base = ((InstanceFieldAccess) load.getFieldAccess()).getBase();
+        Set<Obj> pts = pta.getPointsToSet(base);
+        Set<StoreField> stores = Sets.newSet();
+        if (pts.isEmpty()) {
+            // the base only aliases itself (if it is analyzed by pointer analysis)
+            for (Var var : aliases.getAliases(base)) {
+                for (StoreField store : var.getStoreFields()) {
+                    if (store.getFieldRef().resolve().equals(field)) {
+                        stores.add(store);
+                    }
+                }
+            }
+        } else {
+            for (Obj obj : pts) {
+                stores.addAll(instanceStores.getOrDefault(obj, field, Set.of()));
+            }
+        }
+        return Collections.unmodifiableSet(stores);
+    }
+
+    /**
+     * @return the loads that may read the field written by given store.
+     */
+    Set<LoadField> getRelatedLoads(StoreField store) {
+        return relatedLoads.computeIfAbsent(store, this::computeRelatedLoads);
+    }
+
+    private Set<LoadField> computeRelatedLoads(StoreField store) {
+        JField field = store.getFieldRef().resolve();
+        if (store.isStatic()) {
+            return staticLoads.getOrDefault(field, Set.of());
+        }
+        Var base = ((InstanceFieldAccess) store.getFieldAccess()).getBase();
+        Set<Obj> pts = pta.getPointsToSet(base);
+        Set<LoadField> loads = Sets.newSet();
+        if (pts.isEmpty()) {
+            for (Var var : aliases.getAliases(base)) {
+                for (LoadField load : var.getLoadFields()) {
+                    if (load.getFieldRef().resolve().equals(field)) {
+                        loads.add(load);
+                    }
+                }
+            }
+        } else {
+            for (Obj obj : pts) {
+                loads.addAll(instanceLoads.getOrDefault(obj, field, Set.of()));
+            }
+        }
+        return Collections.unmodifiableSet(loads);
+    }
+}
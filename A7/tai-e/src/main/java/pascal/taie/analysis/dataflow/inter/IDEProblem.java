@@ -0,0 +1,90 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+
+import java.util.Map;
+
+/**
+ * Template interface for defining forward IDE (Interprocedural
+ * Distributive Environment) problems, which are solved by {@link IDESolver}.
+ * <p>
+ * The data-flow facts of an IDE problem are environments that map facts
+ * of type {@code D} to values of type {@code V}. Each transfer function
+ * maps a fact holding at the source of an ICFG edge to the facts it
+ * generates at the target of the edge, and attaches to each generated
+ * fact an {@link EdgeFunction} that computes its value from the value
+ * of the source fact.
+ *
+ * @param <Node> type of ICFG nodes
+ * @param <D>    type of data-flow facts
+ * @param <V>    type of values associated with facts
+ */
+public interface IDEProblem<Node, D, V> {
+
+    /**
+     * @return the special fact that holds at every reachable node,
+     * from which other facts are generated.
+     */
+    D zeroValue();
+
+    /**
+     * @return the facts (and their values) holding at the entry nodes
+     * of the entry methods. The zero fact must be included.
+     */
+    Map<Node, Map<D, V>> initialSeeds();
+
+    /**
+     * @return the top value, i.e., no information.
+     */
+    V topValue();
+
+    /**
+     * Meets two values.
+     */
+    V meet(V v1, V v2);
+
+    /**
+     * @return the edge function that maps every value to itself.
+     */
+    EdgeFunction<V> identity();
+
+    /**
+     * @return the edge function that maps every value to top value.
+     */
+    EdgeFunction<V> allTop();
+
+    // ---------- transfer functions for specific ICFG edges ----------
+    Map<D, EdgeFunction<V>> transferNormalEdge(NormalEdge<Node> edge, D fact);
+
+    Map<D, EdgeFunction<V>> transferCallToReturnEdge(CallToReturnEdge<Node> edge, D fact);
+
+    Map<D, EdgeFunction<V>> transferCallEdge(CallEdge<Node> edge, D fact);
+
+    Map<D, EdgeFunction<V>> transferReturnEdge(ReturnEdge<Node> edge, D fact);
+    // ----------------------------------------------------------------
+}
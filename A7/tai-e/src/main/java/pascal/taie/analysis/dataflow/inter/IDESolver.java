@@ -0,0 +1,316 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Solver for IDE (Interprocedural Distributive Environment) problems,
+ * based on the algorithm by Sagiv, Reps and Horwitz.
+ * <p>
+ * Phase I computes jump functions, i.e., for each node {@code n} and fact
+ * {@code d2} holding at {@code n}, the edge functions from the facts
+ * {@code d1} at the entry of the method containing {@code n} to
+ * {@code d2}. When a callee exit is reached, the jump function is
+ * recorded as an end summary of the callee, which is reused at every
+ * call site that calls the callee with the same entry fact, instead of
+ * re-analyzing the callee for each calling context.
+ * <p>
+ * Phase II first propagates values to the entries of methods along
+ * call edges, and then computes the values at all other nodes by
+ * applying their jump functions to the values at method entries.
+ *
+ * @param <Method> type of methods
+ * @param <Node>   type of ICFG nodes
+ * @param <D>      type of data-flow facts
+ * @param <V>      type of values associated with facts
+ */
+class IDESolver<Method, Node, D, V> {
+
+    private final IDEProblem<Node, D, V> problem;
+
+    private final ICFG<Method, Node> icfg;
+
+    /**
+     * Jump functions: node -> target fact -> source fact -> edge function.
+     */
+    private final Map<Node, Map<D, Map<D, EdgeFunction<V>>>> jumpFunctions = Maps.newMap();
+
+    /**
+     * End summaries: callee entry -> entry fact -> exit fact -> edge function.
+     */
+    private final Map<Node, Map<D, Map<D, EdgeFunction<V>>>> endSummaries = Maps.newMap();
+
+    /**
+     * Incoming call edges: callee entry -> entry fact -> call edge
+     * -> facts at the call site that generate the entry fact.
+     */
+    private final Map<Node, Map<D, Map<CallEdge<Node>, Set<D>>>> incoming = Maps.newMap();
+
+    /**
+     * Call sites that are reached in each method.
+     */
+    private final Map<Method, Set<Node>> callSites = Maps.newMap();
+
+    private final Queue<PathEdge<Node, D>> workList = new SetQueue<>();
+
+    private final Map<Node, Map<D, V>> values = Maps.newMap();
+
+    IDESolver(IDEProblem<Node, D, V> problem, ICFG<Method, Node> icfg) {
+        this.problem = problem;
+        this.icfg = icfg;
+    }
+
+    void solve() {
+        computeJumpFunctions();
+        computeValues();
+    }
+
+    /**
+     * @return the value of given fact at given node, or top value
+     * if the fact does not hold at the node.
+     */
+    V getValue(Node node, D fact) {
+        return values.getOrDefault(node, Map.of())
+                .getOrDefault(fact, problem.topValue());
+    }
+
+    /**
+     * @return the facts holding at given node and their values.
+     */
+    Map<D, V> getValues(Node node) {
+        return Collections.unmodifiableMap(values.getOrDefault(node, Map.of()));
+    }
+
+    // ---------- Phase I: computing jump functions ----------
+    private void computeJumpFunctions() {
+        problem.initialSeeds().forEach((entry, seeds) ->
+                seeds.keySet().forEach(fact ->
+                        propagate(fact, entry, fact, problem.identity())));
+        PathEdge<Node, D> pathEdge;
+        while ((pathEdge = workList.poll()) != null) {
+            D source = pathEdge.source();
+            Node node = pathEdge.target();
+            D fact = pathEdge.fact();
+            EdgeFunction<V> f = getJumpFunction(node, fact, source);
+            if (icfg.isCallSite(node)) {
+                callSites.computeIfAbsent(icfg.getContainingMethodOf(node),
+                        __ -> Sets.newSet()).add(node);
+            }
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                if (edge instanceof NormalEdge<Node> normalEdge) {
+                    problem.transferNormalEdge(normalEdge, fact).forEach((target, ef) ->
+                            propagate(source, edge.getTarget(), target, f.composeWith(ef)));
+                } else if (edge instanceof CallToReturnEdge<Node> callToReturnEdge) {
+                    problem.transferCallToReturnEdge(callToReturnEdge, fact).forEach((target, ef) ->
+                            propagate(source, edge.getTarget(), target, f.composeWith(ef)));
+                } else if (edge instanceof CallEdge<Node> callEdge) {
+                    processCall(source, callEdge, fact, f);
+                }
+                // return edges are processed at exit nodes
+            }
+            Method method = icfg.getContainingMethodOf(node);
+            if (node.equals(icfg.getExitOf(method))) {
+                processExit(icfg.getEntryOf(method), source, node, fact, f);
+            }
+        }
+    }
+
+    /**
+     * Processes path edge from {@code source} to {@code fact}
+     * at the source of given call edge.
+     */
+    private void processCall(D source, CallEdge<Node> callEdge,
+                             D fact, EdgeFunction<V> f) {
+        Node calleeEntry = callEdge.getTarget();
+        problem.transferCallEdge(callEdge, fact).forEach((entryFact, callEF) -> {
+            propagate(entryFact, calleeEntry, entryFact, problem.identity());
+            incoming.computeIfAbsent(calleeEntry, __ -> Maps.newMap())
+                    .computeIfAbsent(entryFact, __ -> Maps.newMap())
+                    .computeIfAbsent(callEdge, __ -> Sets.newSet())
+                    .add(fact);
+            // apply existing summaries of the callee
+            Map<D, EdgeFunction<V>> summaries = endSummaries
+                    .getOrDefault(calleeEntry, Map.of())
+                    .getOrDefault(entryFact, Map.of());
+            if (!summaries.isEmpty()) {
+                Node calleeExit = icfg.getExitOf(
+                        icfg.getContainingMethodOf(calleeEntry));
+                EdgeFunction<V> fCall = f.composeWith(callEF);
+                summaries.forEach((exitFact, summary) ->
+                        applySummary(source, callEdge.getSource(), calleeExit,
+                                exitFact, fCall.composeWith(summary)));
+            }
+        });
+    }
+
+    /**
+     * Records the jump function from {@code source} to {@code fact} at
+     * the exit of a method as its end summary, and applies the summary
+     * to all call sites that reach the method with {@code source}.
+     */
+    private void processExit(Node entry, D source, Node exit,
+                             D fact, EdgeFunction<V> f) {
+        endSummaries.computeIfAbsent(entry, __ -> Maps.newMap())
+                .computeIfAbsent(source, __ -> Maps.newMap())
+                .put(fact, f);
+        incoming.getOrDefault(entry, Map.of())
+                .getOrDefault(source, Map.of())
+                .forEach((callEdge, callSiteFacts) -> {
+                    Node callSite = callEdge.getSource();
+                    for (D callSiteFact : callSiteFacts) {
+                        EdgeFunction<V> callEF = problem
+                                .transferCallEdge(callEdge, callSiteFact).get(source);
+                        EdgeFunction<V> fCallee = callEF.composeWith(f);
+                        // extend all path edges reaching the call site fact
+                        getJumpFunctions(callSite, callSiteFact).forEach((callerSource, fCaller) ->
+                                applySummary(callerSource, callSite, exit, fact,
+                                        fCaller.composeWith(fCallee)));
+                    }
+                });
+    }
+
+    /**
+     * Propagates the fact at callee exit to the return sites of
+     * given call site, where {@code f} is the edge function from
+     * {@code source} at caller entry to {@code exitFact} at callee exit.
+     */
+    private void applySummary(D source, Node callSite, Node calleeExit,
+                              D exitFact, EdgeFunction<V> f) {
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(calleeExit)) {
+            if (edge instanceof ReturnEdge<Node> returnEdge
+                    && returnEdge.getCallSite().equals(callSite)) {
+                problem.transferReturnEdge(returnEdge, exitFact).forEach((target, ef) ->
+                        propagate(source, edge.getTarget(), target, f.composeWith(ef)));
+            }
+        }
+    }
+
+    private void propagate(D source, Node node, D fact, EdgeFunction<V> f) {
+        Map<D, EdgeFunction<V>> functions = jumpFunctions
+                .computeIfAbsent(node, __ -> Maps.newMap())
+                .computeIfAbsent(fact, __ -> Maps.newMap());
+        EdgeFunction<V> old = functions.getOrDefault(source, problem.allTop());
+        EdgeFunction<V> result = old.meetWith(f);
+        if (!result.equals(old)) {
+            functions.put(source, result);
+            workList.add(new PathEdge<>(source, node, fact));
+        }
+    }
+
+    private Map<D, EdgeFunction<V>> getJumpFunctions(Node node, D fact) {
+        return jumpFunctions.getOrDefault(node, Map.of())
+                .getOrDefault(fact, Map.of());
+    }
+
+    private EdgeFunction<V> getJumpFunction(Node node, D fact, D source) {
+        return getJumpFunctions(node, fact).getOrDefault(source, problem.allTop());
+    }
+
+    // ---------- Phase II: computing values ----------
+    private void computeValues() {
+        // propagate values to method entries and call sites
+        Queue<PathEdge<Node, D>> nodeWorkList = new SetQueue<>();
+        problem.initialSeeds().forEach((entry, seeds) ->
+                seeds.forEach((fact, value) -> {
+                    if (updateValue(entry, fact, value)) {
+                        nodeWorkList.add(new PathEdge<>(fact, entry, fact));
+                    }
+                }));
+        PathEdge<Node, D> item;
+        while ((item = nodeWorkList.poll()) != null) {
+            Node node = item.target();
+            D fact = item.fact();
+            V value = getValue(node, fact);
+            if (icfg.isCallSite(node)) {
+                for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                    if (edge instanceof CallEdge<Node> callEdge) {
+                        problem.transferCallEdge(callEdge, fact).forEach((entryFact, ef) -> {
+                            Node entry = edge.getTarget();
+                            if (updateValue(entry, entryFact, ef.computeTarget(value))) {
+                                nodeWorkList.add(new PathEdge<>(entryFact, entry, entryFact));
+                            }
+                        });
+                    }
+                }
+            } else {
+                // node is a method entry
+                Method method = icfg.getContainingMethodOf(node);
+                for (Node callSite : callSites.getOrDefault(method, Set.of())) {
+                    jumpFunctions.getOrDefault(callSite, Map.of()).forEach((target, functions) -> {
+                        EdgeFunction<V> f = functions.get(fact);
+                        if (f != null && updateValue(callSite, target, f.computeTarget(value))) {
+                            nodeWorkList.add(new PathEdge<>(target, callSite, target));
+                        }
+                    });
+                }
+            }
+        }
+        // compute values at other nodes from the values at method entries
+        jumpFunctions.forEach((node, facts) -> {
+            Node entry = icfg.getEntryOf(icfg.getContainingMethodOf(node));
+            if (!node.equals(entry) && !icfg.isCallSite(node)) {
+                facts.forEach((fact, functions) -> functions.forEach((source, f) ->
+                        updateValue(node, fact, f.computeTarget(getValue(entry, source)))));
+            }
+        });
+    }
+
+    /**
+     * Meets given value into the value of {@code fact} at {@code node}.
+     *
+     * @return true if the value at the node is set for the first time
+     * or changed.
+     */
+    private boolean updateValue(Node node, D fact, V value) {
+        Map<D, V> nodeValues = values.computeIfAbsent(node, __ -> Maps.newMap());
+        V old = nodeValues.get(fact);
+        V result = old == null ? value : problem.meet(old, value);
+        if (!result.equals(old)) {
+            nodeValues.put(fact, result);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * A path edge from {@code source} at the entry of a method to
+     * {@code fact} at {@code target} node in the same method.
+     * In phase II, it is also used as a (node, fact) pair.
+     */
+    private record PathEdge<Node, D>(D source, Node target, D fact) {
+    }
+}
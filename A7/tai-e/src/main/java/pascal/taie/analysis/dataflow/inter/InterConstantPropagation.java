@@ -26,19 +26,23 @@ import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.IncrementalICFG;
+import pascal.taie.analysis.graph.icfg.LazyICFG;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
-import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.*;
 import pascal.taie.ir.stmt.*;
-import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
 
 import java.util.*;
 
@@ -53,95 +57,94 @@ public class InterConstantPropagation extends
     public static final String ID = "inter-constprop";
 
     private final ConstantPropagation cp;
-    // 用于存储变量别名关系的映射表
-    // key: 变量 x
-    // value: 所有与 x 存在别名关系的变量集合 (包含自身)
-    private final HashMap<Var, Set<Var>> alias;
-    // 存储静态字段加载语句的映射表
-    // key: 静态字段 JField 对象
-    // value: 所有对该字段执行加载操作的 LoadField 语句集合
-    private final HashMap<JField, Set<LoadField>> staticLoadField;
-    // 存储静态字段存储语句的映射表
-    // key: 静态字段 JField 对象
-    // value: 所有对该字段执行存储操作的 StoreField 语句集合
-    private final HashMap<JField, Set<StoreField>> staticStoreField;
+    // 字段访问索引: 按 (抽象对象, 字段) 和静态字段关联 LoadField 与 StoreField 语句
+    private FieldAccessIndex fieldAccesses;
+    // 数组访问索引: 按抽象数组对象和索引值关联 LoadArray 与 StoreArray 语句
+    private ArrayAccessIndex arrayAccesses;
+    // 每条 StoreField/StoreArray 语句上次存储的值, 仅当该值变化时才需要重新计算相关的加载语句
+    private final Map<Stmt, Value> storedValues;
+    // 每条 LoadField 语句加载的值的缓存, 在相关存储的值变化时失效
+    // (并行求解时为 null, 因为其他线程的存储值变化与快照发布之间无法同步)
+    private Map<LoadField, Value> loadedValues;
 
 
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
         // 一些初始化操作
-        alias = new HashMap<>();
-        staticLoadField = new HashMap<>();
-        staticStoreField = new HashMap<>();
+        storedValues = Maps.newConcurrentMap();
+    }
+
+    /**
+     * If option "lazy-icfg" is true, runs on a {@link LazyICFG} built from
+     * the call graph, so that only the methods reached during solving are
+     * added to the ICFG, and the eager ICFG (analysis "icfg") is not required.
+     */
+    @Override
+    protected ICFG<JMethod, Stmt> getICFG() {
+        if (getOptions().getBooleanOrDefault("lazy-icfg", false)) {
+            return new LazyICFG(World.get().getResult(CallGraphBuilder.ID));
+        }
+        return super.getICFG();
+    }
+
+    /**
+     * If option "ide" is true, solves linear constant propagation by
+     * {@link IDESolver} instead of the alias-aware analysis.
+     */
+    @Override
+    public Object analyze() {
+        if (getOptions().getBooleanOrDefault("ide", false)) {
+            icfg = getICFG();
+            return new LinearConstantPropagation(icfg, cp).solve();
+        }
+        return super.analyze();
     }
 
     /**
      * 执行初始化操作，主要完成：
      * 1. 构建变量别名关系表
-     * 2. 收集静态字段访问语句
+     * 2. 收集字段访问语句
      */
     @Override
     protected void initialize() {
-        String ptaId = getOptions().getString("pta");
-        PointerAnalysisResult pta = World.get().getResult(ptaId);
         // You can do initialization work here
-        // 获取所有变量集合
-        Collection<Var> vars = pta.getVars();
-        // 第一阶段: 构建变量别名关系
-        for (Var x : vars) {
-            // 初始化别名集合: 每个变量初始时包含自己
-            if (!alias.containsKey(x)) {
-                HashSet<Var> set = new HashSet<>();
-                set.add(x);
-                alias.put(x, set);
-            }
+        buildAccessIndexes();
+        if (icfg instanceof IncrementalICFG<JMethod, Stmt> incrementalICFG) {
+            // ICFG 加入新方法时, 将其中的字段访问语句加入索引
+            incrementalICFG.addNodeListener(nodes -> fieldAccesses.addStmts(nodes));
+        }
+        if (!"parallel".equals(getOptions().getString("worklist"))) {
+            loadedValues = Maps.newMap();
+        }
+    }
 
-            // 检测与其他变量的别名关系
-            for (Var y : vars) {
-                // 跳过自身比较
-                if (x.equals(y)) continue;
-
-                // 别名检测逻辑
-                // 当两个变量的 points-to 集合存在交集时:
-                // 如果指向相同堆对象, 需要建立别名关系
-                boolean hasCommonObj = false;
-                for (Obj obj : pta.getPointsToSet(x)) {
-                    // 检查是否存在共同指向的对象
-                    if (pta.getPointsToSet(y).contains(obj)) {
-                        hasCommonObj = true;
-                        break;
-                    }
-                }
+    /**
+     * 构建字段和数组访问索引
+     */
+    private void buildAccessIndexes() {
+        String ptaId = getOptions().getString("pta");
+        PointerAnalysisResult pta = World.get().getResult(ptaId);
+        // 构建变量别名关系 (基于 Obj -> Vars 倒排索引, 避免两两比较变量)
+        AliasIndex aliases = new AliasIndex(pta);
+        // 收集字段访问语句 (惰性 ICFG 只包含已构建的方法, 之后构建的方法由 initialize() 中注册的监听器加入)
+        fieldAccesses = new FieldAccessIndex(pta, aliases, icfg);
+        arrayAccesses = new ArrayAccessIndex(pta, aliases);
+    }
 
-                if (hasCommonObj) { // 如果存在共同指向的对象, 则建立别名关系
-                    alias.get(x).add(y); // 建立别名关系: y 是 x 的别名
-                }
-            }
-        }
-        // 收集静态字段访问语句
-        for (Stmt stmt : icfg) { // 遍历整个过程间控制流图
-            // 处理静态字段存储语句 (x.f = y)
-            if (stmt instanceof StoreField storeField && storeField.isStatic()) {
-                JField field = storeField.getFieldRef().resolve();
-                // 初始化字段对应的存储语句集合
-                if (!staticStoreField.containsKey(field)) {
-                    staticStoreField.put(field, new HashSet<>());
-                }
-                // 记录该字段的存储操作
-                staticStoreField.get(field).add(storeField);
-            }
-            // 处理静态字段加载语句 (y = x.f)
-            else if (stmt instanceof LoadField loadField && loadField.isStatic()) {
-                JField field = loadField.getFieldRef().resolve();
-                // 初始化字段对应的加载语句集合
-                if (!staticLoadField.containsKey(field)) {
-                    staticLoadField.put(field, new HashSet<>());
-                }
-                // 记录该字段的加载操作
-                staticLoadField.get(field).add(loadField);
-            }
+    /**
+     * 增量更新前重建访问索引, 因为新的方法和指针分析结果可能带来新的字段和数组访问关系.
+     * 已处理过的存储语句需要重新处理, 以便将其加入新的数组访问索引并重新触发相关的加载语句.
+     */
+    @Override
+    protected Collection<Stmt> refresh() {
+        buildAccessIndexes();
+        if (loadedValues != null) {
+            loadedValues.clear();
         }
+        List<Stmt> stores = new ArrayList<>(storedValues.keySet());
+        storedValues.clear();
+        return stores;
     }
 
     @Override
@@ -175,20 +178,6 @@ public class InterConstantPropagation extends
         return out.copyFrom(in);
     }
 
-    /**
-     * 数组索引一致性检查
-     * 判断两个索引值是否相等或至少有一个非常量 (即判断 a[i] 和 b[j] 是否互为别名)
-     */
-    private boolean checkIndex(Value x, Value y) {
-        if (x.isUndef() || y.isUndef()) { // 如果为 UNDEF, 则 x 和 y 不互为别名
-            return false;
-        }
-        if (x.isConstant() && y.isConstant()) { // 如果 x 和 y 都是常量, 则判断是否相等
-            return x.equals(y);
-        }
-        return true;
-    }
-
     /**
      * 非调用节点的数据流传递函数
      * 用于处理不涉及方法调用的语句 (如赋值、字段访问、数组操作等)
@@ -210,30 +199,14 @@ public class InterConstantPropagation extends
         if (stmt instanceof StoreField storeField) {
             Var r = storeField.getRValue(); // 获取右值变量
             if (canHoldInt(r)) { // 只处理 int 类型变量
-                JField field = storeField.getFieldRef().resolve(); // 获取字段引用
-
-                // 静态字段处理
-                if (storeField.isStatic()) {
-                    // 获取所有对该字段的加载语句
-                    Set<LoadField> loadFields = staticLoadField.getOrDefault(field, new HashSet<>());
-                    for (Stmt s : loadFields) {
-                        solver.add(s); // 添加到工作列表触发分析
-                    }
-                }
-                // 实例字段处理
-                else {
-                    // 获取字段的基对象 (左侧变量)
-                    Var base = ((InstanceFieldAccess) storeField.getLValue()).getBase();
-                    // 获取所有与 base 存在别名的变量
-                    Set<Var> aliasVars = alias.getOrDefault(base, new HashSet<>());
-                    // 收集所有可能影响当前字段的加载指令
-                    for (Var x : aliasVars) {
-                        for (LoadField loadField : x.getLoadFields()) {
-                            // 匹配相同字段 (判断指针集是否有交集)
-                            if (loadField.getFieldRef().resolve().equals(field)) {
-                                solver.add(loadField);
-                            }
+                Value value = in.get(r);
+                // 存储的值发生变化时, 重新计算所有可能读取该字段的加载语句
+                if (!value.equals(storedValues.put(storeField, value))) {
+                    for (LoadField loadField : fieldAccesses.getRelatedLoads(storeField)) {
+                        if (loadedValues != null) {
+                            loadedValues.remove(loadField);
                         }
+                        solver.add(loadField); // 添加到工作列表触发分析
                     }
                 }
             }
@@ -243,35 +216,11 @@ public class InterConstantPropagation extends
         else if (stmt instanceof LoadField loadField) {
             Var l = loadField.getLValue(); // 获取左值变量
             if (canHoldInt(l)) { // 只处理 int 类型
-                Value res = Value.getUndef();  // 初始化未定义值
-                JField field = loadField.getFieldRef().resolve(); // 获取字段引用
-
-                // 静态字段处理
-                if (loadField.isStatic()) {
-                    // 获取所有对该字段的存储语句
-                    Set<StoreField> storeFields = staticStoreField.getOrDefault(field, new HashSet<>());
-                    for (StoreField storeField : storeFields) {
-                        CPFact inFact = solver.getInFact(storeField); // 获取输入 fact
-                        // 使用 meet 操作合并值 (格理论)
-                        res = cp.meetValue(res, inFact.get(storeField.getRValue()));
-                    }
-                }
-                // 实例字段处理
-                else {
-                    // 获取字段的基对象 (右侧变量)
-                    Var base = ((InstanceFieldAccess) loadField.getRValue()).getBase();
-                    // 获取所有与 base 存在别名的变量
-                    Set<Var> aliasVars = alias.getOrDefault(base, new HashSet<>());
-                    // 收集所有可能的存储值
-                    for (Var x : aliasVars) {
-                        for (StoreField storeField : x.getStoreFields()) {
-                            // 匹配相同字段
-                            if (storeField.getFieldRef().resolve().equals(field)) {
-                                CPFact inFact = solver.getInFact(storeField);
-                                // 使用 meet 操作合并值
-                                res = cp.meetValue(res, inFact.get(storeField.getRValue()));
-                            }
-                        }
+                Value res = loadedValues == null ? null : loadedValues.get(loadField);
+                if (res == null) {
+                    res = meetStoredValues(loadField);
+                    if (loadedValues != null) {
+                        loadedValues.put(loadField, res);
                     }
                 }
                 change |= out.update(l, res); // 更新输出 fact
@@ -281,11 +230,12 @@ public class InterConstantPropagation extends
         else if (stmt instanceof StoreArray storeArray) {
             if (canHoldInt(storeArray.getRValue())) { // 只处理 int 类型
                 ArrayAccess ac = storeArray.getArrayAccess(); // 获取数组访问信息
-                // 获取数组基变量的别名集合
-                Set<Var> aliasVars = alias.getOrDefault(ac.getBase(), new HashSet<>());
-                // 收集所有可能影响该数组的加载指令
-                for (Var x : aliasVars) {
-                    for (LoadArray loadArray : x.getLoadArrays()) {
+                // 按索引值将存储语句放入对应的桶中
+                boolean moved = arrayAccesses.updateStore(storeArray, in.get(ac.getIndex()));
+                Value value = in.get(storeArray.getRValue());
+                // 索引值或存储的值发生变化时, 重新计算索引可能匹配的加载语句
+                if (!value.equals(storedValues.put(storeArray, value)) || moved) {
+                    for (LoadArray loadArray : arrayAccesses.getRelatedLoads(storeArray)) {
                         solver.add(loadArray);  // 触发相关分析
                     }
                 }
@@ -296,26 +246,10 @@ public class InterConstantPropagation extends
         else if (stmt instanceof LoadArray loadArray) {
             Var l = loadArray.getLValue(); // 获取左值变量
             if (canHoldInt(l)) { // 只处理 int 类型
-                Value res = Value.getUndef();  // 初始化未定义值
                 ArrayAccess ac = loadArray.getArrayAccess(); // 获取数组访问信息
-                // 获取数组基变量的别名集合
-                Set<Var> aliasVars = alias.getOrDefault(ac.getBase(), new HashSet<>());
-                // 收集所有可能的存储值
-                for (Var x : aliasVars) {
-                    for (StoreArray storeArray : x.getStoreArrays()) {
-                        CPFact inFact = solver.getInFact(storeArray); // 获取输入 fact
-                        ArrayAccess storeAc = storeArray.getArrayAccess(); // 存储点的数组访问
-
-                        // 检查数组索引是否一致
-                        if (checkIndex(
-                                in.get(ac.getIndex()), // 当前索引值
-                                inFact.get(storeAc.getIndex()) // 存储点索引值
-                        )) {
-                            // 使用 meet 操作合并值
-                            res = cp.meetValue(res, inFact.get(storeArray.getRValue()));
-                        }
-                    }
-                }
+                // 按当前索引值查找可能匹配的存储语句 (相同常量索引或非常量索引)
+                arrayAccesses.updateLoad(loadArray, in.get(ac.getIndex()));
+                Value res = meetStoredValues(loadArray);
                 change |= out.update(l, res); // 更新输出 fact
             }
         }
@@ -332,6 +266,64 @@ public class InterConstantPropagation extends
         return change;
     }
 
+    /**
+     * 合并所有可能写入该字段的存储语句的值 (格理论)
+     */
+    private Value meetStoredValues(LoadField loadField) {
+        Value res = Value.getUndef();  // 初始化未定义值
+        for (StoreField storeField : fieldAccesses.getRelatedStores(loadField)) {
+            CPFact inFact = solver.getInFact(storeField); // 获取输入 fact
+            res = cp.meetValue(res, inFact.get(storeField.getRValue()));
+        }
+        return res;
+    }
+
+    /**
+     * 合并数组访问索引中可能与该加载语句匹配的存储语句的值
+     */
+    private Value meetStoredValues(LoadArray loadArray) {
+        Value res = Value.getUndef();  // 初始化未定义值
+        for (StoreArray storeArray : arrayAccesses.getRelatedStores(loadArray)) {
+            CPFact inFact = solver.getInFact(storeArray); // 获取输入 fact
+            // 使用 meet 操作合并值
+            res = cp.meetValue(res, inFact.get(storeArray.getRValue()));
+        }
+        return res;
+    }
+
+    /**
+     * 求解结束后重新计算被压缩掉的 fact. 字段和数组访问只读取求解结束时的存储值和访问索引,
+     * 不更新它们, 也不向求解器添加语句; 其他语句的传递函数没有副作用.
+     */
+    @Override
+    public void recomputeNode(Stmt stmt, CPFact in, CPFact out) {
+        if (stmt instanceof StoreField || stmt instanceof StoreArray) {
+            out.copyFrom(in);
+        } else if (stmt instanceof LoadField loadField) {
+            out.copyFrom(in);
+            if (canHoldInt(loadField.getLValue())) {
+                Value res = loadedValues == null ? null : loadedValues.get(loadField);
+                out.update(loadField.getLValue(),
+                        res != null ? res : meetStoredValues(loadField));
+            }
+        } else if (stmt instanceof LoadArray loadArray) {
+            out.copyFrom(in);
+            if (canHoldInt(loadArray.getLValue())) {
+                out.update(loadArray.getLValue(), meetStoredValues(loadArray));
+            }
+        } else {
+            transferNode(stmt, in, out);
+        }
+    }
+
+    /**
+     * 语句在 IR 中的下标; CFG 的入口和出口结点的下标紧随 IR 的最后一条语句之后
+     */
+    @Override
+    protected int getIndexOf(Stmt stmt) {
+        return stmt.getIndex();
+    }
+
     /**
      * Normal Edge 的传递边处理方法
      */
@@ -397,4 +389,49 @@ public class InterConstantPropagation extends
         }
         return fact;
     }
-}
\ No newline at end of file
+
+    /**
+     * Meets the results of edge transfer functions into the target fact
+     * directly, which is equivalent to {@code meetInto(transferEdge(edge, out), target)}
+     * but does not create intermediate facts.
+     */
+    @Override
+    public void meetEdgeInto(ICFGEdge<Stmt> edge, CPFact out, CPFact target) {
+        if (edge instanceof NormalEdge) {
+            cp.meetInto(out, target);
+        } else if (edge instanceof CallToReturnEdge) {
+            // the LHS variable of the call site is killed
+            Optional<LValue> def = edge.getSource().getDef();
+            Var lhs = def.isPresent() && def.get() instanceof Var lv ? lv : null;
+            for (Var var : out.keySet()) {
+                if (!var.equals(lhs)) {
+                    meetVarInto(var, out.get(var), target);
+                }
+            }
+        } else if (edge instanceof CallEdge<Stmt> callEdge) {
+            if (edge.getSource() instanceof Invoke invoke) {
+                InvokeExp rValue = invoke.getRValue();
+                IR calleeIR = callEdge.getCallee().getIR();
+                for (int i = 0; i < rValue.getArgCount(); i++) {
+                    meetVarInto(calleeIR.getParam(i), out.get(rValue.getArg(i)), target);
+                }
+            }
+        } else {
+            ReturnEdge<Stmt> returnEdge = (ReturnEdge<Stmt>) edge;
+            Optional<LValue> def = returnEdge.getCallSite().getDef();
+            if (def.isPresent() && def.get() instanceof Var lv) {
+                Value v = Value.getUndef();
+                for (Var var : returnEdge.getReturnVars()) {
+                    v = cp.meetValue(v, out.get(var));
+                }
+                meetVarInto(lv, v, target);
+            }
+        }
+    }
+
+    private void meetVarInto(Var var, Value value, CPFact target) {
+        if (!value.isUndef()) {
+            target.update(var, cp.meetValue(value, target.get(var)));
+        }
+    }
+}
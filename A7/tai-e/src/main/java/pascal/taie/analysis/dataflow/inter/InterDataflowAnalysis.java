@@ -63,6 +63,19 @@ public interface InterDataflowAnalysis<Node, Fact> {
      */
     boolean transferNode(Node node, Fact in, Fact out);
 
+    /**
+     * Node transfer function for recomputing the facts that are dropped
+     * after solving (see {@link InterDataflowResult}). Different from
+     * {@link #transferNode}, it must not change the state of the analysis
+     * or the solver, e.g., it must not add nodes to the work list.
+     * <p>
+     * By default, it calls {@link #transferNode}, which is fine for
+     * analyses whose node transfer functions have no side effects.
+     */
+    default void recomputeNode(Node node, Fact in, Fact out) {
+        transferNode(node, in, out);
+    }
+
     /**
      * Edge Transfer function for this analysis.
      *
@@ -71,4 +84,18 @@ public interface InterDataflowAnalysis<Node, Fact> {
      * @return the result of edge transfer function.
      */
     Fact transferEdge(ICFGEdge<Node> edge, Fact out);
+
+    /**
+     * Applies the edge transfer function and meets the result into
+     * the target fact, i.e., {@code meetInto(transferEdge(edge, out), target)}.
+     * Analyses can override this method to write the target fact directly,
+     * without allocating the intermediate fact for each edge.
+     *
+     * @param edge   the ICFG edge that the transfer function is applied on.
+     * @param out    the OUT fact of source node of the edge.
+     * @param target the fact that the result is met into.
+     */
+    default void meetEdgeInto(ICFGEdge<Node> edge, Fact out, Fact target) {
+        meetInto(transferEdge(edge, out), target);
+    }
 }
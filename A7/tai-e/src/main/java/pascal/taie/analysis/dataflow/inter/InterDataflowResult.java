@@ -0,0 +1,260 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ICFGNumbering;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Data-flow result of inter-procedural analyses, which keeps the facts
+ * in arrays indexed by the numbers of ICFG nodes (see {@link ICFGNumbering})
+ * instead of maps.
+ * <p>
+ * After solving, the result can be compacted by {@link #compact()}, which
+ * only keeps the OUT facts of method entries and exits, call sites,
+ * branch points (nodes with multiple successors) and join points (nodes
+ * with multiple predecessors). Every other node has a single predecessor,
+ * thus its facts are recomputed on demand by walking back to the closest
+ * kept node and re-applying the transfer functions (see
+ * {@link InterDataflowAnalysis#recomputeNode}). Recomputed facts of
+ * recent queries are cached.
+ * <p>
+ * If the ICFG grows during solving (e.g., {@link pascal.taie.analysis.graph.icfg.LazyICFG}),
+ * the added nodes should be registered by {@link #addNodes(Collection)}
+ * before their facts are set.
+ *
+ * @param <Method> type of methods
+ * @param <Node>   type of ICFG nodes
+ * @param <Fact>   type of data-flow facts
+ */
+public class InterDataflowResult<Method, Node, Fact> extends DataflowResult<Node, Fact> {
+
+    /**
+     * Maximum number of recomputed facts kept in the cache.
+     */
+    private static final int CACHE_SIZE = 1 << 12;
+
+    private final InterDataflowAnalysis<Node, Fact> analysis;
+
+    private final ICFG<Method, Node> icfg;
+
+    private final ICFGNumbering<Method, Node> numbering;
+
+    private Object[] inFacts;
+
+    private Object[] outFacts;
+
+    /**
+     * Numbers of the entry nodes of entry methods, whose IN facts
+     * start from boundary facts.
+     */
+    private final BitSet boundaries = new BitSet();
+
+    /**
+     * Numbers of the nodes whose OUT facts are kept after compaction,
+     * or null if this result is not compacted.
+     */
+    private BitSet kept;
+
+    private final Map<Node, Fact> inCache = Maps.newMap();
+
+    private final Map<Node, Fact> outCache = Maps.newMap();
+
+    /**
+     * @param indexer gives the index of each node in its containing method,
+     *                see {@link ICFGNumbering}.
+     */
+    InterDataflowResult(InterDataflowAnalysis<Node, Fact> analysis,
+                        ICFG<Method, Node> icfg, ToIntFunction<Node> indexer) {
+        this.analysis = analysis;
+        this.icfg = icfg;
+        this.numbering = new ICFGNumbering<>(icfg, indexer);
+        inFacts = new Object[numbering.size()];
+        outFacts = new Object[numbering.size()];
+        icfg.entryMethods().forEach(m ->
+                boundaries.set(numbering.getNumber(icfg.getEntryOf(m))));
+    }
+
+    /**
+     * Numbers the given nodes which are added to the ICFG after this
+     * result is created, so that their facts can be set.
+     */
+    void addNodes(Collection<Node> nodes) {
+        checkNotCompacted();
+        numbering.addNodes(nodes);
+        if (numbering.size() > outFacts.length) {
+            int capacity = Math.max(numbering.size(), outFacts.length * 2);
+            inFacts = Arrays.copyOf(inFacts, capacity);
+            outFacts = Arrays.copyOf(outFacts, capacity);
+        }
+    }
+
+    /**
+     * Marks the given node as the entry of an entry method, which is added
+     * to the ICFG after this result is created.
+     */
+    void addBoundary(Node node) {
+        checkNotCompacted();
+        boundaries.set(numbering.getNumber(node));
+    }
+
+    @Override
+    public Fact getInFact(Node node) {
+        if (kept == null) {
+            return getFact(inFacts, node);
+        }
+        Fact in = inCache.get(node);
+        if (in == null) {
+            in = recomputeInFact(node);
+            cache(inCache, node, in);
+        }
+        return in;
+    }
+
+    @Override
+    public void setInFact(Node node, Fact fact) {
+        checkNotCompacted();
+        inFacts[numbering.getNumber(node)] = fact;
+    }
+
+    @Override
+    public Fact getOutFact(Node node) {
+        int number = numbering.getNumber(node);
+        if (number == -1) {
+            return null;
+        }
+        if (kept == null || kept.get(number)) {
+            return getFact(outFacts, node);
+        }
+        Fact out = outCache.get(node);
+        if (out == null) {
+            out = recomputeOutFact(node);
+            cache(outCache, node, out);
+        }
+        return out;
+    }
+
+    @Override
+    public void setOutFact(Node node, Fact fact) {
+        checkNotCompacted();
+        outFacts[numbering.getNumber(node)] = fact;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Fact getFact(Object[] facts, Node node) {
+        int number = numbering.getNumber(node);
+        return number == -1 ? null : (Fact) facts[number];
+    }
+
+    private void checkNotCompacted() {
+        if (kept != null) {
+            throw new IllegalStateException("Cannot set facts of compacted result");
+        }
+    }
+
+    /**
+     * Drops the IN facts of all nodes and the OUT facts of the nodes that
+     * can be recomputed from their single predecessors.
+     */
+    void compact() {
+        kept = new BitSet(numbering.size());
+        for (int i = 0; i < numbering.size(); ++i) {
+            Node node = numbering.getNode(i);
+            if (node == null) {
+                continue;
+            }
+            Method method = icfg.getContainingMethodOf(node);
+            if (icfg.getInDegreeOf(node) != 1
+                    || icfg.getOutDegreeOf(node) > 1
+                    || icfg.isCallSite(node)
+                    || node.equals(icfg.getEntryOf(method))
+                    || node.equals(icfg.getExitOf(method))) {
+                kept.set(i);
+            } else {
+                outFacts[i] = null;
+            }
+        }
+        inFacts = null;
+    }
+
+    private Fact recomputeInFact(Node node) {
+        Fact in = boundaries.get(numbering.getNumber(node)) ?
+                analysis.newBoundaryFact(node) : analysis.newInitialFact();
+        for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+            analysis.meetEdgeInto(edge, getOutFact(edge.getSource()), in);
+        }
+        return in;
+    }
+
+    /**
+     * Recomputes the OUT fact of a node that is not kept. The node is
+     * reached from its closest kept predecessor by a chain of nodes that
+     * have a single predecessor, and the chain is walked forward from the
+     * kept node without recursion.
+     */
+    private Fact recomputeOutFact(Node node) {
+        // walk back to the closest kept (or cached) node
+        int limit = numbering.size();
+        List<Node> chain = new ArrayList<>();
+        Node current = node;
+        while (!kept.get(numbering.getNumber(current))
+                && !outCache.containsKey(current)) {
+            chain.add(current);
+            current = icfg.getPredsOf(current).iterator().next();
+            if (chain.size() > limit) {
+                // a cycle of nodes with single predecessors,
+                // which is unreachable from method entries
+                return analysis.newInitialFact();
+            }
+        }
+        // walk forward and re-apply transfer functions
+        Fact out = null;
+        for (int i = chain.size() - 1; i >= 0; --i) {
+            Node n = chain.get(i);
+            Fact in = recomputeInFact(n);
+            out = analysis.newInitialFact();
+            analysis.recomputeNode(n, in, out);
+            cache(inCache, n, in);
+            cache(outCache, n, out);
+        }
+        return out;
+    }
+
+    private void cache(Map<Node, Fact> cache, Node node, Fact fact) {
+        if (cache.size() >= CACHE_SIZE) {
+            cache.clear();
+        }
+        cache.put(node, fact);
+    }
+}
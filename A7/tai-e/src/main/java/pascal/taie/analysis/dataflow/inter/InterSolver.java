@@ -22,44 +22,202 @@
 
 package pascal.taie.analysis.dataflow.inter;
 
+import pascal.taie.World;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.CallGraphSCC;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
 import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.IncrementalICFG;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
 import pascal.taie.util.collection.SetQueue;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
  * Solver for inter-procedural data-flow analysis.
  * The workload of inter-procedural analysis is heavy, thus we always
  * adopt work-list algorithm for efficiency.
+ * <p>
+ * The solver supports two kinds of work-list (see {@link WorkListKind}).
+ * The priority work-list keeps each node at most once, starts from the
+ * entry nodes, and processes the pending nodes in round-robin sweeps in
+ * priority order, i.e., call-graph topological order (per-method reverse
+ * postorder within a method). Nodes added behind the current position
+ * wait for the next sweep, so that facts are mostly computed before
+ * they are used.
+ * <p>
+ * The parallel work-list splits the ICFG by the SCCs of the call graph
+ * (see {@link CallGraphSCC}), and each component is solved by its own
+ * FIFO work-list. Components are handed out in call-graph order
+ * (callers first for forward analyses), and components that do not
+ * depend on each other are solved concurrently. Each component only
+ * modifies the facts of its own nodes; the facts of the nodes in other
+ * components (e.g., the predecessors via call and return edges) are
+ * read from snapshots, which are published when the owning component
+ * finishes. Nodes added to other components are delivered after the
+ * snapshots are published, and the components are solved again until
+ * no nodes are pending. As the analysis is monotone, the result is the
+ * same fixed point as computed by the sequential work-lists.
+ * <p>
+ * If the ICFG is an {@link IncrementalICFG} (e.g., a lazily built ICFG),
+ * the nodes of each method are added to the result and the work-list when
+ * the method is added to the ICFG, so that only the methods reached during
+ * solving are analyzed. This is supported by
+ * the FIFO work-list only, as the other work-lists need all nodes upfront.
  */
 class InterSolver<Method, Node, Fact> {
 
+    /**
+     * Kinds of work-list used by the solver.
+     */
+    enum WorkListKind {
+        /**
+         * Plain FIFO queue seeded with all nodes, which may contain
+         * duplicate nodes.
+         */
+        FIFO,
+        /**
+         * Deduplicated queue seeded with entry nodes and ordered by
+         * call-graph topological order and per-method reverse postorder.
+         */
+        PRIORITY,
+        /**
+         * FIFO queues, one for each call-graph SCC, which are solved
+         * concurrently.
+         */
+        PARALLEL;
+
+        static WorkListKind of(String name) {
+            return name == null ? FIFO : valueOf(name.toUpperCase());
+        }
+    }
+
     private final InterDataflowAnalysis<Node, Fact> analysis;
 
     private final ICFG<Method, Node> icfg;
 
-    private DataflowResult<Node, Fact> result;
+    private final WorkListKind workListKind;
+
+    /**
+     * Index of each node in its containing method, see {@link InterDataflowResult}.
+     */
+    private final ToIntFunction<Node> indexer;
+
+    private InterDataflowResult<Method, Node, Fact> result;
 
     private Queue<Node> workList;
 
+    // ---------- data structures of priority work-list ----------
+    /**
+     * Nodes sorted by priority, i.e., the i-th node has priority i
+     * (smaller is processed earlier).
+     */
+    private List<Node> nodes;
+
+    private Map<Node, Integer> priorities;
+
+    /**
+     * Priorities of the nodes in the work-list.
+     */
+    private BitSet pending;
+
+    /**
+     * Priorities of the nodes that have been processed at least once.
+     */
+    private BitSet visited;
+
+    /**
+     * The work-list is swept in priority order from the cursor, and it
+     * wraps around when reaching the end.
+     */
+    private int cursor;
+    // -----------------------------------------------------------
+
+    // ---------- data structures of parallel work-list ----------
+    /**
+     * Component ID of each node. Nodes of the methods that are absent
+     * in the call graph belong to an extra component, whose ID is the
+     * number of call-graph SCCs.
+     */
+    private Map<Node, Integer> componentOfNode;
+
+    /**
+     * Nodes added to each component, which are pending to be solved.
+     */
+    private List<Queue<Node>> inboxes;
+
+    /**
+     * Snapshots of the facts of each node.
+     */
+    private Map<Node, Fact> publishedInFacts;
+
+    private Map<Node, Fact> publishedOutFacts;
+
+    /**
+     * Work-list of the component being solved by current thread.
+     */
+    private final ThreadLocal<ComponentWorkList> currentWorkList = new ThreadLocal<>();
+    // -----------------------------------------------------------
+
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
-                ICFG<Method, Node> icfg) {
+                ICFG<Method, Node> icfg, WorkListKind workListKind,
+                ToIntFunction<Node> indexer) {
         this.analysis = analysis;
         this.icfg = icfg;
+        this.workListKind = workListKind;
+        this.indexer = indexer;
     }
 
     DataflowResult<Node, Fact> solve() {
-        result = new DataflowResult<>();
+        result = new InterDataflowResult<>(analysis, icfg, indexer);
+        if (icfg instanceof IncrementalICFG<Method, Node> incrementalICFG) {
+            if (workListKind != WorkListKind.FIFO) {
+                throw new AnalysisException(
+                        "Incremental ICFG only supports FIFO work-list, but got " + workListKind);
+            }
+            incrementalICFG.addNodeListener(this::addNodes);
+        }
         initialize();
-        doSolve();
+        switch (workListKind) {
+            case PRIORITY -> doSolveWithPriority();
+            case PARALLEL -> doSolveInParallel();
+            default -> doSolve();
+        }
         return result;
     }
 
+    /**
+     * Compacts the result, so that only the OUT facts of some nodes
+     * are kept and the other facts are recomputed on demand.
+     */
+    void compactResult() {
+        result.compact();
+    }
+
     /**
      * ICFG 初始化
      */
@@ -78,6 +236,21 @@ class InterSolver<Method, Node, Fact> {
         }
     }
 
+    /**
+     * Initializes the facts of the nodes of a method that is newly built
+     * by lazy ICFG, and adds the nodes to the work-list.
+     */
+    private void addNodes(Collection<Node> nodes) {
+        result.addNodes(nodes);
+        for (Node node : nodes) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
+        if (workList != null) {
+            workList.addAll(nodes);
+        }
+    }
+
     /**
      * ICFG 过程间常量传播算法实现
      */
@@ -85,12 +258,19 @@ class InterSolver<Method, Node, Fact> {
         // TODO - finish me
         workList = new ArrayDeque<>();
         workList.addAll(icfg.getNodes()); // 将所有节点加入工作队列
+        propagate();
+    }
+
+    /**
+     * 处理工作队列中的节点, 直到不动点
+     */
+    private void propagate() {
         while(!workList.isEmpty()) {
             // 处理每一个调用点 node
             Node node = workList.poll();
             // meet 操作, 不过使用传递边来处理方法调用 (相较于过程内常量传播)
             for(ICFGEdge<Node> edge: icfg.getInEdgesOf(node)) {
-                analysis.meetInto(analysis.transferEdge(edge, result.getOutFact(edge.getSource())), result.getInFact(node));
+                analysis.meetEdgeInto(edge, result.getOutFact(edge.getSource()), result.getInFact(node));
             }
             // 如果节点的出边信息发生变化，则将所有后继节点加入工作队列
             if(analysis.transferNode(node, result.getInFact(node), result.getOutFact(node))) {
@@ -99,17 +279,336 @@ class InterSolver<Method, Node, Fact> {
         }
     }
 
+    /**
+     * Incrementally updates the result after call edges and entry methods
+     * are added to the call graph. The facts of last solving are kept as
+     * the starting point, which is sound as the analysis is monotone and
+     * the new edges only add data flows: the new entries start from their
+     * boundary facts, the successors of the affected call sites (i.e., the
+     * entries of new callees and the return sites) are re-processed, and
+     * the changes are propagated by the FIFO work-list. The methods reached
+     * only via the new edges are built and analyzed on demand.
+     * <p>
+     * This requires an {@link IncrementalICFG}, as other ICFGs cannot grow.
+     *
+     * @param newCallEdges  call edges added to the call graph
+     * @param newEntries    entry methods added to the call graph
+     * @param affectedNodes other nodes to be re-processed
+     */
+    DataflowResult<Node, Fact> update(
+            Collection<? extends Edge<? extends Node, Method>> newCallEdges,
+            Collection<Method> newEntries, Collection<Node> affectedNodes) {
+        if (!(icfg instanceof IncrementalICFG<Method, Node> incrementalICFG)) {
+            throw new AnalysisException("Incremental update requires incremental ICFG");
+        }
+        workList = new ArrayDeque<>();
+        for (Method method : newEntries) {
+            Node entry = icfg.getEntryOf(method);
+            result.addBoundary(entry);
+            analysis.meetInto(analysis.newBoundaryFact(entry), result.getInFact(entry));
+            workList.add(entry);
+        }
+        for (Edge<? extends Node, Method> edge : newCallEdges) {
+            Node callSite = edge.getCallSite();
+            incrementalICFG.addCallEdge(callSite, edge.getCallee());
+            workList.addAll(icfg.getSuccsOf(callSite));
+        }
+        affectedNodes.forEach(this::add);
+        propagate();
+        return result;
+    }
+
+    private void doSolveWithPriority() {
+        computePriorities();
+        pending = new BitSet(nodes.size());
+        visited = new BitSet(nodes.size());
+        cursor = 0;
+        icfg.entryMethods().forEach(m -> add(icfg.getEntryOf(m)));
+        while (true) {
+            Node node;
+            while ((node = pollPending()) != null) {
+                for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+                    analysis.meetEdgeInto(edge,
+                            result.getOutFact(edge.getSource()), result.getInFact(node));
+                }
+                boolean changed = analysis.transferNode(node,
+                        result.getInFact(node), result.getOutFact(node));
+                // the first visit of a node must reach its successors,
+                // as their facts have not been computed yet
+                int priority = priorities.get(node);
+                if (changed || !visited.get(priority)) {
+                    visited.set(priority);
+                    icfg.getSuccsOf(node).forEach(this::add);
+                }
+            }
+            // nodes unreachable from the entries (e.g., dead code) are
+            // also processed, so that the result matches the FIFO mode
+            pending.set(0, nodes.size());
+            pending.andNot(visited);
+            if (pending.isEmpty()) {
+                break;
+            }
+            cursor = 0;
+        }
+    }
+
+    private Node pollPending() {
+        int priority = pending.nextSetBit(cursor);
+        if (priority < 0) {
+            priority = pending.nextSetBit(0);
+            if (priority < 0) {
+                return null;
+            }
+        }
+        pending.clear(priority);
+        cursor = priority + 1;
+        return nodes.get(priority);
+    }
+
+    /**
+     * Sorts the nodes by the topological order of the methods containing
+     * them in the call graph (callers first for forward analyses), and by
+     * reverse postorder within each method. For backward analyses,
+     * both orders are reversed.
+     */
+    private void computePriorities() {
+        int nodeCount = icfg.getNodes().size();
+        nodes = new ArrayList<>(nodeCount);
+        priorities = Maps.newMap(nodeCount);
+        CallGraph<?, Method> callGraph = World.get().getResult(CallGraphBuilder.ID);
+        CallGraphSCC<?, Method> scc = CallGraphSCC.of(callGraph);
+        Iterable<List<Method>> methodOrder = analysis.isForward() ?
+                scc.topologicalOrder() : scc.reverseTopologicalOrder();
+        for (List<Method> component : methodOrder) {
+            for (Method method : component) {
+                Node entry = icfg.getEntryOf(method);
+                if (entry != null && icfg.hasNode(entry)) {
+                    List<Node> order = computePostorder(entry);
+                    if (analysis.isForward()) {
+                        Collections.reverse(order);
+                    }
+                    order.forEach(this::assignPriority);
+                }
+            }
+        }
+        // nodes that are not reachable from their method entries
+        icfg.getNodes().forEach(this::assignPriority);
+    }
+
+    private void assignPriority(Node node) {
+        if (!priorities.containsKey(node)) {
+            priorities.put(node, nodes.size());
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * @return the postorder of the nodes reachable from entry via
+     * intra-procedural edges (i.e., not call or return edges).
+     */
+    private List<Node> computePostorder(Node entry) {
+        List<Node> postorder = new ArrayList<>();
+        Set<Node> reached = new HashSet<>();
+        // iterative DFS: each stack frame keeps the unvisited successors
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        ArrayDeque<Iterator<ICFGEdge<Node>>> edges = new ArrayDeque<>();
+        reached.add(entry);
+        stack.push(entry);
+        edges.push(icfg.getOutEdgesOf(entry).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<ICFGEdge<Node>> it = edges.peek();
+            Node next = null;
+            while (it.hasNext()) {
+                ICFGEdge<Node> edge = it.next();
+                if (!(edge instanceof CallEdge) && !(edge instanceof ReturnEdge)
+                        && reached.add(edge.getTarget())) {
+                    next = edge.getTarget();
+                    break;
+                }
+            }
+            if (next != null) {
+                stack.push(next);
+                edges.push(icfg.getOutEdgesOf(next).iterator());
+            } else {
+                postorder.add(stack.pop());
+                edges.pop();
+            }
+        }
+        return postorder;
+    }
+
+    private void doSolveInParallel() {
+        CallGraph<?, Method> callGraph = World.get().getResult(CallGraphBuilder.ID);
+        CallGraphSCC<?, Method> scc = CallGraphSCC.of(callGraph);
+        int extra = scc.getNumberOfComponents();
+        componentOfNode = Maps.newMap(icfg.getNodes().size());
+        inboxes = new ArrayList<>(extra + 1);
+        for (int i = 0; i <= extra; ++i) {
+            inboxes.add(new ConcurrentLinkedQueue<>());
+        }
+        publishedInFacts = new ConcurrentHashMap<>();
+        publishedOutFacts = new ConcurrentHashMap<>();
+        for (Node node : icfg.getNodes()) {
+            int component = scc.getComponentOf(icfg.getContainingMethodOf(node));
+            if (component == -1) {
+                component = extra;
+            }
+            componentOfNode.put(node, component);
+            // as the FIFO work-list, all nodes are pending initially
+            inboxes.get(component).add(node);
+            publish(node);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            while (inboxes.stream().anyMatch(inbox -> !inbox.isEmpty())) {
+                CallGraphSCC<?, Method>.ReadyQueue queue = analysis.isForward() ?
+                        scc.newTopDownReadyQueue() : scc.newReadyQueue();
+                List<Future<?>> futures = new ArrayList<>(threads);
+                for (int i = 0; i < threads; ++i) {
+                    futures.add(executor.submit(() -> {
+                        for (int c; (c = queue.take()) != -1; ) {
+                            try {
+                                solveComponent(c);
+                            } finally {
+                                // let the dependents go even if solving fails
+                                queue.complete(c);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                solveComponent(extra);
+            }
+        } catch (ExecutionException e) {
+            throw new AnalysisException("Failed to solve components in parallel",
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisException(e);
+        } finally {
+            executor.shutdownNow();
+            currentWorkList.remove();
+        }
+    }
+
+    /**
+     * Solves the pending nodes of the given component by a FIFO work-list.
+     */
+    private void solveComponent(int component) {
+        Queue<Node> inbox = inboxes.get(component);
+        if (inbox.isEmpty()) {
+            return;
+        }
+        ComponentWorkList workList = new ComponentWorkList(component);
+        for (Node node; (node = inbox.poll()) != null; ) {
+            workList.local.add(node);
+        }
+        currentWorkList.set(workList);
+        Set<Node> processed = new HashSet<>();
+        for (Node node; (node = workList.local.poll()) != null; ) {
+            for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+                analysis.meetEdgeInto(edge,
+                        getOutFactOf(edge.getSource()), result.getInFact(node));
+            }
+            if (analysis.transferNode(node,
+                    result.getInFact(node), result.getOutFact(node))) {
+                icfg.getSuccsOf(node).forEach(this::add);
+            }
+            processed.add(node);
+        }
+        currentWorkList.remove();
+        // publish the facts before notifying other components
+        processed.forEach(this::publish);
+        workList.foreign.forEach(node ->
+                inboxes.get(componentOfNode.get(node)).add(node));
+    }
+
+    /**
+     * Publishes copies of the facts of the given node, which are read
+     * by other components.
+     */
+    private void publish(Node node) {
+        publishedInFacts.put(node, copyOf(result.getInFact(node)));
+        publishedOutFacts.put(node, copyOf(result.getOutFact(node)));
+    }
+
+    private Fact copyOf(Fact fact) {
+        Fact copy = analysis.newInitialFact();
+        analysis.meetInto(fact, copy);
+        return copy;
+    }
+
+    /**
+     * @return true if current thread is solving a component other than
+     * the one containing the given node.
+     */
+    private boolean isForeign(Node node) {
+        ComponentWorkList workList = currentWorkList.get();
+        return workList != null
+                && componentOfNode.get(node) != workList.component;
+    }
+
+    private Fact getOutFactOf(Node node) {
+        return isForeign(node) ?
+                publishedOutFacts.get(node) : result.getOutFact(node);
+    }
+
+    /**
+     * Work-list of a component being solved.
+     */
+    private class ComponentWorkList {
+
+        private final int component;
+
+        /**
+         * Pending nodes of this component.
+         */
+        private final Queue<Node> local = new ArrayDeque<>();
+
+        /**
+         * Nodes of other components added when solving this component.
+         */
+        private final List<Node> foreign = new ArrayList<>();
+
+        private ComponentWorkList(int component) {
+            this.component = component;
+        }
+    }
+
     /**
      * 获取指定节点的输入数据流值 (InFact)
      */
     public Fact getInFact(Node node){
-        return result.getInFact(node);
+        if (workListKind == WorkListKind.PARALLEL && isForeign(node)) {
+            return publishedInFacts.get(node);
+        }
+        Fact in = result.getInFact(node);
+        // 惰性 ICFG 中尚未构建的方法的节点还未被执行, 其 fact 为初始 fact
+        return in != null ? in : analysis.newInitialFact();
     }
 
     /**
      * 将指定节点添加到工作队列中, 触发后续的数据流分析
      */
     public void add(Node node){
-        this.workList.add(node);
+        if (workListKind == WorkListKind.PRIORITY) {
+            pending.set(priorities.get(node));
+        } else if (workListKind == WorkListKind.PARALLEL) {
+            ComponentWorkList current = currentWorkList.get();
+            if (current == null) {
+                inboxes.get(componentOfNode.get(node)).add(node);
+            } else if (componentOfNode.get(node) == current.component) {
+                current.local.add(node);
+            } else {
+                current.foreign.add(node);
+            }
+        } else if (icfg.hasNode(node)) {
+            // 惰性 ICFG 中尚未构建的方法的节点会在方法构建时加入工作队列
+            this.workList.add(node);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,339 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.Exp;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.LValue;
+import pascal.taie.ir.exp.NegExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.PrimitiveType;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation.canHoldInt;
+
+/**
+ * Linear constant propagation as an IDE problem, which is solved by
+ * {@link IDESolver}. The facts are int variables, and the edge functions
+ * (see {@link LinearFunction}) track how the value of a variable is
+ * derived from another one by {@code x = y}, {@code x = -y},
+ * {@code x = y + c}, {@code x = y - c} and {@code x = y * c}
+ * (and the symmetric forms), where {@code c} is a constant.
+ * <p>
+ * Compared with {@link InterConstantPropagation}, the value of a variable
+ * returned by a callee is computed from the values of arguments at each
+ * call site, instead of the meet of values from all call sites. On the
+ * other hand, loads from fields and arrays are not tracked and always
+ * give NAC.
+ */
+public class LinearConstantPropagation implements IDEProblem<Stmt, Var, Value> {
+
+    /**
+     * The zero fact, which is not a variable of the program.
+     */
+    private static final Var ZERO = new Var(null, "<zero>", PrimitiveType.INT, -1);
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    private final ConstantPropagation cp;
+
+    public LinearConstantPropagation(ICFG<JMethod, Stmt> icfg,
+                                     ConstantPropagation cp) {
+        this.icfg = icfg;
+        this.cp = cp;
+    }
+
+    /**
+     * Solves this problem and converts the result to constant
+     * propagation facts of each statement.
+     */
+    public DataflowResult<Stmt, CPFact> solve() {
+        IDESolver<JMethod, Stmt, Var, Value> solver = new IDESolver<>(this, icfg);
+        solver.solve();
+        DataflowResult<Stmt, CPFact> result = new DataflowResult<>();
+        for (Stmt stmt : icfg) {
+            Map<Var, Value> values = solver.getValues(stmt);
+            CPFact in = new CPFact();
+            values.forEach((var, value) -> {
+                if (var != ZERO) {
+                    in.update(var, value);
+                }
+            });
+            result.setInFact(stmt, in);
+            result.setOutFact(stmt, computeOutFact(stmt, values, in));
+        }
+        return result;
+    }
+
+    private CPFact computeOutFact(Stmt stmt, Map<Var, Value> inValues, CPFact in) {
+        if (icfg.isCallSite(stmt)) {
+            return in.copy();
+        }
+        for (ICFGEdge<Stmt> edge : icfg.getOutEdgesOf(stmt)) {
+            if (edge instanceof NormalEdge<Stmt> normalEdge) {
+                CPFact out = new CPFact();
+                inValues.forEach((fact, value) ->
+                        transferNormalEdge(normalEdge, fact).forEach((target, f) -> {
+                            if (target != ZERO) {
+                                out.update(target, cp.meetValue(
+                                        out.get(target), f.computeTarget(value)));
+                            }
+                        }));
+                return out;
+            }
+        }
+        // exit nodes
+        return in.copy();
+    }
+
+    @Override
+    public Var zeroValue() {
+        return ZERO;
+    }
+
+    @Override
+    public Map<Stmt, Map<Var, Value>> initialSeeds() {
+        Map<Stmt, Map<Var, Value>> seeds = Maps.newMap();
+        icfg.entryMethods().forEach(method -> {
+            Map<Var, Value> facts = Maps.newMap();
+            facts.put(ZERO, Value.getUndef());
+            IR ir = method.getIR();
+            for (Var param : ir.getParams()) {
+                if (canHoldInt(param)) {
+                    facts.put(param, Value.getNAC());
+                }
+            }
+            seeds.put(icfg.getEntryOf(method), facts);
+        });
+        return seeds;
+    }
+
+    @Override
+    public Value topValue() {
+        return Value.getUndef();
+    }
+
+    @Override
+    public Value meet(Value v1, Value v2) {
+        return cp.meetValue(v1, v2);
+    }
+
+    @Override
+    public EdgeFunction<Value> identity() {
+        return LinearFunction.identity();
+    }
+
+    @Override
+    public EdgeFunction<Value> allTop() {
+        return LinearFunction.allTop();
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferNormalEdge(
+            NormalEdge<Stmt> edge, Var fact) {
+        if (edge.getSource() instanceof DefinitionStmt<?, ?> def
+                && !(def instanceof Invoke)
+                && def.getLValue() instanceof Var x && canHoldInt(x)) {
+            Map<Var, EdgeFunction<Value>> result = Maps.newMap(2);
+            if (fact != x) {
+                result.put(fact, LinearFunction.identity());
+            }
+            Exp rvalue = def.getRValue();
+            if (fact == ZERO) {
+                LinearFunction gen = generate(rvalue);
+                if (gen != null) {
+                    result.put(x, gen);
+                }
+            } else {
+                LinearFunction f = transfer(rvalue, fact);
+                if (f != null) {
+                    result.put(x, f);
+                }
+            }
+            return result;
+        }
+        return Map.of(fact, LinearFunction.identity());
+    }
+
+    /**
+     * @return the edge function from the zero fact to the variable
+     * defined by given rvalue, or null if the value of the variable
+     * is derived from another variable.
+     */
+    private static LinearFunction generate(Exp rvalue) {
+        if (rvalue instanceof IntLiteral literal) {
+            return LinearFunction.constant(literal.getValue());
+        }
+        if (rvalue instanceof Var y && canHoldInt(y)
+                || rvalue instanceof NegExp
+                || getLinearOperand(rvalue) != null) {
+            return null;
+        }
+        if (rvalue instanceof BinaryExp binary
+                && isIntConstant(binary.getOperand1())
+                && isIntConstant(binary.getOperand2())) {
+            Value value = evaluateConstants(binary);
+            if (value.isConstant()) {
+                return LinearFunction.constant(value.getConstant());
+            } else if (value.isUndef()) {
+                // e.g., division by zero
+                return LinearFunction.allTop();
+            }
+        }
+        return LinearFunction.allBottom();
+    }
+
+    /**
+     * @return the edge function from variable {@code fact} to the variable
+     * defined by given rvalue, or null if the rvalue does not use
+     * {@code fact} linearly.
+     */
+    private static LinearFunction transfer(Exp rvalue, Var fact) {
+        if (rvalue == fact) {
+            return LinearFunction.identity();
+        }
+        if (rvalue instanceof NegExp neg) {
+            return neg.getOperand() == fact ? LinearFunction.linear(-1, 0) : null;
+        }
+        if (getLinearOperand(rvalue) == fact) {
+            ArithmeticExp exp = (ArithmeticExp) rvalue;
+            boolean constFirst = exp.getOperand2() == fact;
+            int c = getIntConstant(constFirst ? exp.getOperand1() : exp.getOperand2());
+            return switch (exp.getOperator()) {
+                case ADD -> LinearFunction.linear(1, c);
+                case SUB -> constFirst ?
+                        LinearFunction.linear(-1, c) : LinearFunction.linear(1, -c);
+                case MUL -> LinearFunction.linear(c, 0);
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+    /**
+     * @return the variable operand of given linear expression, i.e.,
+     * {@code y + c}, {@code y - c}, {@code y * c} and the symmetric forms,
+     * or null if the expression is not linear.
+     */
+    private static Var getLinearOperand(Exp exp) {
+        if (exp instanceof ArithmeticExp arith) {
+            switch (arith.getOperator()) {
+                case ADD, SUB, MUL -> {
+                    Var op1 = arith.getOperand1();
+                    Var op2 = arith.getOperand2();
+                    if (isIntConstant(op2) && canHoldInt(op1)) {
+                        return op1;
+                    } else if (isIntConstant(op1) && canHoldInt(op2)) {
+                        return op2;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntConstant(Var var) {
+        return var.isTempConst() && var.getTempConstValue() instanceof IntLiteral;
+    }
+
+    private static int getIntConstant(Var var) {
+        return ((IntLiteral) var.getTempConstValue()).getValue();
+    }
+
+    private static Value evaluateConstants(BinaryExp exp) {
+        CPFact constants = new CPFact();
+        constants.update(exp.getOperand1(),
+                Value.makeConstant(getIntConstant(exp.getOperand1())));
+        constants.update(exp.getOperand2(),
+                Value.makeConstant(getIntConstant(exp.getOperand2())));
+        return ConstantPropagation.evaluate(exp, constants);
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferCallToReturnEdge(
+            CallToReturnEdge<Stmt> edge, Var fact) {
+        Optional<LValue> def = edge.getSource().getDef();
+        if (def.isPresent() && def.get() == fact) {
+            // the returned value flows via return edges
+            return Map.of();
+        }
+        return Map.of(fact, LinearFunction.identity());
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferCallEdge(
+            CallEdge<Stmt> edge, Var fact) {
+        if (fact == ZERO) {
+            return Map.of(ZERO, LinearFunction.identity());
+        }
+        Map<Var, EdgeFunction<Value>> result = Maps.newMap(2);
+        if (edge.getSource() instanceof Invoke invoke) {
+            InvokeExp invokeExp = invoke.getRValue();
+            IR calleeIR = edge.getCallee().getIR();
+            for (int i = 0; i < invokeExp.getArgCount(); ++i) {
+                Var param = calleeIR.getParam(i);
+                if (invokeExp.getArg(i) == fact && canHoldInt(param)) {
+                    result.put(param, LinearFunction.identity());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Var, EdgeFunction<Value>> transferReturnEdge(
+            ReturnEdge<Stmt> edge, Var fact) {
+        if (fact == ZERO) {
+            return Map.of(ZERO, LinearFunction.identity());
+        }
+        Optional<LValue> def = edge.getCallSite().getDef();
+        if (def.isPresent() && def.get() instanceof Var lhs && canHoldInt(lhs)
+                && edge.getReturnVars().contains(fact)) {
+            return Map.of(lhs, LinearFunction.identity());
+        }
+        return Map.of();
+    }
+}
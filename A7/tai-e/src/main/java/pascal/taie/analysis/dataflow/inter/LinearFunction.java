@@ -0,0 +1,160 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+
+/**
+ * Edge functions of linear constant propagation, which take one of
+ * the forms: {@code λv.UNDEF}, {@code λv.NAC}, {@code λv.c} and
+ * {@code λv.a*v+b}. Applying a linear function to UNDEF (or NAC)
+ * gives UNDEF (or NAC).
+ * <p>
+ * Meeting two different functions gives {@code λv.NAC}, which keeps
+ * the functions in a lattice of finite height and thus guarantees
+ * termination of the solver.
+ */
+final class LinearFunction implements EdgeFunction<Value> {
+
+    private enum Kind {
+        ALL_TOP, ALL_BOTTOM, CONSTANT, LINEAR
+    }
+
+    private static final LinearFunction ALL_TOP =
+            new LinearFunction(Kind.ALL_TOP, 0, 0);
+
+    private static final LinearFunction ALL_BOTTOM =
+            new LinearFunction(Kind.ALL_BOTTOM, 0, 0);
+
+    private static final LinearFunction IDENTITY =
+            new LinearFunction(Kind.LINEAR, 1, 0);
+
+    private final Kind kind;
+
+    private final int a;
+
+    /**
+     * The constant of CONSTANT functions, or the offset of LINEAR functions.
+     */
+    private final int b;
+
+    private LinearFunction(Kind kind, int a, int b) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * @return the function that maps every value to UNDEF.
+     */
+    static LinearFunction allTop() {
+        return ALL_TOP;
+    }
+
+    /**
+     * @return the function that maps every value to NAC.
+     */
+    static LinearFunction allBottom() {
+        return ALL_BOTTOM;
+    }
+
+    static LinearFunction identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * @return the function that maps every value to constant {@code c}.
+     */
+    static LinearFunction constant(int c) {
+        return new LinearFunction(Kind.CONSTANT, 0, c);
+    }
+
+    /**
+     * @return the function {@code λv.a*v+b}.
+     */
+    static LinearFunction linear(int a, int b) {
+        return a == 1 && b == 0 ? IDENTITY : new LinearFunction(Kind.LINEAR, a, b);
+    }
+
+    @Override
+    public Value computeTarget(Value source) {
+        return switch (kind) {
+            case ALL_TOP -> Value.getUndef();
+            case ALL_BOTTOM -> Value.getNAC();
+            case CONSTANT -> Value.makeConstant(b);
+            case LINEAR -> source.isConstant() ?
+                    Value.makeConstant(a * source.getConstant() + b) : source;
+        };
+    }
+
+    @Override
+    public EdgeFunction<Value> composeWith(EdgeFunction<Value> second) {
+        LinearFunction g = (LinearFunction) second;
+        if (g.kind != Kind.LINEAR) {
+            return g;
+        }
+        return switch (kind) {
+            case ALL_TOP, ALL_BOTTOM -> this;
+            case CONSTANT -> constant(g.a * b + g.b);
+            case LINEAR -> linear(g.a * a, g.a * b + g.b);
+        };
+    }
+
+    @Override
+    public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+        LinearFunction g = (LinearFunction) other;
+        if (kind == Kind.ALL_TOP || equals(g)) {
+            return g;
+        } else if (g.kind == Kind.ALL_TOP) {
+            return this;
+        } else {
+            return ALL_BOTTOM;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LinearFunction that)) {
+            return false;
+        }
+        return kind == that.kind && a == that.a && b == that.b;
+    }
+
+    @Override
+    public int hashCode() {
+        return (kind.hashCode() * 31 + a) * 31 + b;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case ALL_TOP -> "λv.UNDEF";
+            case ALL_BOTTOM -> "λv.NAC";
+            case CONSTANT -> "λv." + b;
+            case LINEAR -> "λv." + a + "*v+" + b;
+        };
+    }
+}
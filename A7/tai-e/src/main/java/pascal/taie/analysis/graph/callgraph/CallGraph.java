@@ -107,4 +107,13 @@ public interface CallGraph<CallSite, Method> extends Graph<Method>, StmtResult<S
      * @return true if this call graph contains the given method, otherwise false.
      */
     boolean contains(Method method);
+
+    /**
+     * @return true if method {@code from} may reach method {@code to}
+     * through zero or more call edges, otherwise false.
+     * @see CallGraphReachability
+     */
+    default boolean canReach(Method from, Method to) {
+        return CallGraphReachability.of(this).canReach(from, to);
+    }
 }
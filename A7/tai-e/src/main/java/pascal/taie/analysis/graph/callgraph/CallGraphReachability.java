@@ -0,0 +1,269 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Index for answering method-to-method reachability queries on a call
+ * graph, i.e., whether a method may transitively call another method.
+ * <p>
+ * The index is built over the condensation of the call graph
+ * (see {@link CallGraphSCC}). For small condensations, it stores the
+ * full transitive closure as bitsets, so that each query is a single
+ * bit test. For large condensations, whose closure is too big to keep,
+ * it stores 2-hop labels computed by pruned landmark labeling: each
+ * component {@code c} gets a set of landmarks {@code out(c)} it reaches
+ * and a set of landmarks {@code in(c)} reaching it, and {@code c1}
+ * reaches {@code c2} iff {@code out(c1)} and {@code in(c2)} intersect.
+ * The labels are typically tiny, thus queries take near constant time.
+ * <p>
+ * Use {@link #of(CallGraph)} or {@link CallGraph#canReach(Object, Object)}
+ * to query a call graph; the index is cached in {@link World}, and it is
+ * rebuilt together with the SCCs after the call graph grows.
+ *
+ * @param <CallSite> type of call sites
+ * @param <Method>   type of methods
+ */
+public class CallGraphReachability<CallSite, Method> {
+
+    public static final String ID = "cg-reachability";
+
+    /**
+     * Condensations with at most this number of components use
+     * bitset transitive closure (which costs at most 8MB), and larger
+     * ones use 2-hop labels.
+     */
+    private static final int BITSET_THRESHOLD = 1 << 13;
+
+    private final CallGraphSCC<CallSite, Method> scc;
+
+    /**
+     * Transitive closure, i.e., the components reachable from each component.
+     * This is null if 2-hop labels are used.
+     */
+    private final long[][] closure;
+
+    /**
+     * Sorted landmark ranks reachable from each component.
+     */
+    private final int[][] outLabels;
+
+    /**
+     * Sorted landmark ranks reaching each component.
+     */
+    private final int[][] inLabels;
+
+    /**
+     * @return the reachability index of given call graph. The index is
+     * cached in {@link World} for each call graph, and it is rebuilt
+     * if the call graph has been modified since the last build.
+     */
+    @SuppressWarnings("unchecked")
+    public static <CallSite, Method> CallGraphReachability<CallSite, Method> of(
+            CallGraph<CallSite, Method> callGraph) {
+        Map<CallGraph<?, ?>, CallGraphReachability<?, ?>> cache =
+                World.get().getResult(ID, Maps::newMap);
+        CallGraphSCC<CallSite, Method> scc = CallGraphSCC.of(callGraph);
+        CallGraphReachability<CallSite, Method> reachability =
+                (CallGraphReachability<CallSite, Method>) cache.get(callGraph);
+        if (reachability == null || reachability.scc != scc) {
+            reachability = new CallGraphReachability<>(scc);
+            cache.put(callGraph, reachability);
+        }
+        return reachability;
+    }
+
+    CallGraphReachability(CallGraphSCC<CallSite, Method> scc) {
+        this(scc, BITSET_THRESHOLD);
+    }
+
+    /**
+     * @param bitsetThreshold condensations with at most this number of
+     *                        components use bitset transitive closure.
+     */
+    CallGraphReachability(CallGraphSCC<CallSite, Method> scc, int bitsetThreshold) {
+        this.scc = scc;
+        if (scc.getNumberOfComponents() <= bitsetThreshold) {
+            closure = computeClosure();
+            outLabels = inLabels = null;
+        } else {
+            closure = null;
+            outLabels = new int[scc.getNumberOfComponents()][];
+            inLabels = new int[scc.getNumberOfComponents()][];
+            computeLabels();
+        }
+    }
+
+    /**
+     * Components are numbered in reverse topological order, thus
+     * the closures of callees are ready when a component is visited.
+     */
+    private long[][] computeClosure() {
+        int n = scc.getNumberOfComponents();
+        int words = (n + 63) >>> 6;
+        long[][] reach = new long[n][];
+        for (int c = 0; c < n; ++c) {
+            long[] bits = new long[words];
+            bits[c >>> 6] |= 1L << c;
+            for (int succ : scc.getSuccsOf(c)) {
+                long[] succBits = reach[succ];
+                for (int i = 0; i < words; ++i) {
+                    bits[i] |= succBits[i];
+                }
+            }
+            reach[c] = bits;
+        }
+        return reach;
+    }
+
+    /**
+     * Pruned landmark labeling: components are taken as landmarks in
+     * descending order of (in-degree + 1) * (out-degree + 1), and each
+     * landmark is propagated forward and backward by BFS, which stops at
+     * components whose reachability to/from the landmark is already
+     * covered by the labels of previous landmarks.
+     */
+    private void computeLabels() {
+        int n = scc.getNumberOfComponents();
+        int[] order = IntStream.range(0, n)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer c) ->
+                        (long) (scc.getPredsOf(c).length + 1)
+                                * (scc.getSuccsOf(c).length + 1)).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] outSizes = new int[n];
+        int[] inSizes = new int[n];
+        for (int c = 0; c < n; ++c) {
+            outLabels[c] = new int[2];
+            inLabels[c] = new int[2];
+        }
+        int[] queue = new int[n];
+        int[] visited = new int[n];
+        Arrays.fill(visited, -1);
+        int visitMark = 0;
+        for (int rank = 0; rank < n; ++rank) {
+            int landmark = order[rank];
+            // forward: the landmark reaches these components
+            ++visitMark;
+            int head = 0, tail = 0;
+            queue[tail++] = landmark;
+            visited[landmark] = visitMark;
+            while (head < tail) {
+                int c = queue[head++];
+                if (c != landmark && intersects(outLabels[landmark], outSizes[landmark],
+                        inLabels[c], inSizes[c])) {
+                    continue;
+                }
+                inLabels[c] = append(inLabels[c], inSizes[c]++, rank);
+                for (int succ : scc.getSuccsOf(c)) {
+                    if (visited[succ] != visitMark) {
+                        visited[succ] = visitMark;
+                        queue[tail++] = succ;
+                    }
+                }
+            }
+            // backward: these components reach the landmark
+            ++visitMark;
+            head = tail = 0;
+            queue[tail++] = landmark;
+            visited[landmark] = visitMark;
+            while (head < tail) {
+                int c = queue[head++];
+                if (c != landmark && intersects(outLabels[c], outSizes[c],
+                        inLabels[landmark], inSizes[landmark])) {
+                    continue;
+                }
+                outLabels[c] = append(outLabels[c], outSizes[c]++, rank);
+                for (int pred : scc.getPredsOf(c)) {
+                    if (visited[pred] != visitMark) {
+                        visited[pred] = visitMark;
+                        queue[tail++] = pred;
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < n; ++c) {
+            outLabels[c] = Arrays.copyOf(outLabels[c], outSizes[c]);
+            inLabels[c] = Arrays.copyOf(inLabels[c], inSizes[c]);
+        }
+    }
+
+    private static int[] append(int[] array, int size, int value) {
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+
+    /**
+     * @return true if the two sorted arrays share an element.
+     */
+    private static boolean intersects(int[] a, int aSize, int[] b, int bSize) {
+        int i = 0, j = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] == b[j]) {
+                return true;
+            } else if (a[i] < b[j]) {
+                ++i;
+            } else {
+                ++j;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if method {@code from} may reach method {@code to}
+     * through zero or more call edges. Every reachable method reaches
+     * itself, and methods that are not in the call graph reach nothing.
+     */
+    public boolean canReach(Method from, Method to) {
+        int c1 = scc.getComponentOf(from);
+        int c2 = scc.getComponentOf(to);
+        if (c1 == -1 || c2 == -1) {
+            return false;
+        }
+        if (c1 == c2) {
+            return true;
+        }
+        if (c1 < c2) {
+            // callers are numbered after their callees
+            return false;
+        }
+        if (closure != null) {
+            return (closure[c1][c2 >>> 6] & (1L << c2)) != 0;
+        } else {
+            return intersects(outLabels[c1], outLabels[c1].length,
+                    inLabels[c2], inLabels[c2].length);
+        }
+    }
+}
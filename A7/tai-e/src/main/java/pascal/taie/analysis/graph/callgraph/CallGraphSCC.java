@@ -0,0 +1,412 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Strongly connected components (SCCs) of a call graph and
+ * the condensation (a DAG) formed by them.
+ * <p>
+ * The components are computed by Tarjan's algorithm in time linear to
+ * the size of the call graph, and they are numbered in reverse
+ * topological order, i.e., if a method in component {@code c1} calls
+ * a method in another component {@code c2}, then {@code c2 < c1}.
+ * Thus, iterating the components by increasing number visits callees
+ * before callers, which is the order needed by bottom-up analyses.
+ * <p>
+ * Use {@link #of(CallGraph)} to obtain the (cached) SCCs of a call graph.
+ * Call graphs only grow, thus the numbers of their methods and edges
+ * identify their versions, and the cached SCCs are recomputed when
+ * the call graph has grown since they were computed.
+ *
+ * @param <CallSite> type of call sites
+ * @param <Method>   type of methods
+ */
+public class CallGraphSCC<CallSite, Method> {
+
+    public static final String ID = "cg-scc";
+
+    /**
+     * Reachable methods of the call graph, indexed by method IDs.
+     */
+    private final List<Method> methods;
+
+    private final Map<Method, Integer> methodIds;
+
+    /**
+     * Successors (callees) of each method, indexed by method IDs.
+     */
+    private final int[][] methodSuccs;
+
+    /**
+     * Component ID of each method, indexed by method IDs.
+     */
+    private final int[] componentOf;
+
+    private final List<List<Method>> components;
+
+    /**
+     * Whether each component contains a call cycle (including self-calls).
+     */
+    private final boolean[] recursive;
+
+    private final int[][] componentSuccs;
+
+    private final int[][] componentPreds;
+
+    /**
+     * Number of methods of the call graph when the SCCs are computed.
+     */
+    private final int numberOfMethods;
+
+    /**
+     * Number of edges of the call graph when the SCCs are computed.
+     */
+    private final int numberOfEdges;
+
+    /**
+     * @return the SCCs of given call graph. The result is cached in
+     * {@link World} for each call graph, and it is recomputed if
+     * the call graph has been modified since the last computation.
+     */
+    @SuppressWarnings("unchecked")
+    public static <CallSite, Method> CallGraphSCC<CallSite, Method> of(
+            CallGraph<CallSite, Method> callGraph) {
+        Map<CallGraph<?, ?>, CallGraphSCC<?, ?>> cache =
+                World.get().getResult(ID, Maps::newMap);
+        CallGraphSCC<CallSite, Method> scc =
+                (CallGraphSCC<CallSite, Method>) cache.get(callGraph);
+        if (scc == null || !scc.isUpToDate(callGraph)) {
+            scc = new CallGraphSCC<>(callGraph);
+            cache.put(callGraph, scc);
+        }
+        return scc;
+    }
+
+    CallGraphSCC(CallGraph<CallSite, Method> callGraph) {
+        numberOfMethods = callGraph.getNumberOfMethods();
+        numberOfEdges = callGraph.getNumberOfEdges();
+        // number reachable methods and collect their callees
+        methods = callGraph.reachableMethods().toList();
+        int n = methods.size();
+        methodIds = Maps.newMap(n);
+        for (int i = 0; i < n; ++i) {
+            methodIds.put(methods.get(i), i);
+        }
+        methodSuccs = new int[n][];
+        for (int i = 0; i < n; ++i) {
+            methodSuccs[i] = callGraph.callSitesIn(methods.get(i))
+                    .flatMap(cs -> callGraph.getCalleesOf(cs).stream())
+                    .map(methodIds::get)
+                    .filter(id -> id != null)
+                    .mapToInt(Integer::intValue)
+                    .distinct()
+                    .toArray();
+        }
+        componentOf = new int[n];
+        components = new ArrayList<>();
+        computeComponents();
+        // build condensation
+        int c = components.size();
+        recursive = new boolean[c];
+        componentSuccs = new int[c][];
+        int[] mark = new int[c];
+        Arrays.fill(mark, -1);
+        int[] buffer = new int[c];
+        int[] inDegrees = new int[c];
+        for (int comp = 0; comp < c; ++comp) {
+            int size = 0;
+            for (Method m : components.get(comp)) {
+                for (int succ : methodSuccs[methodIds.get(m)]) {
+                    int succComp = componentOf[succ];
+                    if (succComp == comp) {
+                        recursive[comp] = true;
+                    } else if (mark[succComp] != comp) {
+                        mark[succComp] = comp;
+                        buffer[size++] = succComp;
+                        ++inDegrees[succComp];
+                    }
+                }
+            }
+            componentSuccs[comp] = Arrays.copyOf(buffer, size);
+            if (components.get(comp).size() > 1) {
+                recursive[comp] = true;
+            }
+        }
+        componentPreds = new int[c][];
+        for (int comp = 0; comp < c; ++comp) {
+            componentPreds[comp] = new int[inDegrees[comp]];
+        }
+        for (int comp = 0; comp < c; ++comp) {
+            for (int succComp : componentSuccs[comp]) {
+                componentPreds[succComp][--inDegrees[succComp]] = comp;
+            }
+        }
+    }
+
+    /**
+     * @return true if the given call graph has not been modified since
+     * these SCCs were computed from it.
+     */
+    boolean isUpToDate(CallGraph<?, ?> callGraph) {
+        return callGraph.getNumberOfMethods() == numberOfMethods
+                && callGraph.getNumberOfEdges() == numberOfEdges;
+    }
+
+    /**
+     * Iterative version of Tarjan's algorithm, so that deep call chains
+     * do not overflow the Java stack.
+     */
+    private void computeComponents() {
+        int n = methods.size();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int sp = 0;
+        int[] callStack = new int[n];
+        int[] nextSucc = new int[n];
+        int counter = 0;
+        for (int root = 0; root < n; ++root) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int csp = 0;
+            callStack[csp++] = root;
+            index[root] = lowLink[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            while (csp > 0) {
+                int v = callStack[csp - 1];
+                if (nextSucc[v] < methodSuccs[v].length) {
+                    int w = methodSuccs[v][nextSucc[v]++];
+                    if (index[w] == -1) {
+                        index[w] = lowLink[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callStack[csp++] = w;
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                } else {
+                    --csp;
+                    if (csp > 0) {
+                        int u = callStack[csp - 1];
+                        lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+                    }
+                    if (lowLink[v] == index[v]) {
+                        int comp = components.size();
+                        List<Method> component = new ArrayList<>();
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            componentOf[w] = comp;
+                            component.add(methods.get(w));
+                        } while (w != v);
+                        components.add(Collections.unmodifiableList(component));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of components.
+     */
+    public int getNumberOfComponents() {
+        return components.size();
+    }
+
+    /**
+     * @return all components in reverse topological order (callees first).
+     */
+    public List<List<Method>> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * @return the methods in the given component.
+     */
+    public List<Method> getComponent(int component) {
+        return components.get(component);
+    }
+
+    /**
+     * @return ID of the component containing the given method,
+     * or -1 if the method is not reachable in the call graph.
+     */
+    public int getComponentOf(Method method) {
+        Integer id = methodIds.get(method);
+        return id == null ? -1 : componentOf[id];
+    }
+
+    /**
+     * @return true if the given component contains a call cycle,
+     * i.e., it has multiple methods or a method calling itself.
+     */
+    public boolean isRecursive(int component) {
+        return recursive[component];
+    }
+
+    /**
+     * @return the components called by the given component.
+     * The returned array should not be modified.
+     */
+    public int[] getSuccsOf(int component) {
+        return componentSuccs[component];
+    }
+
+    /**
+     * @return the components calling the given component.
+     * The returned array should not be modified.
+     */
+    public int[] getPredsOf(int component) {
+        return componentPreds[component];
+    }
+
+    /**
+     * @return the components in reverse topological order,
+     * i.e., callees are visited before their callers.
+     */
+    public Iterable<List<Method>> reverseTopologicalOrder() {
+        return components;
+    }
+
+    /**
+     * @return the components in topological order,
+     * i.e., callers are visited before their callees.
+     */
+    public Iterable<List<Method>> topologicalOrder() {
+        List<List<Method>> reversed = new ArrayList<>(components);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    /**
+     * @return a new ready queue that hands out components bottom-up,
+     * i.e., a component is ready when all its callees are completed.
+     */
+    public ReadyQueue newReadyQueue() {
+        return new ReadyQueue(componentSuccs, componentPreds);
+    }
+
+    /**
+     * @return a new ready queue that hands out components top-down,
+     * i.e., a component is ready when all its callers are completed.
+     */
+    public ReadyQueue newTopDownReadyQueue() {
+        return new ReadyQueue(componentPreds, componentSuccs);
+    }
+
+    /**
+     * A thread-safe queue for processing components in parallel.
+     * A component becomes ready when all components it depends on
+     * (its callees for bottom-up queues, or its callers for top-down
+     * queues) have been completed, so that analyses can process
+     * independent components concurrently. Typical usage by each
+     * worker thread:
+     * <pre>
+     * for (int c; (c = queue.take()) != -1; ) {
+     *     // process component c
+     *     queue.complete(c);
+     * }
+     * </pre>
+     */
+    public class ReadyQueue {
+
+        private static final int DONE = -1;
+
+        private final LinkedBlockingQueue<Integer> ready = new LinkedBlockingQueue<>();
+
+        /**
+         * Components that depend on each component.
+         */
+        private final int[][] dependents;
+
+        /**
+         * Number of uncompleted dependees of each component.
+         */
+        private final AtomicIntegerArray pending;
+
+        private final AtomicInteger unfinished;
+
+        private ReadyQueue(int[][] dependees, int[][] dependents) {
+            this.dependents = dependents;
+            int c = components.size();
+            pending = new AtomicIntegerArray(c);
+            unfinished = new AtomicInteger(c);
+            for (int comp = 0; comp < c; ++comp) {
+                pending.set(comp, dependees[comp].length);
+                if (dependees[comp].length == 0) {
+                    ready.add(comp);
+                }
+            }
+            if (c == 0) {
+                ready.add(DONE);
+            }
+        }
+
+        /**
+         * Retrieves a ready component, waiting if none is ready yet.
+         *
+         * @return ID of the ready component, or -1 if all components
+         * have been completed.
+         */
+        public int take() throws InterruptedException {
+            int comp = ready.take();
+            if (comp == DONE) {
+                // let other consumers see the end as well
+                ready.add(DONE);
+            }
+            return comp;
+        }
+
+        /**
+         * Marks the given component as completed, which may make
+         * its dependents ready.
+         */
+        public void complete(int component) {
+            for (int dependent : dependents[component]) {
+                if (pending.decrementAndGet(dependent) == 0) {
+                    ready.add(dependent);
+                }
+            }
+            if (unfinished.decrementAndGet() == 0) {
+                ready.add(DONE);
+            }
+        }
+    }
+}
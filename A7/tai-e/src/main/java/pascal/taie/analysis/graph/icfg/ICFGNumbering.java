@@ -0,0 +1,134 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Dense numbering of the nodes of an ICFG, i.e., the nodes of all
+ * reachable methods are numbered from 0 to {@code size() - 1}, so that
+ * per-node data can be kept in arrays indexed by node numbers.
+ * <p>
+ * The nodes of each method are numbered consecutively: each method is
+ * given a base number, and the number of a node is the base number of
+ * its containing method plus the index of the node in the method.
+ * Thus only the base numbers of methods are kept in a map, instead of
+ * the numbers of all nodes.
+ * <p>
+ * For ICFGs that grow after numbering (e.g., {@link LazyICFG}), the nodes
+ * added later can be numbered by {@link #addNodes(Iterable)}.
+ *
+ * @param <Method> type of methods
+ * @param <Node>   type of ICFG nodes
+ */
+public class ICFGNumbering<Method, Node> {
+
+    private final ICFG<Method, Node> icfg;
+
+    /**
+     * Index of each node in its containing method.
+     */
+    private final ToIntFunction<Node> indexer;
+
+    private final Map<Method, Integer> bases;
+
+    /**
+     * Nodes indexed by their numbers. The numbers that are not taken
+     * by any node (e.g., the indexes unused by a method) map to null.
+     */
+    private final List<Node> nodes;
+
+    /**
+     * @param icfg    the ICFG to be numbered
+     * @param indexer gives the index of each node in its containing method,
+     *                which ranges from 0 to the number of nodes of the
+     *                method - 1, e.g., {@link pascal.taie.ir.stmt.Stmt#getIndex()}
+     *                for statements.
+     */
+    public ICFGNumbering(ICFG<Method, Node> icfg, ToIntFunction<Node> indexer) {
+        this.icfg = icfg;
+        this.indexer = indexer;
+        this.bases = Maps.newMap();
+        this.nodes = new ArrayList<>(icfg.getNumberOfNodes());
+        addNodes(icfg);
+    }
+
+    /**
+     * Numbers the given nodes after the numbered ones. The nodes of the
+     * methods that have been numbered are skipped.
+     */
+    public void addNodes(Iterable<Node> newNodes) {
+        // group the nodes by their containing methods
+        Map<Method, List<Node>> nodesOfMethods = new LinkedHashMap<>();
+        for (Node node : newNodes) {
+            Method method = icfg.getContainingMethodOf(node);
+            if (!bases.containsKey(method)) {
+                nodesOfMethods.computeIfAbsent(method,
+                        __ -> new ArrayList<>()).add(node);
+            }
+        }
+        nodesOfMethods.forEach((method, methodNodes) -> {
+            int base = nodes.size();
+            bases.put(method, base);
+            for (Node node : methodNodes) {
+                int number = base + indexer.applyAsInt(node);
+                while (nodes.size() <= number) {
+                    nodes.add(null);
+                }
+                nodes.set(number, node);
+            }
+        });
+    }
+
+    /**
+     * @return the upper bound (exclusive) of the numbers of nodes.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the number of given node, or -1 if the node is not in the ICFG.
+     */
+    public int getNumber(Node node) {
+        Integer base = bases.get(icfg.getContainingMethodOf(node));
+        if (base == null) {
+            return -1;
+        }
+        int number = base + indexer.applyAsInt(node);
+        return number < nodes.size() && nodes.get(number) == node ? number : -1;
+    }
+
+    /**
+     * @return the node of given number, or null if no node takes the number.
+     */
+    public Node getNode(int number) {
+        return nodes.get(number);
+    }
+}
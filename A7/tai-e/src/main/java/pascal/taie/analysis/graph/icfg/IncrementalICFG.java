@@ -0,0 +1,48 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Represents an inter-procedural control-flow graph that grows after
+ * creation, e.g., when methods are added on demand, or when call edges
+ * are added to the underlying call graph.
+ */
+public interface IncrementalICFG<Method, Node> extends ICFG<Method, Node> {
+
+    /**
+     * Registers a listener, which is called with the nodes of each method
+     * added to the ICFG after the registration.
+     */
+    void addNodeListener(Consumer<? super Collection<Node>> listener);
+
+    /**
+     * Adds the ICFG edges for a call edge that is added to the underlying
+     * call graph after the ICFG has been created.
+     *
+     * @return true if the ICFG changed as a result of the call.
+     */
+    boolean addCallEdge(Node callSite, Method callee);
+}
@@ -0,0 +1,314 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.Views;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * An ICFG that is built on demand, i.e., a method is added to the ICFG
+ * only when the method is reached.
+ * <p>
+ * Each method goes through two stages:
+ * <ol>
+ *     <li>Built: the CFG of the method is built (or taken from the IR if it
+ *     has been built), and its nodes are added to the ICFG. This happens
+ *     when the entry or exit of the method is queried, e.g., when the method
+ *     is an entry method or a callee of an expanded method.</li>
+ *     <li>Expanded: the intra-procedural edges of the method, the call and
+ *     call-to-return edges of its call sites, and the return edges from
+ *     its callees to its return sites are added to the ICFG. This happens
+ *     when the edges of any node of the method are queried.</li>
+ * </ol>
+ * Thus, the IR and CFG of the methods that are never reached from the
+ * entry methods during analysis are never built. As methods are added
+ * on demand, {@link #getNodes()} only contains the nodes of built methods,
+ * and the in-edges of method entries and out-edges of method exits grow
+ * when their callers are expanded. Clients can be notified of the nodes
+ * of newly built methods by {@link #addNodeListener(Consumer)}.
+ * <p>
+ * The ICFG follows the changes of the call graph: callees and entry
+ * methods are read from the call graph when methods are expanded or
+ * queried, and call edges that are added to the call graph after their
+ * callers have been expanded can be added by {@link #addCallEdge}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LazyICFG implements IncrementalICFG<JMethod, Stmt> {
+
+    private final CallGraph<Invoke, JMethod> callGraph;
+
+    private final Map<JMethod, CFG<Stmt>> methodToCFG = Maps.newMap();
+
+    private final Map<Stmt, CFG<Stmt>> stmtToCFG = new LinkedHashMap<>();
+
+    private final Set<JMethod> expanded = Sets.newSet();
+
+    private final MultiMap<Stmt, ICFGEdge<Stmt>> inEdges = Maps.newMultiMap();
+
+    private final MultiMap<Stmt, ICFGEdge<Stmt>> outEdges = Maps.newMultiMap();
+
+    private final List<Consumer<? super Collection<Stmt>>> nodeListeners = new ArrayList<>();
+
+    /**
+     * Used to build the CFGs that have not been built.
+     */
+    private final ThrowAnalysis throwAnalysis = new ThrowAnalysis(new AnalysisConfig(
+            ThrowAnalysis.ID, "exception", "explicit", "algorithm", "intra"));
+
+    private final CFGBuilder cfgBuilder = new CFGBuilder(new AnalysisConfig(
+            CFGBuilder.ID, "exception", "explicit", "dump", false));
+
+    /**
+     * Creates an ICFG over given call graph. Only the entry methods of
+     * the call graph are built at creation.
+     */
+    public LazyICFG(CallGraph<Invoke, JMethod> callGraph) {
+        this.callGraph = callGraph;
+        callGraph.entryMethods().forEach(this::getCFGOf);
+    }
+
+    /**
+     * Registers a listener, which is called with the nodes of each method
+     * built after the registration.
+     */
+    @Override
+    public void addNodeListener(Consumer<? super Collection<Stmt>> listener) {
+        nodeListeners.add(listener);
+    }
+
+    /**
+     * @return true if the given method has been built.
+     */
+    public boolean isBuilt(JMethod method) {
+        return methodToCFG.containsKey(method);
+    }
+
+    /**
+     * @return the CFG of given method, which is built if it has not been built.
+     */
+    private CFG<Stmt> getCFGOf(JMethod method) {
+        CFG<Stmt> cfg = methodToCFG.get(method);
+        if (cfg == null) {
+            IR ir = method.getIR();
+            ir.getResult(ThrowAnalysis.ID, () -> throwAnalysis.analyze(ir));
+            cfg = ir.getResult(CFGBuilder.ID, () -> cfgBuilder.analyze(ir));
+            methodToCFG.put(method, cfg);
+            List<Stmt> nodes = new ArrayList<>(cfg.getNumberOfNodes());
+            for (Stmt node : cfg) {
+                stmtToCFG.put(node, cfg);
+                nodes.add(node);
+            }
+            List<Stmt> view = Collections.unmodifiableList(nodes);
+            nodeListeners.forEach(listener -> listener.accept(view));
+        }
+        return cfg;
+    }
+
+    /**
+     * Adds the edges of the method containing given node to this ICFG,
+     * if they have not been added.
+     */
+    private void expand(Stmt node) {
+        CFG<Stmt> cfg = stmtToCFG.get(node);
+        if (cfg == null || !expanded.add(cfg.getMethod())) {
+            return;
+        }
+        for (Stmt stmt : cfg) {
+            boolean isCallSite = isCallSite(stmt);
+            cfg.getOutEdgesOf(stmt).forEach(edge -> addEdge(isCallSite ?
+                    new CallToReturnEdge<>(edge) : new NormalEdge<>(edge)));
+            if (isCallSite) {
+                for (JMethod callee : getCalleesOf(stmt)) {
+                    addInterEdges(stmt, callee);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the call edge from given call site to the entry of given callee,
+     * and the return edges from the exit of the callee to the return sites.
+     */
+    private void addInterEdges(Stmt callSite, JMethod callee) {
+        CFG<Stmt> calleeCFG = getCFGOf(callee);
+        addEdge(new CallEdge<>(callSite, calleeCFG.getEntry(), callee));
+        // collect return variables and exceptions of the callee
+        Stmt exit = calleeCFG.getExit();
+        Set<Var> retVars = Sets.newHybridSet();
+        Set<ClassType> exceptions = Sets.newHybridSet();
+        calleeCFG.getInEdgesOf(exit).forEach(retEdge -> {
+            if (retEdge.getKind() == Edge.Kind.RETURN) {
+                Return ret = (Return) retEdge.getSource();
+                if (ret.getValue() != null) {
+                    retVars.add(ret.getValue());
+                }
+            }
+            if (retEdge.isExceptional()) {
+                exceptions.addAll(retEdge.getExceptions());
+            }
+        });
+        getReturnSitesOf(callSite).forEach(retSite -> addEdge(
+                new ReturnEdge<>(exit, retSite, callSite, retVars, exceptions)));
+    }
+
+    /**
+     * Adds the ICFG edges for a call edge that is added to the call graph
+     * after the method containing the call site has been expanded.
+     * If the method has not been expanded, the call edge will be added
+     * when it is expanded, thus this method does nothing.
+     *
+     * @return true if the ICFG changed as a result of the call.
+     */
+    @Override
+    public boolean addCallEdge(Stmt callSite, JMethod callee) {
+        CFG<Stmt> cfg = stmtToCFG.get(callSite);
+        if (cfg == null || !expanded.contains(cfg.getMethod())) {
+            return false;
+        }
+        Stmt entry = getEntryOf(callee);
+        if (hasEdge(callSite, entry)) {
+            return false;
+        }
+        addInterEdges(callSite, callee);
+        return true;
+    }
+
+    private void addEdge(ICFGEdge<Stmt> edge) {
+        outEdges.put(edge.getSource(), edge);
+        inEdges.put(edge.getTarget(), edge);
+    }
+
+    @Override
+    public Stream<JMethod> entryMethods() {
+        return callGraph.entryMethods();
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getInEdgesOf(Stmt stmt) {
+        expand(stmt);
+        return inEdges.get(stmt);
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getOutEdgesOf(Stmt stmt) {
+        expand(stmt);
+        return outEdges.get(stmt);
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOf(Stmt callSite) {
+        return callGraph.getCalleesOf((Invoke) callSite);
+    }
+
+    @Override
+    public Set<Stmt> getReturnSitesOf(Stmt callSite) {
+        assert isCallSite(callSite);
+        return stmtToCFG.get(callSite).getSuccsOf(callSite);
+    }
+
+    @Override
+    public Stmt getEntryOf(JMethod method) {
+        return getCFGOf(method).getEntry();
+    }
+
+    @Override
+    public Stmt getExitOf(JMethod method) {
+        return getCFGOf(method).getExit();
+    }
+
+    @Override
+    public Set<Stmt> getCallersOf(JMethod method) {
+        return Collections.unmodifiableSet(callGraph.getCallersOf(method));
+    }
+
+    /**
+     * @return the method that contains the given node, or null if the
+     * method has not been built.
+     */
+    @Override
+    public JMethod getContainingMethodOf(Stmt stmt) {
+        CFG<Stmt> cfg = stmtToCFG.get(stmt);
+        return cfg == null ? null : cfg.getMethod();
+    }
+
+    @Override
+    public boolean isCallSite(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public boolean hasNode(Stmt stmt) {
+        return stmtToCFG.containsKey(stmt);
+    }
+
+    @Override
+    public boolean hasEdge(Stmt source, Stmt target) {
+        return getOutEdgesOf(source)
+                .stream()
+                .anyMatch(edge -> edge.getTarget().equals(target));
+    }
+
+    @Override
+    public Set<Stmt> getPredsOf(Stmt stmt) {
+        return Views.toMappedSet(getInEdgesOf(stmt), ICFGEdge::getSource);
+    }
+
+    @Override
+    public Set<Stmt> getSuccsOf(Stmt stmt) {
+        return Views.toMappedSet(getOutEdgesOf(stmt), ICFGEdge::getTarget);
+    }
+
+    /**
+     * @return the nodes of the methods that have been built so far.
+     */
+    @Override
+    public Set<Stmt> getNodes() {
+        return Collections.unmodifiableSet(stmtToCFG.keySet());
+    }
+}
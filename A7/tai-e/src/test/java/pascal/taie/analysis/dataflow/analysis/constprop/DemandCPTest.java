@@ -0,0 +1,133 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.inter.DemandConstantPropagation;
+import pascal.taie.analysis.dataflow.inter.DemandConstantPropagation.Query;
+import pascal.taie.analysis.dataflow.inter.InterConstantPropagation;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DemandCPTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/alias";
+
+    private static final String OPTIONS = "edge-refine:false;alias-aware:true;pta:cspta";
+
+    /**
+     * Solves the whole program by {@link InterConstantPropagation},
+     * and returns the queries for all int variables at all statements.
+     */
+    private static List<Query> solve(String inputClass) {
+        Main.main(new String[]{
+                "-pp", "-cp", CLASS_PATH, "-m", inputClass,
+                "-a", "cspta=cs:2-obj", "-a", "cg=algorithm:cspta",
+                "-a", InterConstantPropagation.ID + "=" + OPTIONS});
+        ICFG<JMethod, Stmt> icfg = World.get().getResult(ICFGBuilder.ID);
+        List<Query> queries = new ArrayList<>();
+        for (Stmt stmt : icfg) {
+            for (Var var : icfg.getContainingMethodOf(stmt).getIR().getVars()) {
+                if (ConstantPropagation.canHoldInt(var)) {
+                    queries.add(new Query(var, stmt));
+                }
+            }
+        }
+        return queries;
+    }
+
+    private static AnalysisConfig newConfig() {
+        return new AnalysisConfig(InterConstantPropagation.ID,
+                "edge-refine", false, "alias-aware", true, "pta", "cspta");
+    }
+
+    /**
+     * Checks that the demand-driven analysis gives the same values as
+     * the whole-program analysis.
+     */
+    private static void test(String inputClass) {
+        List<Query> queries = solve(inputClass);
+        DataflowResult<Stmt, CPFact> expected =
+                World.get().getResult(InterConstantPropagation.ID);
+        DemandConstantPropagation demand = new DemandConstantPropagation(newConfig());
+        for (Query q : queries) {
+            Assert.assertEquals(q.toString(),
+                    expected.getInFact(q.stmt()).get(q.var()),
+                    demand.getValue(q.var(), q.stmt()));
+        }
+    }
+
+    @Test
+    public void testArray() {
+        test("Array");
+    }
+
+    @Test
+    public void testArrayLoops() {
+        test("ArrayLoops");
+    }
+
+    @Test
+    public void testInstanceField() {
+        test("InstanceField");
+    }
+
+    @Test
+    public void testInterprocedural2() {
+        test("Interprocedural2");
+    }
+
+    @Test
+    public void testStaticField() {
+        test("StaticField");
+    }
+
+    @Test
+    public void testFullSolve() {
+        List<Query> queries = solve("ArrayInter2");
+        DataflowResult<Stmt, CPFact> expected =
+                World.get().getResult(InterConstantPropagation.ID);
+        // more queries than the threshold, thus the whole ICFG is solved
+        DemandConstantPropagation demand =
+                new DemandConstantPropagation(newConfig(), 0);
+        Map<Query, Value> values = demand.getValues(queries);
+        for (Query q : queries) {
+            Value value = expected.getInFact(q.stmt()).get(q.var());
+            Assert.assertEquals(q.toString(), value, values.get(q));
+            // later queries are answered by the result of the full solve
+            Assert.assertEquals(q.toString(), value, demand.getValue(q.var(), q.stmt()));
+        }
+    }
+}
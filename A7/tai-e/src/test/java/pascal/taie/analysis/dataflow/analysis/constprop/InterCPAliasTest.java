@@ -22,9 +22,12 @@
 
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
 import pascal.taie.analysis.dataflow.inter.InterConstantPropagation;
+import pascal.taie.analysis.graph.icfg.ICFGBuilder;
 
 public class InterCPAliasTest {
 
@@ -39,6 +42,12 @@ public class InterCPAliasTest {
         );
     }
 
+    void testWithOptions(String inputClass, String options) {
+        Tests.test(inputClass, CLASS_PATH, InterConstantPropagation.ID,
+                "edge-refine:false;alias-aware:true;pta:cspta;" + options,
+                "-a", "cspta=cs:2-obj", "-a", "cg=algorithm:cspta");
+    }
+
     @Test
     public void testArray() {
         test("Array");
@@ -83,4 +92,41 @@ public class InterCPAliasTest {
     public void testStaticFieldMultiStores() {
         test("StaticFieldMultiStores");
     }
+
+    @Test
+    public void testPriorityWorkList() {
+        testWithOptions("ArrayLoops", "worklist:priority");
+        testWithOptions("Interprocedural2", "worklist:priority");
+        testWithOptions("StaticFieldMultiStores", "worklist:priority");
+    }
+
+    @Test
+    public void testParallelWorkList() {
+        testWithOptions("ArrayInter2", "worklist:parallel");
+        testWithOptions("InstanceField", "worklist:parallel");
+        testWithOptions("ObjSens", "worklist:parallel");
+        testWithOptions("StaticFieldMultiStores", "worklist:parallel");
+    }
+
+    @Test
+    public void testCompactResult() {
+        testWithOptions("Array", "compact-result:true");
+        testWithOptions("ArrayInter2", "compact-result:true");
+        testWithOptions("ArrayLoops", "compact-result:true");
+        testWithOptions("InstanceField", "compact-result:true");
+        testWithOptions("StaticFieldMultiStores", "compact-result:true");
+    }
+
+    @Test
+    public void testLazyICFG() {
+        testLazyICFG("ArrayInter2");
+        testLazyICFG("Interprocedural2");
+        testLazyICFG("StaticField");
+    }
+
+    private void testLazyICFG(String inputClass) {
+        testWithOptions(inputClass, "lazy-icfg:true");
+        // the eager ICFG is not required by lazy ICFG
+        Assert.assertNull(World.get().getResult(ICFGBuilder.ID));
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.inter.InterConstantPropagation;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.List;
+
+public class InterCPIDETest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/inter";
+
+    void test(String inputClass) {
+        test(inputClass, "ide:true;pta:cspta");
+    }
+
+    void test(String inputClass, String options) {
+        Tests.test(inputClass, CLASS_PATH, InterConstantPropagation.ID, options,
+                "-a", "cspta=cs:ci", "-a", "cg=algorithm:cspta");
+    }
+
+    @Test
+    public void testFibonacci() {
+        test("Fibonacci");
+    }
+
+    @Test
+    public void testReference() {
+        test("Reference");
+    }
+
+    @Test
+    public void testLazyICFG() {
+        test("Fibonacci", "ide:true;pta:cspta;lazy-icfg:true");
+        test("Reference", "ide:true;pta:cspta;lazy-icfg:true");
+    }
+
+    @Test
+    public void testLinearCall() {
+        Main.main(new String[]{
+                "-pp", "-cp", CLASS_PATH, "-m", "LinearCall",
+                "-a", "cspta=cs:ci", "-a", "cg=algorithm:cspta",
+                "-a", InterConstantPropagation.ID + "=ide:true;pta:cspta"});
+        DataflowResult<Stmt, CPFact> result =
+                World.get().getResult(InterConstantPropagation.ID);
+        // the edge functions of callees are composed at each call site
+        IR main = getIR("main");
+        List<Stmt> stmts = main.getStmts();
+        CPFact out = result.getOutFact(stmts.get(stmts.size() - 1));
+        Assert.assertEquals(Value.makeConstant(7), out.get(getVar(main, "b")));
+        Assert.assertEquals(Value.makeConstant(8), out.get(getVar(main, "c")));
+        Assert.assertEquals(Value.makeConstant(7), out.get(getVar(main, "d")));
+        Assert.assertEquals(Value.makeConstant(15), out.get(getVar(main, "e")));
+        // while the parameter of a callee meets the arguments of all call sites
+        IR twice = getIR("twice");
+        Assert.assertEquals(Value.getNAC(),
+                result.getInFact(twice.getStmt(0)).get(twice.getParam(0)));
+    }
+
+    private static IR getIR(String methodName) {
+        JMethod method = World.get().getClassHierarchy()
+                .getClass("LinearCall")
+                .getDeclaredMethod(methodName);
+        return method.getIR();
+    }
+
+    private static Var getVar(IR ir, String name) {
+        return ir.getVars()
+                .stream()
+                .filter(v -> v.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.inter.InterConstantPropagation;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.CallKind;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.analysis.graph.callgraph.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+public class InterCPUpdateTest {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/inter";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAddCallEdge() {
+        Main.main(new String[]{
+                "-pp", "-cp", CLASS_PATH, "-m", "IncrementalCall",
+                "-a", "cspta=cs:ci", "-a", "cg=algorithm:cspta"});
+        InterConstantPropagation analysis = new InterConstantPropagation(
+                new AnalysisConfig(InterConstantPropagation.ID,
+                        "edge-refine", false, "alias-aware", true,
+                        "pta", "cspta", "lazy-icfg", true));
+        DataflowResult<Stmt, CPFact> result =
+                (DataflowResult<Stmt, CPFact>) analysis.analyze();
+        JMethod main = getMethod("main");
+        JMethod one = getMethod("one");
+        JMethod two = getMethod("two");
+        IR mainIR = main.getIR();
+        Var x = getVar(mainIR, "x");
+        List<Stmt> stmts = mainIR.getStmts();
+        Stmt last = stmts.get(stmts.size() - 1);
+        Assert.assertEquals(Value.makeConstant(1), result.getOutFact(last).get(x));
+        Map<Stmt, CPFact> before = Maps.newMap();
+        for (JMethod method : List.of(main, one)) {
+            method.getIR().forEach(stmt ->
+                    before.put(stmt, result.getOutFact(stmt).copy()));
+        }
+
+        // add a call edge from "x = one()" to two() after solving
+        Invoke callSite = (Invoke) stmts.stream()
+                .filter(stmt -> stmt instanceof Invoke)
+                .findFirst()
+                .orElseThrow();
+        Edge<Invoke, JMethod> edge = new Edge<>(CallKind.STATIC, callSite, two);
+        DefaultCallGraph callGraph = World.get().getResult(CallGraphBuilder.ID);
+        callGraph.addReachableMethod(two);
+        callGraph.addEdge(edge);
+        DataflowResult<Stmt, CPFact> updated = analysis.update(List.of(edge), List.of());
+
+        // the return value of the new callee meets into x
+        IR twoIR = two.getIR();
+        Stmt twoLast = twoIR.getStmt(twoIR.getStmts().size() - 1);
+        Assert.assertEquals(Value.makeConstant(2),
+                updated.getInFact(twoLast).get(twoIR.getReturnVars().get(0)));
+        Assert.assertEquals(Value.getNAC(), updated.getOutFact(last).get(x));
+        Assert.assertEquals(Value.getNAC(),
+                updated.getOutFact(last).get(getVar(mainIR, "y")));
+        // only the facts of x and the variables depending on it change
+        before.forEach((stmt, fact) -> {
+            CPFact after = updated.getOutFact(stmt);
+            fact.forEach((var, value) -> {
+                if (!var.equals(x) && !var.getName().equals("y")) {
+                    Assert.assertEquals(stmt + ": " + var, value, after.get(var));
+                }
+            });
+            if (stmt.getIndex() < callSite.getIndex() || one.getIR().getStmts().contains(stmt)) {
+                Assert.assertEquals(stmt.toString(), fact, after);
+            }
+        });
+    }
+
+    private static JMethod getMethod(String methodName) {
+        return World.get().getClassHierarchy()
+                .getClass("IncrementalCall")
+                .getDeclaredMethod(methodName);
+    }
+
+    private static Var getVar(IR ir, String name) {
+        return ir.getVars()
+                .stream()
+                .filter(v -> v.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
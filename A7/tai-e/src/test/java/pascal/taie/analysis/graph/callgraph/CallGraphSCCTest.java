@@ -0,0 +1,234 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class CallGraphSCCTest {
+
+    private static final String CLASS_PATH = "src/test/resources/graph/callgraph";
+
+    private static CallGraph<Invoke, JMethod> buildCallGraph(String main) {
+        Main.main(new String[]{
+                "-pp", "-cp", CLASS_PATH, "-m", main,
+                "-a", "cspta=cs:ci", "-a", "cg=algorithm:cspta"});
+        return World.get().getResult(CallGraphBuilder.ID);
+    }
+
+    private static JMethod getMethod(String className, String name) {
+        JClass jclass = World.get().getClassHierarchy().getClass(className);
+        return jclass.getDeclaredMethod(name);
+    }
+
+    @Test
+    public void testComponents() {
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph("Recursion");
+        CallGraphSCC<Invoke, JMethod> scc = CallGraphSCC.of(callGraph);
+        JMethod main = getMethod("Recursion", "main");
+        JMethod a = getMethod("Recursion", "a");
+        JMethod b = getMethod("Recursion", "b");
+        JMethod c = getMethod("Recursion", "c");
+        JMethod d = getMethod("Recursion", "d");
+        Assert.assertEquals(4, scc.getNumberOfComponents());
+        // a and b call each other
+        int ab = scc.getComponentOf(a);
+        Assert.assertEquals(ab, scc.getComponentOf(b));
+        Assert.assertEquals(Set.of(a, b), Set.copyOf(scc.getComponent(ab)));
+        Assert.assertTrue(scc.isRecursive(ab));
+        // d calls itself
+        Assert.assertEquals(List.of(d), scc.getComponent(scc.getComponentOf(d)));
+        Assert.assertTrue(scc.isRecursive(scc.getComponentOf(d)));
+        Assert.assertFalse(scc.isRecursive(scc.getComponentOf(main)));
+        Assert.assertFalse(scc.isRecursive(scc.getComponentOf(c)));
+    }
+
+    @Test
+    public void testTopologicalOrder() {
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph("Recursion");
+        CallGraphSCC<Invoke, JMethod> scc = CallGraphSCC.of(callGraph);
+        List<List<JMethod>> order = new ArrayList<>();
+        scc.topologicalOrder().forEach(order::add);
+        List<List<JMethod>> reverseOrder = new ArrayList<>();
+        scc.reverseTopologicalOrder().forEach(reverseOrder::add);
+        Assert.assertEquals(order.size(), reverseOrder.size());
+        for (int i = 0; i < order.size(); ++i) {
+            Assert.assertEquals(order.get(i),
+                    reverseOrder.get(reverseOrder.size() - 1 - i));
+        }
+        // every component comes before the components it calls
+        for (int i = 0; i < order.size(); ++i) {
+            int comp = scc.getComponentOf(order.get(i).get(0));
+            for (int succ : scc.getSuccsOf(comp)) {
+                int j = order.indexOf(scc.getComponent(succ));
+                Assert.assertTrue(i < j);
+            }
+        }
+        JMethod main = getMethod("Recursion", "main");
+        JMethod c = getMethod("Recursion", "c");
+        Assert.assertEquals(List.of(main), order.get(0));
+        Assert.assertEquals(List.of(c), order.get(order.size() - 1));
+    }
+
+    @Test
+    public void testCanReach() {
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph("Recursion");
+        JMethod main = getMethod("Recursion", "main");
+        JMethod a = getMethod("Recursion", "a");
+        JMethod b = getMethod("Recursion", "b");
+        JMethod c = getMethod("Recursion", "c");
+        JMethod d = getMethod("Recursion", "d");
+        // callers reach callees, but not vice versa
+        Assert.assertTrue(callGraph.canReach(main, c));
+        Assert.assertFalse(callGraph.canReach(c, main));
+        Assert.assertTrue(callGraph.canReach(d, c));
+        Assert.assertFalse(callGraph.canReach(c, d));
+        // methods in a cycle reach each other
+        Assert.assertTrue(callGraph.canReach(a, b));
+        Assert.assertTrue(callGraph.canReach(b, a));
+        Assert.assertTrue(callGraph.canReach(d, d));
+        // unrelated methods
+        Assert.assertFalse(callGraph.canReach(a, d));
+        Assert.assertFalse(callGraph.canReach(d, a));
+        // every method reaches itself
+        Assert.assertTrue(callGraph.canReach(c, c));
+    }
+
+    @Test
+    public void testReadyQueue() throws InterruptedException {
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph("Recursion");
+        CallGraphSCC<Invoke, JMethod> scc = CallGraphSCC.of(callGraph);
+        int main = scc.getComponentOf(getMethod("Recursion", "main"));
+        int ab = scc.getComponentOf(getMethod("Recursion", "a"));
+        int c = scc.getComponentOf(getMethod("Recursion", "c"));
+        int d = scc.getComponentOf(getMethod("Recursion", "d"));
+        // bottom-up: c is the only leaf, and main waits for a/b and d
+        CallGraphSCC<Invoke, JMethod>.ReadyQueue queue = scc.newReadyQueue();
+        Assert.assertEquals(c, queue.take());
+        queue.complete(c);
+        Assert.assertEquals(Set.of(ab, d), Set.of(queue.take(), queue.take()));
+        queue.complete(ab);
+        queue.complete(d);
+        Assert.assertEquals(main, queue.take());
+        queue.complete(main);
+        Assert.assertEquals(-1, queue.take());
+        // the end is seen by every consumer
+        Assert.assertEquals(-1, queue.take());
+        // top-down: the reverse
+        queue = scc.newTopDownReadyQueue();
+        Assert.assertEquals(main, queue.take());
+        queue.complete(main);
+        Assert.assertEquals(Set.of(ab, d), Set.of(queue.take(), queue.take()));
+        queue.complete(d);
+        queue.complete(ab);
+        Assert.assertEquals(c, queue.take());
+        queue.complete(c);
+        Assert.assertEquals(-1, queue.take());
+    }
+
+    @Test
+    public void testReadyQueueOrder() throws InterruptedException {
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph("Recursion");
+        CallGraphSCC<Invoke, JMethod> scc = CallGraphSCC.of(callGraph);
+        CallGraphSCC<Invoke, JMethod>.ReadyQueue queue = scc.newReadyQueue();
+        Set<Integer> completed = new HashSet<>();
+        for (int comp; (comp = queue.take()) != -1; ) {
+            // every component is handed out once, after all its callees
+            Assert.assertFalse(completed.contains(comp));
+            for (int succ : scc.getSuccsOf(comp)) {
+                Assert.assertTrue(completed.contains(succ));
+            }
+            completed.add(comp);
+            queue.complete(comp);
+        }
+        Assert.assertEquals(scc.getNumberOfComponents(), completed.size());
+    }
+
+    @Test
+    public void testModifiedCallGraph() {
+        CallGraph<Invoke, JMethod> built = buildCallGraph("Recursion");
+        JMethod main = getMethod("Recursion", "main");
+        JMethod a = getMethod("Recursion", "a");
+        JMethod b = getMethod("Recursion", "b");
+        // copy the call graph without the calls in b
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        callGraph.addEntryMethod(main);
+        built.reachableMethods().forEach(callGraph::addReachableMethod);
+        List<Edge<Invoke, JMethod>> callsInB = new ArrayList<>();
+        built.edges().forEach(edge -> {
+            if (built.getContainerOf(edge.getCallSite()).equals(b)) {
+                callsInB.add(edge);
+            } else {
+                callGraph.addEdge(edge);
+            }
+        });
+        CallGraphSCC<Invoke, JMethod> scc = CallGraphSCC.of(callGraph);
+        Assert.assertSame(scc, CallGraphSCC.of(callGraph));
+        Assert.assertNotEquals(scc.getComponentOf(a), scc.getComponentOf(b));
+        Assert.assertFalse(callGraph.canReach(b, a));
+        // adding the calls makes the cached SCCs and index stale
+        callsInB.forEach(callGraph::addEdge);
+        CallGraphSCC<Invoke, JMethod> newScc = CallGraphSCC.of(callGraph);
+        Assert.assertNotSame(scc, newScc);
+        Assert.assertEquals(newScc.getComponentOf(a), newScc.getComponentOf(b));
+        Assert.assertTrue(newScc.isRecursive(newScc.getComponentOf(a)));
+        Assert.assertTrue(callGraph.canReach(b, a));
+        Assert.assertTrue(callGraph.canReach(b, getMethod("Recursion", "c")));
+    }
+
+    @Test
+    public void testReachabilityLabels() {
+        CallGraph<Invoke, JMethod> callGraph = buildCallGraph("Recursion");
+        CallGraphSCC<Invoke, JMethod> scc = CallGraphSCC.of(callGraph);
+        // threshold 0 forces 2-hop labels, which must agree with the closure
+        CallGraphReachability<Invoke, JMethod> labels =
+                new CallGraphReachability<>(scc, 0);
+        CallGraphReachability<Invoke, JMethod> closure =
+                new CallGraphReachability<>(scc, Integer.MAX_VALUE);
+        List<JMethod> methods = callGraph.reachableMethods().toList();
+        for (JMethod from : methods) {
+            for (JMethod to : methods) {
+                Assert.assertEquals(from + " -> " + to,
+                        closure.canReach(from, to), labels.canReach(from, to));
+            }
+        }
+        JMethod a = getMethod("Recursion", "a");
+        JMethod b = getMethod("Recursion", "b");
+        JMethod c = getMethod("Recursion", "c");
+        JMethod d = getMethod("Recursion", "d");
+        Assert.assertTrue(labels.canReach(b, a));
+        Assert.assertTrue(labels.canReach(d, c));
+        Assert.assertFalse(labels.canReach(c, d));
+        Assert.assertFalse(labels.canReach(a, d));
+    }
+}
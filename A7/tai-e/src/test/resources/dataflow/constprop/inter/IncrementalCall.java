@@ -0,0 +1,17 @@
+public class IncrementalCall {
+
+    public static void main(String[] args) {
+        int a = 10;
+        int x = one();
+        int b = a + 1;
+        int y = x + b;
+    }
+
+    static int one() {
+        return 1;
+    }
+
+    static int two() {
+        return 2;
+    }
+}
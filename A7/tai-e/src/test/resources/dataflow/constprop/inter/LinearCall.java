@@ -0,0 +1,23 @@
+public class LinearCall {
+
+    public static void main(String[] args) {
+        int a = 3;
+        int b = addOne(twice(a));
+        int c = twice(addOne(a));
+        int d = twiceAddOne(a);
+        int e = twiceAddOne(b);
+    }
+
+    static int twice(int x) {
+        return x * 2;
+    }
+
+    static int addOne(int x) {
+        return x + 1;
+    }
+
+    static int twiceAddOne(int x) {
+        int y = twice(x);
+        return addOne(y);
+    }
+}
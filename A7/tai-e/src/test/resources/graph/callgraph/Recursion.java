@@ -0,0 +1,24 @@
+public class Recursion {
+
+    public static void main(String[] args) {
+        a();
+        d();
+    }
+
+    static void a() {
+        b();
+    }
+
+    static void b() {
+        c();
+        a();
+    }
+
+    static void c() {
+    }
+
+    static void d() {
+        d();
+        c();
+    }
+}